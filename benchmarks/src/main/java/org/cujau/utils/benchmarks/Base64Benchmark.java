@@ -0,0 +1,49 @@
+package org.cujau.utils.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.cujau.utils.Base64;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@State( Scope.Benchmark )
+public class Base64Benchmark {
+
+    @Param( { "64", "4096", "262144" } )
+    public int size;
+
+    private byte[] bytes;
+    private String encoded;
+
+    @Setup
+    public void setup() {
+        bytes = new byte[size];
+        new Random( 42 ).nextBytes( bytes );
+        encoded = Base64.encodeBytes( bytes );
+    }
+
+    @Benchmark
+    public String encodeBytes() {
+        return Base64.encodeBytes( bytes );
+    }
+
+    @Benchmark
+    public byte[] decode() {
+        return Base64.decode( encoded );
+    }
+}
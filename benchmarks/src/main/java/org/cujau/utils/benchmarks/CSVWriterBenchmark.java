@@ -0,0 +1,75 @@
+package org.cujau.utils.benchmarks;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.cujau.utils.csv.CSVSymbols;
+import org.cujau.utils.csv.CSVWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Renders one line of fields, a quarter of which must be quoted, into a Writer that discards the
+ * output.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@State( Scope.Benchmark )
+public class CSVWriterBenchmark {
+
+    @Param( { "4", "32" } )
+    public int fields;
+
+    @Param( { "8", "64" } )
+    public int fieldLength;
+
+    /**
+     * Whether the writer buffers the lines, or flushes each line to the underlying Writer.
+     */
+    @Param( { "false", "true" } )
+    public boolean buffered;
+
+    private CSVWriter writer;
+    private List<String> line;
+
+    @Setup
+    public void setup() {
+        CSVSymbols symbols = new CSVSymbols( Locale.US );
+        symbols.setLineSeparator( "\n" );
+        Writer out = Writer.nullWriter();
+        writer = buffered ? new CSVWriter( out, symbols, 8192 ) : new CSVWriter( out, symbols );
+        line = new ArrayList<String>( fields );
+        for ( int i = 0; i < fields; i++ ) {
+            StringBuilder sb = new StringBuilder( fieldLength );
+            for ( int j = 0; j < fieldLength; j++ ) {
+                sb.append( (char) ( 'a' + ( i + j ) % 26 ) );
+            }
+            if ( i % 4 == 0 ) {
+                sb.setCharAt( fieldLength / 2, i % 8 == 0 ? ',' : '"' );
+            }
+            line.add( sb.toString() );
+        }
+    }
+
+    @Benchmark
+    public void renderLine()
+            throws IOException {
+        writer.renderLine( line );
+    }
+}
@@ -0,0 +1,125 @@
+package org.cujau.utils.benchmarks;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.cujau.utils.csv.CSVReader;
+import org.cujau.utils.csv.CSVSymbols;
+
+/**
+ * Compares two JMH result files written with <tt>-rf csv</tt>.
+ * <p>
+ * Usage: <tt>CompareResults baseline.csv current.csv [threshold%]</tt>
+ * </p>
+ * <p>
+ * Each benchmark (with its parameters) of the current results is matched with the baseline and the
+ * relative change of the score is printed. A benchmark regressed if its score is worse than the
+ * baseline (slower for time modes, fewer ops for throughput) by more than the threshold (default
+ * 10%) and by more than the sum of the two score errors. The exit status is 1 if any benchmark
+ * regressed.
+ * </p>
+ */
+public class CompareResults {
+
+    private static final double DEFAULT_THRESHOLD = 10.0;
+
+    public static void main( String[] args )
+            throws IOException {
+        if ( args.length < 2 ) {
+            System.err.println( "Usage: CompareResults baseline.csv current.csv [threshold%]" );
+            System.exit( 2 );
+        }
+        double threshold = args.length > 2 ? Double.parseDouble( args[2] ) : DEFAULT_THRESHOLD;
+        Map<String, Result> baseline = read( args[0] );
+        Map<String, Result> current = read( args[1] );
+
+        int regressions = 0;
+        for ( Map.Entry<String, Result> e : current.entrySet() ) {
+            Result cur = e.getValue();
+            Result base = baseline.get( e.getKey() );
+            if ( base == null ) {
+                System.out.printf( Locale.US, "%-90s %12.3f %s  (new)%n", e.getKey(), cur.score, cur.unit );
+                continue;
+            }
+            double change = ( cur.score - base.score ) / base.score * 100.0;
+            // For throughput modes a higher score is better.
+            double worse = cur.isThroughput() ? -change : change;
+            boolean regressed = worse > threshold
+                                && Math.abs( cur.score - base.score ) > cur.error + base.error;
+            if ( regressed ) {
+                regressions++;
+            }
+            System.out.printf( Locale.US, "%-90s %12.3f -> %12.3f %s  %+7.1f%%%s%n", e.getKey(), base.score,
+                               cur.score, cur.unit, change, regressed ? "  REGRESSION" : "" );
+        }
+        System.out.println( regressions + " regression(s) above " + threshold + "%" );
+        System.exit( regressions > 0 ? 1 : 0 );
+    }
+
+    private static Map<String, Result> read( String file )
+            throws IOException {
+        CSVSymbols symbols = new CSVSymbols( Locale.US );
+        Map<String, Result> ret = new LinkedHashMap<String, Result>();
+        try ( Reader in = new FileReader( file, StandardCharsets.UTF_8 );
+              CSVReader reader = new CSVReader( in, symbols ) ) {
+            List<String> header = reader.readRecord();
+            if ( header == null ) {
+                return ret;
+            }
+            int benchmark = header.indexOf( "Benchmark" );
+            int mode = header.indexOf( "Mode" );
+            int score = header.indexOf( "Score" );
+            int error = header.indexOf( "Score Error (99.9%)" );
+            int unit = header.indexOf( "Unit" );
+            List<String> record;
+            while ( ( record = reader.readRecord() ) != null ) {
+                if ( record.size() < header.size() ) {
+                    continue;
+                }
+                StringBuilder key = new StringBuilder( record.get( benchmark ) );
+                List<String> params = new ArrayList<String>();
+                for ( int i = 0; i < header.size(); i++ ) {
+                    if ( header.get( i ).startsWith( "Param: " ) && !record.get( i ).isEmpty() ) {
+                        params.add( header.get( i ).substring( 7 ) + "=" + record.get( i ) );
+                    }
+                }
+                if ( !params.isEmpty() ) {
+                    key.append( params );
+                }
+                Result r = new Result();
+                r.mode = record.get( mode );
+                r.score = parse( record.get( score ) );
+                r.error = error < 0 ? 0 : parse( record.get( error ) );
+                r.unit = record.get( unit );
+                ret.put( key.toString(), r );
+            }
+        }
+        return ret;
+    }
+
+    private static double parse( String value ) {
+        if ( value.isEmpty() || value.equals( "NaN" ) ) {
+            return 0;
+        }
+        // JMH formats the numbers with the default locale.
+        return Double.parseDouble( value.replace( ',', '.' ) );
+    }
+
+    private static class Result {
+        String mode;
+        double score;
+        double error;
+        String unit;
+
+        boolean isThroughput() {
+            return mode.equals( "thrpt" );
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package org.cujau.utils.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.cujau.utils.MultiHashMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Fills a map with {@link #VALUES_PER_KEY} values per key, and looks up every key of a filled map.
+ * The score is the time for all the keys.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@State( Scope.Benchmark )
+public class MultiHashMapBenchmark {
+
+    private static final int VALUES_PER_KEY = 4;
+
+    @Param( { "16", "1024", "65536" } )
+    public int keys;
+
+    private String[] keyArray;
+    private MultiHashMap<String, Integer> filled;
+
+    @Setup
+    public void setup() {
+        keyArray = new String[keys];
+        for ( int i = 0; i < keys; i++ ) {
+            keyArray[i] = "key-" + i;
+        }
+        filled = fill();
+    }
+
+    private MultiHashMap<String, Integer> fill() {
+        MultiHashMap<String, Integer> map = new MultiHashMap<String, Integer>();
+        for ( int v = 0; v < VALUES_PER_KEY; v++ ) {
+            Integer value = v;
+            for ( String key : keyArray ) {
+                map.put( key, value );
+            }
+        }
+        return map;
+    }
+
+    @Benchmark
+    public MultiHashMap<String, Integer> put() {
+        return fill();
+    }
+
+    @Benchmark
+    public void get( Blackhole bh ) {
+        for ( String key : keyArray ) {
+            bh.consume( filled.get( key ) );
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package org.cujau.utils.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.cujau.utils.SimpleCryptoUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@State( Scope.Benchmark )
+public class SimpleCryptoUtilBenchmark {
+
+    private static final String KEY = "benchmark-key";
+
+    @Param( { "16", "1024", "65536" } )
+    public int size;
+
+    private String clearText;
+    private String encrypted;
+
+    @Setup
+    public void setup() {
+        StringBuilder sb = new StringBuilder( size );
+        for ( int i = 0; i < size; i++ ) {
+            sb.append( (char) ( 'a' + i % 26 ) );
+        }
+        clearText = sb.toString();
+        encrypted = SimpleCryptoUtil.encrypt( KEY, clearText );
+    }
+
+    @Benchmark
+    public String encrypt() {
+        return SimpleCryptoUtil.encrypt( KEY, clearText );
+    }
+
+    @Benchmark
+    public String decrypt() {
+        return SimpleCryptoUtil.decrypt( KEY, encrypted );
+    }
+}
@@ -0,0 +1,50 @@
+package org.cujau.utils.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.cujau.utils.StreamUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Copies an in-memory stream into a stream that discards the bytes.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@State( Scope.Benchmark )
+public class StreamUtilBenchmark {
+
+    @Param( { "4096", "1048576" } )
+    public int size;
+
+    private byte[] data;
+    private final OutputStream out = OutputStream.nullOutputStream();
+
+    @Setup
+    public void setup() {
+        data = new byte[size];
+        new Random( 42 ).nextBytes( data );
+    }
+
+    @Benchmark
+    public void streamCopy()
+            throws IOException {
+        StreamUtil.streamCopy( new ByteArrayInputStream( data ), out );
+    }
+}
@@ -0,0 +1,102 @@
+package org.cujau.utils.benchmarks;
+
+import java.text.NumberFormat;
+import java.text.ParseException;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.cujau.utils.converters.StringConverterHelper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Parses numbers formatted with the grouping and decimal separators of the locale. The locale is
+ * also made the default format locale, which {@link StringConverterHelper#intValueOf(String)} and
+ * {@link StringConverterHelper#doubleValueOf(String)} use.
+ * The score is the time per number.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@State( Scope.Benchmark )
+public class StringConverterHelperBenchmark {
+
+    private static final int COUNT = 256;
+
+    @Param( { "en-US", "de-CH", "fr-FR" } )
+    public String locale;
+
+    /**
+     * The magnitude of the numbers, in digits.
+     */
+    @Param( { "3", "9" } )
+    public int digits;
+
+    private Locale loc;
+    private Locale previousDefault;
+    private String[] decimals;
+    private String[] integers;
+
+    @Setup
+    public void setup() {
+        loc = Locale.forLanguageTag( locale );
+        previousDefault = Locale.getDefault( Locale.Category.FORMAT );
+        Locale.setDefault( Locale.Category.FORMAT, loc );
+        NumberFormat fmt = NumberFormat.getInstance( loc );
+        fmt.setMaximumFractionDigits( 2 );
+        Random random = new Random( 42 );
+        long max = (long) Math.pow( 10, digits );
+        decimals = new String[COUNT];
+        integers = new String[COUNT];
+        for ( int i = 0; i < COUNT; i++ ) {
+            long v = (long) ( random.nextDouble() * max );
+            decimals[i] = fmt.format( v + random.nextInt( 100 ) / 100.0 );
+            integers[i] = fmt.format( i % 2 == 0 ? v : -v );
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        Locale.setDefault( Locale.Category.FORMAT, previousDefault );
+    }
+
+    @Benchmark
+    @OperationsPerInvocation( COUNT )
+    public void bigDecimalValueOf( Blackhole bh )
+            throws ParseException {
+        for ( String s : decimals ) {
+            bh.consume( StringConverterHelper.bigDecimalValueOf( s, loc ) );
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation( COUNT )
+    public void doubleValueOf( Blackhole bh ) {
+        for ( String s : decimals ) {
+            bh.consume( StringConverterHelper.doubleValueOf( s ) );
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation( COUNT )
+    public void intValueOf( Blackhole bh ) {
+        for ( String s : integers ) {
+            bh.consume( StringConverterHelper.intValueOf( s ) );
+        }
+    }
+}
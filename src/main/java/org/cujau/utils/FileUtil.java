@@ -371,6 +371,28 @@ public class FileUtil {
         }
     }
 
+    /**
+     * Start a zip archive with a single entry in the given output stream. The data written to the
+     * returned stream becomes the contents of the entry. Closing the returned stream closes the entry
+     * and finishes the zip.
+     *
+     * @param zip
+     *         The output stream in which to write the zipped data.
+     * @param entryName
+     *         The name of the entry in the zip.
+     * @param level
+     *         The compression level, 0-9 or {@link java.util.zip.Deflater#DEFAULT_COMPRESSION}.
+     * @return The stream for the contents of the entry.
+     * @throws IOException
+     */
+    public static ZipOutputStream zipEntry( OutputStream zip, String entryName, int level )
+            throws IOException {
+        ZipOutputStream zos = new ZipOutputStream( zip );
+        zos.setLevel( level );
+        zos.putNextEntry( new ZipEntry( entryName ) );
+        return zos;
+    }
+
     private static void addDirectory( ZipOutputStream zos, String path, File dir, boolean verbose )
             throws IOException {
         for ( File f : dir.listFiles() ) {
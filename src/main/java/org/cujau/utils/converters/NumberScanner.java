@@ -0,0 +1,432 @@
+package org.cujau.utils.converters;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.text.ParseException;
+
+/**
+ * Single-pass parser of the numbers handled by {@link StringConverterHelper}.
+ * <p>
+ * The characters of the value are scanned once, skipping the junk (currency symbols, letters and
+ * the like) and accumulating the digits into a <tt>long</tt>, so that no intermediate String and no
+ * NumberFormat is created. Only values of more than 18 significant digits are scanned a second
+ * time, into a char buffer from which a BigDecimal is built.
+ * </p>
+ * <p>
+ * A scan method looks for a number and, when it finds one, the <tt>...Value()</tt> methods return
+ * it. A scanner holds the state of the last scan and must not be shared between threads; use
+ * {@link #get()} for the scanner of the current thread.
+ * </p>
+ */
+final class NumberScanner {
+
+    private static final ThreadLocal<NumberScanner> SCANNERS = ThreadLocal.withInitial( NumberScanner::new );
+
+    private static final int PREFIX = 0;
+    private static final int LOCALIZED = 1;
+    private static final int SIMPLE = 2;
+
+    private static final int MAX_LONG_DIGITS = 18;
+    private static final int MAX_EXPONENT = 100000;
+    private static final int INITIAL_BUFFER = 32;
+    private static final int MAX_KEPT_BUFFER = 256;
+    private static final long MAX_EXACT_DOUBLE = 1L << 53;
+    private static final long MAX_EXACT_FLOAT = 1L << 24;
+    private static final double[] DOUBLE_POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17,
+            1e18, 1e19, 1e20, 1e21, 1e22 };
+    private static final float[] FLOAT_POWERS_OF_TEN = { 1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f,
+            1e9f, 1e10f };
+
+    // The last scan.
+    private CharSequence source;
+    private NumberSymbols symbols;
+    private int mode;
+    // The number it found.
+    private boolean negative;
+    private long unscaled;
+    private int scale;
+    private int exponent;
+    private int digits;
+    private int significant;
+    private boolean overflow;
+    // NaN or an infinity, when special is set.
+    private boolean special;
+    private double specialValue;
+    // The digits of the second scan of a value that does not fit in a long.
+    private char[] buffer = new char[INITIAL_BUFFER];
+    private boolean collecting;
+    private int length;
+
+    /**
+     * @return The scanner of the current thread.
+     */
+    static NumberScanner get() {
+        return SCANNERS.get();
+    }
+
+    /**
+     * Look for a number at the start of the given value, as {@link java.text.NumberFormat#parse}
+     * does: an optional minus sign, digits with grouping separators before the decimal separator and
+     * an optional exponent, or the NaN or infinity symbol of the locale. The number ends at the
+     * first character that does not fit.
+     *
+     * @return <tt>true</tt> if a number was found.
+     */
+    boolean scanPrefix( CharSequence s, NumberSymbols sym ) {
+        start( s, sym, PREFIX );
+        int n = s.length();
+        int i = 0;
+        if ( n > 0 && sym.isMinus( s.charAt( 0 ) ) ) {
+            negative = true;
+            i++;
+        }
+        if ( !negative && sym.isNaN( s, i ) ) {
+            return special( Double.NaN );
+        }
+        if ( sym.isInfinity( s, i ) ) {
+            return special( negative ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY );
+        }
+        boolean fraction = false;
+        for ( ; i < n; i++ ) {
+            char c = s.charAt( i );
+            if ( c >= '0' && c <= '9' ) {
+                digit( c - '0', fraction );
+            } else if ( sym.isDecimal( c ) && !fraction ) {
+                fraction = true;
+            } else if ( !sym.isGrouping( c ) || fraction ) {
+                if ( digits > 0 ) {
+                    scanExponent( s, i, sym );
+                }
+                break;
+            }
+        }
+        return digits > 0;
+    }
+
+    private void scanExponent( CharSequence s, int i, NumberSymbols sym ) {
+        int j = sym.skipExponentSeparator( s, i );
+        if ( j == i ) {
+            return;
+        }
+        int n = s.length();
+        boolean expNegative = j < n && sym.isMinus( s.charAt( j ) );
+        if ( expNegative ) {
+            j++;
+        }
+        int exp = 0;
+        int expDigits = 0;
+        for ( ; j < n && s.charAt( j ) >= '0' && s.charAt( j ) <= '9'; j++ ) {
+            exp = Math.min( exp * 10 + ( s.charAt( j ) - '0' ), MAX_EXPONENT );
+            expDigits++;
+        }
+        if ( expDigits > 0 ) {
+            exponent = expNegative ? -exp : exp;
+        }
+    }
+
+    /**
+     * Look for the first number in the given value, as {@link java.text.DecimalFormat} would after
+     * the junk has been removed.
+     * <p>
+     * Every character other than a digit, a minus sign, a separator of the locale, <tt>.</tt>,
+     * <tt>,</tt> or <tt>'</tt> is skipped. A minus sign before the first digit makes the number
+     * negative, grouping separators are accepted before the decimal separator, and the number ends
+     * at the first of the kept characters that does not fit, so <tt>"1-23.45"</tt> is 1.
+     * </p>
+     *
+     * @return <tt>true</tt> if a number was found.
+     */
+    boolean scanLocalized( CharSequence s, NumberSymbols sym ) {
+        start( s, sym, LOCALIZED );
+        boolean started = false;
+        boolean fraction = false;
+        int n = s.length();
+        for ( int i = 0; i < n; i++ ) {
+            char c = s.charAt( i );
+            if ( c >= '0' && c <= '9' ) {
+                digit( c - '0', fraction );
+            } else if ( sym.isDecimal( c ) ) {
+                if ( fraction ) {
+                    break;
+                }
+                fraction = true;
+            } else if ( sym.isGrouping( c ) ) {
+                if ( fraction ) {
+                    break;
+                }
+                // A space before the number, as in "CHF -12", must not prevent the minus sign.
+                continue;
+            } else if ( sym.isMinus( c ) ) {
+                if ( started ) {
+                    break;
+                }
+                negative = true;
+            } else if ( c == '.' || c == ',' || c == '\'' ) {
+                break;
+            } else {
+                continue;
+            }
+            started = true;
+        }
+        return digits > 0;
+    }
+
+    /**
+     * Check the given value after removing every character other than digits, <tt>.</tt>,
+     * <tt>-</tt>, <tt>,</tt> and <tt>'</tt>, with the rules of {@link Double#parseDouble(String)}.
+     * Any <tt>,</tt> or <tt>'</tt> left thus makes the value invalid.
+     *
+     * @return <tt>true</tt> if the value is a valid number once the junk is removed.
+     */
+    boolean scanSimple( CharSequence s ) {
+        start( s, null, SIMPLE );
+        boolean started = false;
+        boolean fraction = false;
+        int n = s.length();
+        for ( int i = 0; i < n; i++ ) {
+            char c = s.charAt( i );
+            if ( c >= '0' && c <= '9' ) {
+                digit( c - '0', fraction );
+            } else if ( c == '.' ) {
+                if ( fraction ) {
+                    return false;
+                }
+                fraction = true;
+            } else if ( c == '-' ) {
+                if ( started ) {
+                    return false;
+                }
+                negative = true;
+            } else if ( c == ',' || c == '\'' ) {
+                return false;
+            } else {
+                continue;
+            }
+            started = true;
+        }
+        return digits > 0;
+    }
+
+    /**
+     * @return The number found by the last scan.
+     * @throws NumberFormatException
+     *         if it is NaN or an infinity.
+     */
+    BigDecimal bigDecimalValue() {
+        if ( special ) {
+            throw new NumberFormatException( "Not a finite number: \"" + source + "\"" );
+        }
+        if ( overflow ) {
+            return rescan();
+        }
+        return BigDecimal.valueOf( negative ? -unscaled : unscaled, scale - exponent );
+    }
+
+    /**
+     * @return The number found by the last scan, correctly rounded.
+     */
+    double doubleValue() {
+        if ( special ) {
+            return specialValue;
+        }
+        if ( !overflow && unscaled == 0 ) {
+            return negative ? -0.0 : 0.0;
+        }
+        int e = exponent - scale;
+        if ( !overflow && unscaled <= MAX_EXACT_DOUBLE && e >= -22 && e <= 22 ) {
+            // Both operands are exact doubles, so the result is correctly rounded.
+            double v = e < 0 ? unscaled / DOUBLE_POWERS_OF_TEN[-e] : unscaled * DOUBLE_POWERS_OF_TEN[e];
+            return negative ? -v : v;
+        }
+        return bigDecimalValue().doubleValue();
+    }
+
+    /**
+     * @return The number found by the last scan, correctly rounded.
+     */
+    float floatValue() {
+        if ( special ) {
+            return (float) specialValue;
+        }
+        if ( !overflow && unscaled == 0 ) {
+            return negative ? -0.0f : 0.0f;
+        }
+        int e = exponent - scale;
+        if ( !overflow && unscaled <= MAX_EXACT_FLOAT && e >= -10 && e <= 10 ) {
+            float v = e < 0 ? unscaled / FLOAT_POWERS_OF_TEN[-e] : unscaled * FLOAT_POWERS_OF_TEN[e];
+            return negative ? -v : v;
+        }
+        return bigDecimalValue().floatValue();
+    }
+
+    /**
+     * @return The number found by the last scan, narrowed to an int like {@link Number#intValue()}
+     *         narrows the Long or Double returned by {@link java.text.NumberFormat#parse}.
+     */
+    int intValue() {
+        if ( special ) {
+            return (int) specialValue;
+        }
+        if ( !overflow && scale == 0 && exponent == 0 ) {
+            return (int) ( negative ? -unscaled : unscaled );
+        }
+        BigDecimal v = bigDecimalValue();
+        if ( v.signum() == 0 ) {
+            return 0;
+        }
+        if ( v.precision() - v.scale() <= 19 && v.stripTrailingZeros().scale() <= 0 ) {
+            BigInteger i = v.toBigIntegerExact();
+            if ( i.bitLength() < Long.SIZE ) {
+                return i.intValue();
+            }
+        }
+        return (int) v.doubleValue();
+    }
+
+    /**
+     * @see #scanLocalized(CharSequence, NumberSymbols)
+     * @throws ParseException
+     *         if the value has no digits.
+     */
+    BigDecimal parseBigDecimal( CharSequence s, NumberSymbols sym )
+            throws ParseException {
+        if ( !scanLocalized( s, sym ) ) {
+            throw new ParseException( "Unparseable number: \"" + s + "\"", 0 );
+        }
+        return bigDecimalValue();
+    }
+
+    /**
+     * @see #scanSimple(CharSequence)
+     */
+    double parseSimpleDouble( CharSequence s )
+            throws NumberFormatException {
+        if ( !scanSimple( s ) ) {
+            throw forInput( s );
+        }
+        return doubleValue();
+    }
+
+    /**
+     * @see #scanSimple(CharSequence)
+     */
+    float parseSimpleFloat( CharSequence s )
+            throws NumberFormatException {
+        if ( !scanSimple( s ) ) {
+            throw forInput( s );
+        }
+        return floatValue();
+    }
+
+    /**
+     * Check the given value after removing every character other than digits and <tt>-</tt>, with
+     * the rules of {@link Integer#parseInt(String)}.
+     *
+     * @return <tt>true</tt> if the value is a valid int once the junk is removed.
+     */
+    boolean scanSimpleInt( CharSequence s ) {
+        start( s, null, SIMPLE );
+        boolean started = false;
+        int n = s.length();
+        for ( int i = 0; i < n; i++ ) {
+            char c = s.charAt( i );
+            if ( c >= '0' && c <= '9' ) {
+                digit( c - '0', false );
+                if ( unscaled > -(long) Integer.MIN_VALUE ) {
+                    return false;
+                }
+            } else if ( c == '-' ) {
+                if ( started ) {
+                    return false;
+                }
+                negative = true;
+            } else {
+                continue;
+            }
+            started = true;
+        }
+        return digits > 0 && ( negative || unscaled <= Integer.MAX_VALUE );
+    }
+
+    /**
+     * @see #scanSimpleInt(CharSequence)
+     */
+    int parseSimpleInt( CharSequence s )
+            throws NumberFormatException {
+        if ( !scanSimpleInt( s ) ) {
+            throw forInput( s );
+        }
+        return intValue();
+    }
+
+    private void start( CharSequence s, NumberSymbols sym, int mode ) {
+        source = s;
+        symbols = sym;
+        this.mode = mode;
+        negative = false;
+        unscaled = 0;
+        scale = 0;
+        exponent = 0;
+        digits = 0;
+        significant = 0;
+        overflow = false;
+        special = false;
+    }
+
+    private boolean special( double value ) {
+        special = true;
+        specialValue = value;
+        return true;
+    }
+
+    private void digit( int d, boolean fraction ) {
+        digits++;
+        if ( fraction ) {
+            scale++;
+        }
+        if ( collecting ) {
+            buffer[length++] = (char) ( '0' + d );
+        }
+        if ( significant == 0 && d == 0 ) {
+            return;
+        }
+        if ( ++significant > MAX_LONG_DIGITS ) {
+            overflow = true;
+        } else {
+            unscaled = unscaled * 10 + d;
+        }
+    }
+
+    /**
+     * Scan the last value again, collecting all its digits into the buffer.
+     */
+    private BigDecimal rescan() {
+        CharSequence s = source;
+        if ( buffer.length < s.length() ) {
+            buffer = new char[s.length()];
+        }
+        collecting = true;
+        length = 0;
+        try {
+            if ( mode == PREFIX ) {
+                scanPrefix( s, symbols );
+            } else if ( mode == LOCALIZED ) {
+                scanLocalized( s, symbols );
+            } else {
+                scanSimple( s );
+            }
+        } finally {
+            collecting = false;
+        }
+        BigDecimal v = new BigDecimal( buffer, 0, length ).movePointLeft( scale - exponent );
+        if ( buffer.length > MAX_KEPT_BUFFER ) {
+            buffer = new char[INITIAL_BUFFER];
+        }
+        return negative ? v.negate() : v;
+    }
+
+    private static NumberFormatException forInput( CharSequence s ) {
+        return new NumberFormatException( "For input string: \"" + s + "\"" );
+    }
+}
@@ -0,0 +1,123 @@
+package org.cujau.utils.converters;
+
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The symbols of a locale that matter when parsing a number: the decimal separator, the grouping
+ * separator, the minus sign, the exponent separator and the NaN and infinity symbols.
+ * <p>
+ * When the grouping separator is a space, all kinds of spaces are accepted as grouping separators,
+ * and when it is an apostrophe, both <tt>'</tt> and <tt>&#x2019;</tt> are accepted, because the
+ * formatted numbers of fr_FR and de_CH differ between JDK versions and between applications.
+ * The ASCII <tt>-</tt> is always accepted as a minus sign.
+ * </p>
+ * <p>
+ * Instances are immutable and cached per locale, so getting the symbols of a locale does not create
+ * a DecimalFormatSymbols after the first time. The rule for the grouping separator is also available
+ * as {@link #isGroupingSeparator(char, char)}, for parsers that only know the separator char.
+ * </p>
+ */
+public final class NumberSymbols {
+
+    private static final ConcurrentMap<Locale, NumberSymbols> CACHE = new ConcurrentHashMap<>();
+
+    private final char decimal;
+    private final char grouping;
+    private final char minus;
+    private final String exponentSeparator;
+    private final String nan;
+    private final String infinity;
+
+    NumberSymbols( char decimal, char grouping, char minus, String exponentSeparator, String nan,
+                   String infinity ) {
+        this.decimal = decimal;
+        this.grouping = grouping;
+        this.minus = minus;
+        this.exponentSeparator = exponentSeparator;
+        this.nan = nan;
+        this.infinity = infinity;
+    }
+
+    static NumberSymbols of( Locale loc ) {
+        NumberSymbols sym = CACHE.get( loc );
+        if ( sym == null ) {
+            DecimalFormatSymbols dfs = DecimalFormatSymbols.getInstance( loc );
+            sym = new NumberSymbols( dfs.getDecimalSeparator(), dfs.getGroupingSeparator(), dfs.getMinusSign(),
+                                     dfs.getExponentSeparator(), dfs.getNaN(), dfs.getInfinity() );
+            NumberSymbols prev = CACHE.putIfAbsent( loc, sym );
+            if ( prev != null ) {
+                sym = prev;
+            }
+        }
+        return sym;
+    }
+
+    /**
+     * @return The symbols of the default locale for formatting, which NumberFormat uses.
+     */
+    static NumberSymbols ofDefault() {
+        return of( Locale.getDefault( Locale.Category.FORMAT ) );
+    }
+
+    boolean isDecimal( char c ) {
+        return c == decimal;
+    }
+
+    boolean isGrouping( char c ) {
+        return isGroupingSeparator( c, grouping );
+    }
+
+    /**
+     * @return <tt>true</tt> if the given char stands for the given grouping separator: the separator
+     *         itself, any kind of space if it is a space, and <tt>'</tt> or <tt>&#x2019;</tt> if it
+     *         is an apostrophe.
+     */
+    public static boolean isGroupingSeparator( char c, char grouping ) {
+        if ( c == grouping ) {
+            return true;
+        }
+        if ( Character.isSpaceChar( grouping ) ) {
+            return c == ' ' || c == '\u00a0' || c == '\u202f';
+        }
+        if ( grouping == '\'' || grouping == '\u2019' ) {
+            return c == '\'' || c == '\u2019';
+        }
+        return false;
+    }
+
+    boolean isMinus( char c ) {
+        return c == '-' || c == minus;
+    }
+
+    boolean isNaN( CharSequence s, int i ) {
+        return startsWith( s, i, nan );
+    }
+
+    boolean isInfinity( CharSequence s, int i ) {
+        return startsWith( s, i, infinity );
+    }
+
+    /**
+     * @return The index after the exponent separator at index <tt>i</tt>, or <tt>i</tt> if there
+     *         is none.
+     */
+    int skipExponentSeparator( CharSequence s, int i ) {
+        return startsWith( s, i, exponentSeparator ) ? i + exponentSeparator.length() : i;
+    }
+
+    private static boolean startsWith( CharSequence s, int i, String prefix ) {
+        int n = prefix.length();
+        if ( n == 0 || i + n > s.length() ) {
+            return false;
+        }
+        for ( int j = 0; j < n; j++ ) {
+            if ( s.charAt( i + j ) != prefix.charAt( j ) ) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,61 @@
+package org.cujau.utils.converters;
+
+import java.math.BigDecimal;
+
+/**
+ * Holds the result of the <tt>try...ValueOf</tt> methods of {@link StringConverterHelper}.
+ * <p>
+ * Those methods return whether the value could be converted instead of throwing an exception, and
+ * store the result here. A holder can be reused for any number of conversions, so that converting a
+ * whole column of values allocates nothing, but it must not be shared between threads. Only the
+ * getter of the type of the last successful conversion is meaningful.
+ * </p>
+ */
+public final class ParsedValue {
+
+    private int intValue;
+    private float floatValue;
+    private double doubleValue;
+    private boolean booleanValue;
+    private BigDecimal bigDecimalValue;
+
+    public int getInt() {
+        return intValue;
+    }
+
+    public float getFloat() {
+        return floatValue;
+    }
+
+    public double getDouble() {
+        return doubleValue;
+    }
+
+    public boolean getBoolean() {
+        return booleanValue;
+    }
+
+    public BigDecimal getBigDecimal() {
+        return bigDecimalValue;
+    }
+
+    void setInt( int value ) {
+        intValue = value;
+    }
+
+    void setFloat( float value ) {
+        floatValue = value;
+    }
+
+    void setDouble( double value ) {
+        doubleValue = value;
+    }
+
+    void setBoolean( boolean value ) {
+        booleanValue = value;
+    }
+
+    void setBigDecimal( BigDecimal value ) {
+        bigDecimalValue = value;
+    }
+}
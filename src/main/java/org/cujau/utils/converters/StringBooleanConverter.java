@@ -7,6 +7,19 @@ public class StringBooleanConverter implements StringConverter<Boolean> {
         return StringConverterHelper.booleanValueOf( val );
     }
 
+    /**
+     * @return The default value unless the value is one of those accepted by
+     *         {@link StringConverterHelper#tryBooleanValueOf(String, ParsedValue)}.
+     */
+    @Override
+    public Boolean convert( String val, Boolean defaultValue ) {
+        ParsedValue result = new ParsedValue();
+        if ( StringConverterHelper.tryBooleanValueOf( val, result ) ) {
+            return result.getBoolean();
+        }
+        return defaultValue;
+    }
+
     @Override
     public String convert( Object val )
             throws IllegalArgumentException {
@@ -5,6 +5,19 @@ public interface StringConverter<E> {
     E convert( String val )
             throws IllegalArgumentException;
 
+    /**
+     * Convert the given value without throwing an exception when it is invalid.
+     *
+     * @return The converted value, or <tt>defaultValue</tt> if the value cannot be converted.
+     */
+    default E convert( String val, E defaultValue ) {
+        try {
+            return convert( val );
+        } catch ( IllegalArgumentException e ) {
+            return defaultValue;
+        }
+    }
+
     String convert( Object val )
             throws IllegalArgumentException;
 
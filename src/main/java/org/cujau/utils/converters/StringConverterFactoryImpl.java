@@ -26,6 +26,23 @@ public class StringConverterFactoryImpl implements StringConverterFactory {
         return map.get( klass );
     }
     
+    /**
+     * Convert the given value with the converter of the given class, without throwing an exception
+     * when the value is invalid.
+     *
+     * @return The converted value, or <tt>defaultValue</tt> if the value cannot be converted.
+     * @throws IllegalArgumentException
+     *         if there is no converter for the given class.
+     */
+    @SuppressWarnings( "unchecked" )
+    public <E> E convert( String val, Class<E> klass, E defaultValue ) {
+        StringConverter<E> cvtr = (StringConverter<E>) map.get( klass );
+        if ( cvtr == null ) {
+            throw new IllegalArgumentException( "No converter for " + klass.getName() );
+        }
+        return cvtr.convert( val, defaultValue );
+    }
+
     @Override
     public String toString( Object val ) {
         StringConverter<?> cvtr = null;
@@ -1,44 +1,25 @@
 package org.cujau.utils.converters;
 
 import java.math.BigDecimal;
-import java.text.DecimalFormat;
-import java.text.NumberFormat;
 import java.text.ParseException;
 import java.util.Locale;
-import java.util.regex.Pattern;
 
 /**
  * Helper methods for converting Strings to integers or floats.
+ * <p>
+ * The numbers are parsed with the symbols of the locale, which are cached, by a parser of the
+ * current thread, so no NumberFormat, regular expression or intermediate String is created per
+ * call.
+ * </p>
+ * <p>
+ * Every conversion has a <tt>try...ValueOf</tt> variant that returns <tt>false</tt> instead of
+ * throwing an exception when the value cannot be converted, and stores the result in a reusable
+ * {@link ParsedValue}. Use them when invalid values are common, to avoid the cost of the
+ * exceptions.
+ * </p>
  */
 public class StringConverterHelper {
 
-    private final static Pattern NUM_STRIPPER_FLOAT_RE = Pattern.compile( "[^0-9\\.\\-\\'\\,]" );
-    private final static Pattern NUM_STRIPPER_ALL_FLOAT_RE = Pattern.compile( "[^0-9\\.\\-\\'\\,]" );
-    private final static Pattern NUM_STRIPPER_INT_RE = Pattern.compile( "[^0-9\\-\\'\\,]" );
-    private final static Pattern NUM_STRIPPER_ALL_INT_RE = Pattern.compile( "[^0-9\\-]" );
-
-    private static String stripNonIntlFloatJunk( String str ) {
-        return NUM_STRIPPER_FLOAT_RE.matcher( str ).replaceAll( "" );
-    }
-
-    private static String stripNonIntlIntJunk( String str ) {
-        return NUM_STRIPPER_INT_RE.matcher( str ).replaceAll( "" );
-    }
-
-    private static BigDecimal simpleBigDecimalValueOf(String str, Locale loc)
-            throws ParseException {
-        str = NUM_STRIPPER_ALL_FLOAT_RE.matcher( str ).replaceAll( "" );
-        BigDecimal ret;
-        try {
-            DecimalFormat fmt = (DecimalFormat) NumberFormat.getInstance( loc );
-            fmt.setParseBigDecimal( true );
-            ret = (BigDecimal) fmt.parse( str );
-        } catch ( ParseException e ) {
-            throw e;
-        }
-        return ret;
-    }
-
     public static BigDecimal bigDecimalValueOf( String str )
             throws ParseException {
         return bigDecimalValueOf( str, Locale.getDefault( Locale.Category.FORMAT ) );
@@ -46,101 +27,164 @@ public class StringConverterHelper {
 
     public static BigDecimal bigDecimalValueOf( String str, Locale loc )
             throws ParseException {
-        // Always use the simple version, which removes non-number characters before parsing.
-        // This may be slightly slower than the parse-if-error-strip-parse way that was used 
-        // before, but it can handle a broader range of number formats (notably fr_FR with the
-        // space grouping separator).
-        return simpleBigDecimalValueOf( str, loc );
+        // Non-number characters are skipped while parsing, which handles a broader range of number
+        // formats than the parse-if-error-strip-parse way that was used before (notably fr_FR with
+        // the space grouping separator).
+        return NumberScanner.get().parseBigDecimal( str, NumberSymbols.of( loc ) );
+    }
+
+    public static boolean tryBigDecimalValueOf( String str, ParsedValue result ) {
+        return tryBigDecimalValueOf( str, Locale.getDefault( Locale.Category.FORMAT ), result );
+    }
+
+    /**
+     * @return <tt>false</tt> if {@link #bigDecimalValueOf(String, Locale)} would throw.
+     */
+    public static boolean tryBigDecimalValueOf( String str, Locale loc, ParsedValue result ) {
+        NumberScanner scanner = NumberScanner.get();
+        if ( str == null || !scanner.scanLocalized( str, NumberSymbols.of( loc ) ) ) {
+            return false;
+        }
+        result.setBigDecimal( scanner.bigDecimalValue() );
+        return true;
     }
 
     public static float simpleFloatValueOf( String str )
             throws NumberFormatException {
-        str = NUM_STRIPPER_ALL_FLOAT_RE.matcher( str ).replaceAll( "" );
-        float ret;
-        try {
-            ret = Float.parseFloat(str);
-        } catch ( NumberFormatException e ) {
-            throw e;
+        return NumberScanner.get().parseSimpleFloat( str );
+    }
+
+    public static boolean trySimpleFloatValueOf( String str, ParsedValue result ) {
+        NumberScanner scanner = NumberScanner.get();
+        if ( str == null || !scanner.scanSimple( str ) ) {
+            return false;
         }
-        return ret;
+        result.setFloat( scanner.floatValue() );
+        return true;
     }
 
     public static float floatValueOf( String str ) {
-        NumberFormat nf = NumberFormat.getInstance();
-        Number nbr;
-        try {
-            nbr = nf.parse( str );
-            return nbr.floatValue();
-        } catch ( ParseException e1 ) {
-            try {
-                nbr = nf.parse( stripNonIntlFloatJunk( str ) );
-                return nbr.floatValue();
-            } catch ( ParseException e2 ) {
-                return simpleFloatValueOf( str );
-            }
+        NumberScanner scanner = NumberScanner.get();
+        if ( scanNumber( scanner, str ) ) {
+            return scanner.floatValue();
         }
+        return scanner.parseSimpleFloat( str );
+    }
+
+    /**
+     * @return <tt>false</tt> if {@link #floatValueOf(String)} would throw.
+     */
+    public static boolean tryFloatValueOf( String str, ParsedValue result ) {
+        NumberScanner scanner = NumberScanner.get();
+        if ( str == null || !( scanNumber( scanner, str ) || scanner.scanSimple( str ) ) ) {
+            return false;
+        }
+        result.setFloat( scanner.floatValue() );
+        return true;
     }
 
     public static double simpleDoubleValueOf( String str )
             throws NumberFormatException {
-        str = NUM_STRIPPER_ALL_FLOAT_RE.matcher( str ).replaceAll( "" );
-        double ret;
-        try {
-            ret = Double.parseDouble(str);
-        } catch ( NumberFormatException e ) {
-            throw e;
+        return NumberScanner.get().parseSimpleDouble( str );
+    }
+
+    public static boolean trySimpleDoubleValueOf( String str, ParsedValue result ) {
+        NumberScanner scanner = NumberScanner.get();
+        if ( str == null || !scanner.scanSimple( str ) ) {
+            return false;
         }
-        return ret;
+        result.setDouble( scanner.doubleValue() );
+        return true;
     }
 
     public static double doubleValueOf( String str ) {
-        NumberFormat nf = NumberFormat.getInstance();
-        Number nbr;
-        try {
-            nbr = nf.parse( str );
-            return nbr.doubleValue();
-        } catch ( ParseException e1 ) {
-            try {
-                nbr = nf.parse( stripNonIntlFloatJunk( str ) );
-                return nbr.doubleValue();
-            } catch ( ParseException e2 ) {
-                return simpleDoubleValueOf( str );
-            }
+        NumberScanner scanner = NumberScanner.get();
+        if ( scanNumber( scanner, str ) ) {
+            return scanner.doubleValue();
         }
+        return scanner.parseSimpleDouble( str );
+    }
+
+    /**
+     * @return <tt>false</tt> if {@link #doubleValueOf(String)} would throw.
+     */
+    public static boolean tryDoubleValueOf( String str, ParsedValue result ) {
+        NumberScanner scanner = NumberScanner.get();
+        if ( str == null || !( scanNumber( scanner, str ) || scanner.scanSimple( str ) ) ) {
+            return false;
+        }
+        result.setDouble( scanner.doubleValue() );
+        return true;
     }
 
     public static int simpleIntValueOf( String str )
             throws NumberFormatException {
-        str = NUM_STRIPPER_ALL_INT_RE.matcher( str ).replaceAll( "" );
-        int ret;
-        try {
-            ret = Integer.parseInt(str);
-        } catch ( NumberFormatException e ) {
-            throw e;
+        return NumberScanner.get().parseSimpleInt( str );
+    }
+
+    public static boolean trySimpleIntValueOf( String str, ParsedValue result ) {
+        NumberScanner scanner = NumberScanner.get();
+        if ( str == null || !scanner.scanSimpleInt( str ) ) {
+            return false;
         }
-        return ret;
+        result.setInt( scanner.intValue() );
+        return true;
     }
 
     public static int intValueOf( String str ) {
-        NumberFormat nf = NumberFormat.getInstance();
-        Number nbr;
-        try {
-            nbr = nf.parse( str );
-            return nbr.intValue();
-        } catch ( ParseException e ) {
-            try {
-                nbr = nf.parse( stripNonIntlIntJunk( str ) );
-                return nbr.intValue();
-            } catch ( ParseException e2 ) {
-                return simpleIntValueOf( str );
-            }
+        NumberScanner scanner = NumberScanner.get();
+        if ( scanNumber( scanner, str ) ) {
+            return scanner.intValue();
         }
+        return scanner.parseSimpleInt( str );
+    }
+
+    /**
+     * @return <tt>false</tt> if {@link #intValueOf(String)} would throw.
+     */
+    public static boolean tryIntValueOf( String str, ParsedValue result ) {
+        NumberScanner scanner = NumberScanner.get();
+        if ( str == null || !( scanNumber( scanner, str ) || scanner.scanSimpleInt( str ) ) ) {
+            return false;
+        }
+        result.setInt( scanner.intValue() );
+        return true;
+    }
+
+    /**
+     * Look for a number with the symbols of the default locale, first at the start of the value as
+     * NumberFormat would, then anywhere in the value, skipping the junk around it.
+     */
+    private static boolean scanNumber( NumberScanner scanner, String str ) {
+        NumberSymbols sym = NumberSymbols.ofDefault();
+        return scanner.scanPrefix( str, sym ) || scanner.scanLocalized( str, sym );
     }
 
     public static boolean booleanValueOf( String str ) {
-        if ( str != null && ( str.equals( "1" ) || str.toLowerCase().equals( "yes" ) ) ) {
+        if ( str != null && ( str.equals( "1" ) || str.equalsIgnoreCase( "yes" ) ) ) {
             return true;
         }
         return Boolean.parseBoolean(str);
     }
+
+    /**
+     * Unlike {@link #booleanValueOf(String)}, which considers anything it does not recognize as
+     * <tt>false</tt>, only accept <tt>true</tt>, <tt>yes</tt> and <tt>1</tt> as true and
+     * <tt>false</tt>, <tt>no</tt> and <tt>0</tt> as false, ignoring case.
+     *
+     * @return <tt>false</tt> if the value is not one of those.
+     */
+    public static boolean tryBooleanValueOf( String str, ParsedValue result ) {
+        if ( str == null ) {
+            return false;
+        }
+        if ( str.equals( "1" ) || str.equalsIgnoreCase( "yes" ) || str.equalsIgnoreCase( "true" ) ) {
+            result.setBoolean( true );
+        } else if ( str.equals( "0" ) || str.equalsIgnoreCase( "no" ) || str.equalsIgnoreCase( "false" ) ) {
+            result.setBoolean( false );
+        } else {
+            return false;
+        }
+        return true;
+    }
 }
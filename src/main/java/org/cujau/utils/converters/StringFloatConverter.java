@@ -10,7 +10,20 @@ public class StringFloatConverter implements StringConverter<Float> {
     
     @Override
     public Float convert( String val ) {
-        return StringConverterHelper.floatValueOf( val );
+        ParsedValue result = new ParsedValue();
+        if ( !StringConverterHelper.tryFloatValueOf( val, result ) ) {
+            throw new NumberFormatException( "For input string: \"" + val + "\"" );
+        }
+        return result.getFloat();
+    }
+
+    @Override
+    public Float convert( String val, Float defaultValue ) {
+        ParsedValue result = new ParsedValue();
+        if ( StringConverterHelper.tryFloatValueOf( val, result ) ) {
+            return result.getFloat();
+        }
+        return defaultValue;
     }
 
     @Override
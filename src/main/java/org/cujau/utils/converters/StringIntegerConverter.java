@@ -10,7 +10,20 @@ public class StringIntegerConverter implements StringConverter<Integer> {
     
     @Override
     public Integer convert( String val ) {
-        return StringConverterHelper.intValueOf( val );
+        ParsedValue result = new ParsedValue();
+        if ( !StringConverterHelper.tryIntValueOf( val, result ) ) {
+            throw new NumberFormatException( "For input string: \"" + val + "\"" );
+        }
+        return result.getInt();
+    }
+
+    @Override
+    public Integer convert( String val, Integer defaultValue ) {
+        ParsedValue result = new ParsedValue();
+        if ( StringConverterHelper.tryIntValueOf( val, result ) ) {
+            return result.getInt();
+        }
+        return defaultValue;
     }
 
     @Override
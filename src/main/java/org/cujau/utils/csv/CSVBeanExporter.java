@@ -0,0 +1,316 @@
+package org.cujau.utils.csv;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.text.FieldPosition;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.cujau.utils.ReflectionException;
+
+/**
+ * Writes beans as CSV lines, one column per bean property.
+ * <p>
+ * For each bean class and column list, a plan of accessors is built once and cached. Each column is
+ * read through a getter (<tt>getX()</tt>, or <tt>isX()</tt> for booleans) or, if there is none, a
+ * public field named like the column. The bean class does not have to be public, as long as its
+ * package is open to this library (always the case on the class path). Primitive <tt>int</tt>, <tt>long</tt>, <tt>double</tt>,
+ * <tt>float</tt> and <tt>boolean</tt> columns are read without boxing and written directly into the
+ * {@link CSVWriter} buffer. {@link Date} columns are formatted with the date format of the
+ * {@link CSVSymbols} (or <tt>yyyy-MM-dd HH:mm:ss</tt> if none is set). All other columns are written
+ * with <tt>toString()</tt>, <tt>null</tt> values as empty fields.
+ * </p>
+ * <p>
+ * The plans are shared, but a CSVBeanExporter instance is not thread-safe. They are attached to the
+ * bean class with a {@link ClassValue}, so they do not keep the class loader of the bean alive.
+ * </p>
+ *
+ * @param <E>
+ *         The bean type.
+ */
+public class CSVBeanExporter<E> {
+
+    static final String DEFAULT_DATE_FORMAT = "yyyy-MM-dd HH:mm:ss";
+
+    private static final ClassValue<ConcurrentMap<List<String>, Column[]>> PLANS =
+            new ClassValue<ConcurrentMap<List<String>, Column[]>>() {
+                @Override
+                protected ConcurrentMap<List<String>, Column[]> computeValue( Class<?> type ) {
+                    return new ConcurrentHashMap<List<String>, Column[]>();
+                }
+            };
+
+    private final List<String> columns;
+    private final Column[] plan;
+    private SimpleDateFormat dateFormat;
+    private final StringBuffer dateBuf = new StringBuffer( 32 );
+    private final FieldPosition fieldPos = new FieldPosition( 0 );
+
+    public CSVBeanExporter( Class<E> beanClass, String... columns )
+            throws ReflectionException {
+        this( beanClass, Arrays.asList( columns ) );
+    }
+
+    public CSVBeanExporter( Class<E> beanClass, List<String> columns )
+            throws ReflectionException {
+        this.columns = Collections.unmodifiableList( new ArrayList<String>( columns ) );
+        this.plan = getPlan( beanClass, this.columns );
+    }
+
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    /**
+     * Write a line with the column names.
+     */
+    public void renderHeader( CSVWriter writer )
+            throws IOException {
+        for ( String column : columns ) {
+            writer.writeField( column );
+        }
+        writer.endLine();
+    }
+
+    /**
+     * Write one line with the columns of the given bean.
+     */
+    public void renderLine( CSVWriter writer, E bean )
+            throws IOException {
+        try {
+            for ( Column column : plan ) {
+                column.write( writer, bean, this );
+            }
+        } catch ( IOException | RuntimeException | Error e ) {
+            throw e;
+        } catch ( Throwable t ) {
+            throw new UndeclaredThrowableException( t );
+        }
+        writer.endLine();
+    }
+
+    /**
+     * Write one line per bean.
+     */
+    public void renderLines( CSVWriter writer, Iterable<? extends E> beans )
+            throws IOException {
+        for ( E bean : beans ) {
+            renderLine( writer, bean );
+        }
+    }
+
+    void writeDate( CSVWriter writer, Date date )
+            throws IOException {
+        String pattern = writer.getCSVSymbols().getDateFormat();
+        if ( pattern == null ) {
+            pattern = DEFAULT_DATE_FORMAT;
+        }
+        if ( dateFormat == null || !pattern.equals( dateFormat.toPattern() ) ) {
+            dateFormat = new SimpleDateFormat( pattern );
+        }
+        dateBuf.setLength( 0 );
+        dateFormat.format( date, dateBuf, fieldPos );
+        writer.writeField( dateBuf );
+    }
+
+    private static Column[] getPlan( Class<?> beanClass, List<String> columns )
+            throws ReflectionException {
+        ConcurrentMap<List<String>, Column[]> plans = PLANS.get( beanClass );
+        Column[] plan = plans.get( columns );
+        if ( plan == null ) {
+            plan = new Column[columns.size()];
+            for ( int i = 0; i < plan.length; i++ ) {
+                plan[i] = mkColumn( beanClass, columns.get( i ) );
+            }
+            plans.putIfAbsent( columns, plan );
+        }
+        return plan;
+    }
+
+    private static Column mkColumn( Class<?> beanClass, String property )
+            throws ReflectionException {
+        try {
+            return mkColumn( beanClass, property, MethodHandles.publicLookup() );
+        } catch ( IllegalAccessException e ) {
+            // A non-public bean class, or a getter inherited from one.
+        }
+        try {
+            return mkColumn( beanClass, property, MethodHandles.privateLookupIn( beanClass, MethodHandles.lookup() ) );
+        } catch ( IllegalAccessException | SecurityException e ) {
+            throw new ReflectionException( "Cannot access '" + property + "' in " + beanClass.getName()
+                                           + ": it is not public and its package is not open to "
+                                           + CSVBeanExporter.class.getName(), e );
+        }
+    }
+
+    private static Column mkColumn( Class<?> beanClass, String property, MethodHandles.Lookup lookup )
+            throws ReflectionException, IllegalAccessException {
+        MethodHandle getter;
+        Class<?> type;
+        try {
+            Method method = findGetter( beanClass, property );
+            if ( method != null ) {
+                getter = lookup.unreflect( method );
+                type = method.getReturnType();
+            } else {
+                Field field = beanClass.getField( property );
+                if ( Modifier.isStatic( field.getModifiers() ) ) {
+                    throw new NoSuchFieldException( property );
+                }
+                getter = lookup.unreflectGetter( field );
+                type = field.getType();
+            }
+        } catch ( NoSuchFieldException e ) {
+            throw new ReflectionException( "No getter or public field for '" + property + "' in "
+                                           + beanClass.getName(), e );
+        }
+
+        if ( type == int.class || type == short.class || type == byte.class ) {
+            return new IntColumn( getter.asType( MethodType.methodType( int.class, Object.class ) ) );
+        } else if ( type == long.class ) {
+            return new LongColumn( getter.asType( MethodType.methodType( long.class, Object.class ) ) );
+        } else if ( type == float.class ) {
+            return new FloatColumn( getter.asType( MethodType.methodType( float.class, Object.class ) ) );
+        } else if ( type == double.class ) {
+            return new DoubleColumn( getter.asType( MethodType.methodType( double.class, Object.class ) ) );
+        } else if ( type == boolean.class ) {
+            return new BooleanColumn( getter.asType( MethodType.methodType( boolean.class, Object.class ) ) );
+        } else if ( Date.class.isAssignableFrom( type ) ) {
+            return new DateColumn( getter.asType( MethodType.methodType( Date.class, Object.class ) ) );
+        }
+        return new ObjectColumn( getter.asType( MethodType.methodType( Object.class, Object.class ) ) );
+    }
+
+    private static Method findGetter( Class<?> beanClass, String property ) {
+        String suffix = Character.toUpperCase( property.charAt( 0 ) ) + property.substring( 1 );
+        for ( String prefix : new String[] { "get", "is" } ) {
+            try {
+                Method m = beanClass.getMethod( prefix + suffix );
+                if ( m.getReturnType() != void.class && !Modifier.isStatic( m.getModifiers() )
+                     && ( prefix.equals( "get" ) || m.getReturnType() == boolean.class ) ) {
+                    return m;
+                }
+            } catch ( NoSuchMethodException e ) {
+                // Try the next prefix.
+            }
+        }
+        return null;
+    }
+
+    private abstract static class Column {
+        final MethodHandle getter;
+
+        Column( MethodHandle getter ) {
+            this.getter = getter;
+        }
+
+        abstract void write( CSVWriter writer, Object bean, CSVBeanExporter<?> exporter )
+                throws Throwable;
+    }
+
+    private static class IntColumn extends Column {
+        IntColumn( MethodHandle getter ) {
+            super( getter );
+        }
+
+        @Override
+        void write( CSVWriter writer, Object bean, CSVBeanExporter<?> exporter )
+                throws Throwable {
+            writer.writeField( (int) getter.invokeExact( bean ) );
+        }
+    }
+
+    private static class LongColumn extends Column {
+        LongColumn( MethodHandle getter ) {
+            super( getter );
+        }
+
+        @Override
+        void write( CSVWriter writer, Object bean, CSVBeanExporter<?> exporter )
+                throws Throwable {
+            writer.writeField( (long) getter.invokeExact( bean ) );
+        }
+    }
+
+    private static class FloatColumn extends Column {
+        FloatColumn( MethodHandle getter ) {
+            super( getter );
+        }
+
+        @Override
+        void write( CSVWriter writer, Object bean, CSVBeanExporter<?> exporter )
+                throws Throwable {
+            writer.writeField( (float) getter.invokeExact( bean ) );
+        }
+    }
+
+    private static class DoubleColumn extends Column {
+        DoubleColumn( MethodHandle getter ) {
+            super( getter );
+        }
+
+        @Override
+        void write( CSVWriter writer, Object bean, CSVBeanExporter<?> exporter )
+                throws Throwable {
+            writer.writeField( (double) getter.invokeExact( bean ) );
+        }
+    }
+
+    private static class BooleanColumn extends Column {
+        BooleanColumn( MethodHandle getter ) {
+            super( getter );
+        }
+
+        @Override
+        void write( CSVWriter writer, Object bean, CSVBeanExporter<?> exporter )
+                throws Throwable {
+            writer.writeField( (boolean) getter.invokeExact( bean ) );
+        }
+    }
+
+    private static class DateColumn extends Column {
+        DateColumn( MethodHandle getter ) {
+            super( getter );
+        }
+
+        @Override
+        void write( CSVWriter writer, Object bean, CSVBeanExporter<?> exporter )
+                throws Throwable {
+            Date date = (Date) getter.invokeExact( bean );
+            if ( date == null ) {
+                writer.writeField( "" );
+            } else {
+                exporter.writeDate( writer, date );
+            }
+        }
+    }
+
+    private static class ObjectColumn extends Column {
+        ObjectColumn( MethodHandle getter ) {
+            super( getter );
+        }
+
+        @Override
+        void write( CSVWriter writer, Object bean, CSVBeanExporter<?> exporter )
+                throws Throwable {
+            Object value = (Object) getter.invokeExact( bean );
+            if ( value instanceof CharSequence ) {
+                writer.writeField( (CharSequence) value );
+            } else {
+                writer.writeField( value == null ? "" : value.toString() );
+            }
+        }
+    }
+}
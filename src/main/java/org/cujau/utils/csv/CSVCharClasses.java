@@ -0,0 +1,69 @@
+package org.cujau.utils.csv;
+
+/**
+ * Immutable lookup table, compiled from a {@link CSVSymbols}, that tells for every char whether it
+ * forces a field to be quoted or must be escaped. This lets the writer escape a field in a single
+ * scan. Whether a field is a number, for the {@link CSVQuotePolicy#NON_NUMERIC} quote policy, is
+ * decided on the whole field by {@link #isNumber(CharSequence)}.
+ */
+final class CSVCharClasses {
+
+    /** The char forces the field to be quoted. */
+    static final byte QUOTE = 1;
+    /**
+     * The char must be preceded by the escape char. Unless the policy is
+     * {@link CSVQuotePolicy#MINIMAL}, it also forces the field to be quoted.
+     */
+    static final byte ESCAPE = 2;
+
+    private final byte[] table;
+    final char separator;
+    final char quoteChar;
+    final char escapeChar;
+    final CSVQuotePolicy policy;
+    private final char decimal;
+    private final char grouping;
+
+    CSVCharClasses( char separator, char quoteChar, char escapeChar, CSVQuotePolicy policy, char decimal,
+                    char grouping ) {
+        this.separator = separator;
+        this.quoteChar = quoteChar;
+        this.escapeChar = escapeChar;
+        this.policy = policy;
+        this.decimal = decimal;
+        this.grouping = grouping;
+
+        int size = Math.max( 128, Math.max( separator, Math.max( quoteChar, escapeChar ) ) + 1 );
+        table = new byte[size];
+        table[separator] = QUOTE;
+        table['\n'] = QUOTE;
+        table['\r'] = QUOTE;
+        byte escape = policy == CSVQuotePolicy.MINIMAL ? ESCAPE : ESCAPE | QUOTE;
+        table[quoteChar] = escape;
+        table[escapeChar] = escape;
+    }
+
+    /**
+     * @return The classes of the given char, a combination of {@link #QUOTE} and {@link #ESCAPE}.
+     */
+    int classOf( char c ) {
+        return c < table.length ? table[c] : 0;
+    }
+
+    /**
+     * @return <tt>true</tt> if the whole field is a number, either in the format of the symbols or in
+     *         the format of {@link Double#toString(double)}. Fields with leading or trailing
+     *         whitespace are not numbers.
+     */
+    boolean isNumber( CharSequence s ) {
+        int len = s.length();
+        if ( len == 0 || Character.isWhitespace( s.charAt( 0 ) ) || Character.isWhitespace( s.charAt( len - 1 ) ) ) {
+            return false;
+        }
+        if ( CSVNumbers.classify( s, decimal, grouping ) != null ) {
+            return true;
+        }
+        // A grouping separator equal to the decimal separator is never reached, so there is none.
+        return decimal != '.' && CSVNumbers.classify( s, '.', '.' ) != null;
+    }
+}
@@ -0,0 +1,51 @@
+package org.cujau.utils.csv;
+
+/**
+ * The type of the values of a CSV column, as inferred by {@link CSVSniffer}.
+ */
+public enum CSVColumnType {
+
+    /**
+     * Integers that fit into an <tt>int</tt>.
+     */
+    INT,
+
+    /**
+     * Integers that fit into a <tt>long</tt>.
+     */
+    LONG,
+
+    /**
+     * Decimal numbers, or integers too large for a <tt>long</tt>.
+     */
+    DOUBLE,
+
+    /**
+     * <tt>true</tt>/<tt>false</tt> or <tt>yes</tt>/<tt>no</tt>, in any case.
+     */
+    BOOLEAN,
+
+    /**
+     * Anything else.
+     */
+    STRING;
+
+    /**
+     * @return The narrowest type that can hold the values of both types.
+     */
+    CSVColumnType merge( CSVColumnType other ) {
+        if ( other == null || other == this ) {
+            return this;
+        }
+        if ( this == STRING || other == STRING || this == BOOLEAN || other == BOOLEAN ) {
+            return STRING;
+        }
+        // Both are numeric: the later constant is the wider one.
+        return ordinal() > other.ordinal() ? this : other;
+    }
+
+    boolean isNumeric() {
+        return this == INT || this == LONG || this == DOUBLE;
+    }
+
+}
@@ -0,0 +1,242 @@
+package org.cujau.utils.csv;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.Charset;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import org.cujau.utils.FileUtil;
+
+/**
+ * OutputStream that compresses the CSV data on a background thread.
+ * <p>
+ * The bytes written to this stream are collected into blocks of a configurable size. Full blocks
+ * are handed through a bounded queue to a compressor thread, which writes them into the compressing
+ * stream (GZIP or a zip entry). The thread rendering the CSV lines therefore only blocks when the
+ * compressor falls behind by more than the queue depth, and rendering and deflating run
+ * concurrently. The blocks are recycled once compressed.
+ * </p>
+ * <p>
+ * {@link #close()} must be called to drain the queue and finish the compressed stream. An error in
+ * the compressor thread is reported by the next write, flush or close.
+ * </p>
+ */
+public class CSVCompressedOutputStream extends OutputStream {
+
+    public static final int DEFAULT_BLOCK_SIZE = 256 * 1024;
+    public static final int DEFAULT_QUEUE_DEPTH = 4;
+
+    private static final Block END = new Block( 0 );
+
+    private final OutputStream target;
+    private final int blockSize;
+    private final BlockingQueue<Block> full;
+    private final BlockingQueue<Block> free;
+    private final Thread compressor;
+    private volatile Throwable failure;
+    private Block current;
+    private boolean closed;
+
+    /**
+     * Create a stream that compresses into a GZIP stream with the default compression level and
+     * block size.
+     */
+    public static CSVCompressedOutputStream gzip( OutputStream out )
+            throws IOException {
+        return gzip( out, Deflater.DEFAULT_COMPRESSION, DEFAULT_BLOCK_SIZE );
+    }
+
+    /**
+     * Create a stream that compresses into a GZIP stream.
+     *
+     * @param out
+     *         The stream to which the GZIP data is written.
+     * @param level
+     *         The compression level, 0-9 or {@link Deflater#DEFAULT_COMPRESSION}.
+     * @param blockSize
+     *         The size in bytes of the blocks handed to the compressor thread.
+     */
+    public static CSVCompressedOutputStream gzip( OutputStream out, final int level, int blockSize )
+            throws IOException {
+        GZIPOutputStream gzip = new GZIPOutputStream( out, blockSize ) {
+            {
+                def.setLevel( level );
+            }
+        };
+        return new CSVCompressedOutputStream( gzip, blockSize, DEFAULT_QUEUE_DEPTH );
+    }
+
+    /**
+     * Create a stream that compresses into a zip with a single entry.
+     *
+     * @param out
+     *         The stream to which the zip data is written.
+     * @param entryName
+     *         The name of the zip entry holding the CSV data.
+     * @param level
+     *         The compression level, 0-9 or {@link Deflater#DEFAULT_COMPRESSION}.
+     * @param blockSize
+     *         The size in bytes of the blocks handed to the compressor thread.
+     */
+    public static CSVCompressedOutputStream zip( OutputStream out, String entryName, int level, int blockSize )
+            throws IOException {
+        return new CSVCompressedOutputStream( FileUtil.zipEntry( out, entryName, level ), blockSize,
+                                              DEFAULT_QUEUE_DEPTH );
+    }
+
+    /**
+     * Create a stream that writes blocks into the given (compressing) stream on a background thread.
+     *
+     * @param target
+     *         The stream written by the background thread. It is closed by {@link #close()}.
+     * @param blockSize
+     *         The size in bytes of the blocks handed to the background thread.
+     * @param queueDepth
+     *         The maximum number of full blocks waiting for the background thread.
+     */
+    public CSVCompressedOutputStream( OutputStream target, int blockSize, int queueDepth ) {
+        if ( blockSize <= 0 || queueDepth <= 0 ) {
+            throw new IllegalArgumentException( "blockSize and queueDepth must be > 0" );
+        }
+        this.target = target;
+        this.blockSize = blockSize;
+        this.full = new ArrayBlockingQueue<Block>( queueDepth );
+        this.free = new ArrayBlockingQueue<Block>( queueDepth + 2 );
+        this.current = new Block( blockSize );
+        this.compressor = new Thread( this::compress, "csv-compressor" );
+        this.compressor.setDaemon( true );
+        this.compressor.start();
+    }
+
+    /**
+     * Create a buffered {@link CSVWriter} that writes into this stream.
+     */
+    public CSVWriter createCSVWriter( CSVSymbols symbols, Charset charset ) {
+        return new CSVWriter( new OutputStreamWriter( this, charset ), symbols, blockSize );
+    }
+
+    @Override
+    public void write( int b )
+            throws IOException {
+        if ( current.len == blockSize ) {
+            handOff();
+        }
+        current.data[current.len++] = (byte) b;
+    }
+
+    @Override
+    public void write( byte[] b, int off, int len )
+            throws IOException {
+        while ( len > 0 ) {
+            if ( current.len == blockSize ) {
+                handOff();
+            }
+            int n = Math.min( len, blockSize - current.len );
+            System.arraycopy( b, off, current.data, current.len, n );
+            current.len += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    /**
+     * Hand the bytes written so far to the compressor thread.
+     */
+    @Override
+    public void flush()
+            throws IOException {
+        if ( current.len > 0 ) {
+            handOff();
+        }
+        checkFailure();
+    }
+
+    /**
+     * Hand the remaining bytes to the compressor thread, wait for it to finish the compressed stream
+     * and close it.
+     */
+    @Override
+    public void close()
+            throws IOException {
+        if ( closed ) {
+            return;
+        }
+        try {
+            flush();
+        } finally {
+            closed = true;
+            try {
+                full.put( END );
+                compressor.join();
+            } catch ( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException( "Interrupted while waiting for the compressor" );
+            }
+        }
+        checkFailure();
+    }
+
+    private void handOff()
+            throws IOException {
+        if ( closed ) {
+            throw new IOException( "Stream closed" );
+        }
+        checkFailure();
+        try {
+            full.put( current );
+        } catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException( "Interrupted while handing a block to the compressor" );
+        }
+        Block next = free.poll();
+        current = next != null ? next : new Block( blockSize );
+    }
+
+    private void checkFailure()
+            throws IOException {
+        Throwable t = failure;
+        if ( t != null ) {
+            throw new IOException( "CSV compression failed", t );
+        }
+    }
+
+    private void compress() {
+        try {
+            for ( ;; ) {
+                Block block = full.take();
+                if ( block == END ) {
+                    break;
+                }
+                if ( failure == null ) {
+                    try {
+                        target.write( block.data, 0, block.len );
+                    } catch ( Throwable t ) {
+                        // Keep draining the queue so that the writing thread never blocks.
+                        failure = t;
+                    }
+                }
+                block.len = 0;
+                free.offer( block );
+            }
+            target.close();
+        } catch ( Throwable t ) {
+            if ( failure == null ) {
+                failure = t;
+            }
+        }
+    }
+
+    private static class Block {
+        final byte[] data;
+        int len;
+
+        Block( int size ) {
+            data = new byte[size];
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package org.cujau.utils.csv;
+
+/**
+ * Reusable {@link CharSequence} view of a range of a char buffer.
+ */
+class CSVFieldView implements CharSequence {
+
+    private char[] buf;
+    private int start;
+    private int end;
+
+    CSVFieldView set( char[] buf, int start, int end ) {
+        this.buf = buf;
+        this.start = start;
+        this.end = end;
+        return this;
+    }
+
+    @Override
+    public int length() {
+        return end - start;
+    }
+
+    @Override
+    public char charAt( int index ) {
+        if ( index < 0 || index >= end - start ) {
+            throw new IndexOutOfBoundsException( "index " + index + ", length " + length() );
+        }
+        return buf[start + index];
+    }
+
+    @Override
+    public CharSequence subSequence( int from, int to ) {
+        if ( from < 0 || to > end - start || from > to ) {
+            throw new IndexOutOfBoundsException( "start " + from + ", end " + to + ", length " + length() );
+        }
+        return new String( buf, start + from, to - from );
+    }
+
+    @Override
+    public String toString() {
+        return new String( buf, start, end - start );
+    }
+}
@@ -0,0 +1,252 @@
+package org.cujau.utils.csv;
+
+import org.cujau.utils.converters.NumberSymbols;
+
+/**
+ * Parses the numbers of CSV fields without creating Strings.
+ * <p>
+ * The accepted format follows the rules of
+ * {@link org.cujau.utils.converters.StringConverterHelper}: an optional sign, digits that may be
+ * grouped with the grouping separator of the locale, an optional decimal separator followed by more
+ * digits and an optional exponent. The grouping separators are recognized by
+ * {@link NumberSymbols#isGroupingSeparator(char, char)}, as in the converters. Leading and trailing
+ * whitespace is ignored. Unlike the converters, other junk (currency symbols
+ * and the like) is not stripped, so that text columns are never mistaken for numbers.
+ * </p>
+ */
+final class CSVNumbers {
+
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17,
+            1e18, 1e19, 1e20, 1e21, 1e22 };
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    private CSVNumbers() {
+    }
+
+    /**
+     * @return The narrowest numeric type of the given value, or <tt>null</tt> if it is not a number.
+     */
+    static CSVColumnType classify( CharSequence s, char decimal, char grouping ) {
+        int end = trimEnd( s );
+        int i = trimStart( s, end );
+        if ( i == end ) {
+            return null;
+        }
+        boolean negative = false;
+        char c = s.charAt( i );
+        if ( c == '-' || c == '+' ) {
+            negative = c == '-';
+            i++;
+        }
+        // Accumulate negatively so that Long.MIN_VALUE can be represented.
+        long value = 0;
+        boolean overflow = false;
+        boolean integral = true;
+        int digits = 0;
+        for ( ; i < end; i++ ) {
+            c = s.charAt( i );
+            if ( c >= '0' && c <= '9' ) {
+                digits++;
+                if ( integral && !overflow ) {
+                    int d = c - '0';
+                    if ( value < ( Long.MIN_VALUE + d ) / 10 ) {
+                        overflow = true;
+                    } else {
+                        value = value * 10 - d;
+                    }
+                }
+            } else if ( integral && c == decimal ) {
+                integral = false;
+            } else if ( !integral || digits == 0 || !NumberSymbols.isGroupingSeparator( c, grouping ) ) {
+                break;
+            }
+        }
+        if ( digits == 0 ) {
+            return null;
+        }
+        if ( i < end ) {
+            if ( skipExponent( s, i, end ) != end ) {
+                return null;
+            }
+            integral = false;
+        }
+        if ( !integral || overflow || ( !negative && value == Long.MIN_VALUE ) ) {
+            return CSVColumnType.DOUBLE;
+        }
+        if ( negative ? value >= Integer.MIN_VALUE : value >= -Integer.MAX_VALUE ) {
+            return CSVColumnType.INT;
+        }
+        return CSVColumnType.LONG;
+    }
+
+    static int parseInt( CharSequence s, char grouping )
+            throws NumberFormatException {
+        long value = parseLong( s, grouping );
+        if ( value < Integer.MIN_VALUE || value > Integer.MAX_VALUE ) {
+            throw new NumberFormatException( "Value out of int range: \"" + s + "\"" );
+        }
+        return (int) value;
+    }
+
+    static long parseLong( CharSequence s, char grouping )
+            throws NumberFormatException {
+        int end = trimEnd( s );
+        int i = trimStart( s, end );
+        boolean negative = false;
+        if ( i < end && ( s.charAt( i ) == '-' || s.charAt( i ) == '+' ) ) {
+            negative = s.charAt( i ) == '-';
+            i++;
+        }
+        long value = 0;
+        int digits = 0;
+        for ( ; i < end; i++ ) {
+            char c = s.charAt( i );
+            if ( c >= '0' && c <= '9' ) {
+                int d = c - '0';
+                if ( value < ( Long.MIN_VALUE + d ) / 10 ) {
+                    throw new NumberFormatException( "Value out of long range: \"" + s + "\"" );
+                }
+                value = value * 10 - d;
+                digits++;
+            } else if ( digits == 0 || !NumberSymbols.isGroupingSeparator( c, grouping ) ) {
+                throw new NumberFormatException( "For input string: \"" + s + "\"" );
+            }
+        }
+        if ( digits == 0 ) {
+            throw new NumberFormatException( "For input string: \"" + s + "\"" );
+        }
+        if ( negative ) {
+            return value;
+        }
+        if ( value == Long.MIN_VALUE ) {
+            throw new NumberFormatException( "Value out of long range: \"" + s + "\"" );
+        }
+        return -value;
+    }
+
+    static double parseDouble( CharSequence s, char decimal, char grouping )
+            throws NumberFormatException {
+        int end = trimEnd( s );
+        int start = trimStart( s, end );
+        int i = start;
+        boolean negative = false;
+        if ( i < end && ( s.charAt( i ) == '-' || s.charAt( i ) == '+' ) ) {
+            negative = s.charAt( i ) == '-';
+            i++;
+        }
+        // Up to 19 significant digits are collected into the mantissa.
+        long mantissa = 0;
+        int significant = 0;
+        int exp10 = 0;
+        int digits = 0;
+        boolean integral = true;
+        for ( ; i < end; i++ ) {
+            char c = s.charAt( i );
+            if ( c >= '0' && c <= '9' ) {
+                digits++;
+                int d = c - '0';
+                if ( significant == 0 && d == 0 ) {
+                    if ( !integral ) {
+                        exp10--;
+                    }
+                } else if ( significant < 19 ) {
+                    mantissa = mantissa * 10 + d;
+                    significant++;
+                    if ( !integral ) {
+                        exp10--;
+                    }
+                } else {
+                    // Dropped digit: the slow path below takes care of it.
+                    significant++;
+                    if ( integral ) {
+                        exp10++;
+                    }
+                }
+            } else if ( integral && c == decimal ) {
+                integral = false;
+            } else if ( !integral || digits == 0 || !NumberSymbols.isGroupingSeparator( c, grouping ) ) {
+                break;
+            }
+        }
+        if ( digits == 0 ) {
+            throw new NumberFormatException( "For input string: \"" + s + "\"" );
+        }
+        if ( i < end ) {
+            int expEnd = skipExponent( s, i, end );
+            if ( expEnd != end ) {
+                throw new NumberFormatException( "For input string: \"" + s + "\"" );
+            }
+            int exp = 0;
+            boolean expNegative = s.charAt( i + 1 ) == '-';
+            for ( int j = i + 1; j < end; j++ ) {
+                char c = s.charAt( j );
+                if ( c >= '0' && c <= '9' && exp < 100000 ) {
+                    exp = exp * 10 + ( c - '0' );
+                }
+            }
+            exp10 += expNegative ? -exp : exp;
+        }
+        if ( mantissa == 0 ) {
+            return negative ? -0.0 : 0.0;
+        }
+        if ( mantissa <= MAX_EXACT_MANTISSA && exp10 >= -22 && exp10 <= 22 ) {
+            // Both the mantissa and the power of ten are exact doubles, so a single multiplication or
+            // division gives the correctly rounded result.
+            double v = exp10 < 0 ? mantissa / POWERS_OF_TEN[-exp10] : mantissa * POWERS_OF_TEN[exp10];
+            return negative ? -v : v;
+        }
+        return Double.parseDouble( normalize( s, start, end, decimal, grouping ) );
+    }
+
+    /**
+     * @return The value in the format understood by {@link Double#parseDouble(String)}.
+     */
+    private static String normalize( CharSequence s, int start, int end, char decimal, char grouping ) {
+        StringBuilder sb = new StringBuilder( end - start );
+        for ( int i = start; i < end; i++ ) {
+            char c = s.charAt( i );
+            if ( c == decimal ) {
+                sb.append( '.' );
+            } else if ( !NumberSymbols.isGroupingSeparator( c, grouping ) ) {
+                sb.append( c );
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return The index after the exponent starting at <tt>i</tt>, or <tt>i</tt> if there is none.
+     */
+    private static int skipExponent( CharSequence s, int i, int end ) {
+        char c = s.charAt( i );
+        if ( c != 'e' && c != 'E' ) {
+            return i;
+        }
+        int j = i + 1;
+        if ( j < end && ( s.charAt( j ) == '-' || s.charAt( j ) == '+' ) ) {
+            j++;
+        }
+        int digitsStart = j;
+        while ( j < end && s.charAt( j ) >= '0' && s.charAt( j ) <= '9' ) {
+            j++;
+        }
+        return j == digitsStart ? i : j;
+    }
+
+    private static int trimStart( CharSequence s, int end ) {
+        int i = 0;
+        while ( i < end && Character.isWhitespace( s.charAt( i ) ) ) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int trimEnd( CharSequence s ) {
+        int end = s.length();
+        while ( end > 0 && Character.isWhitespace( s.charAt( end - 1 ) ) ) {
+            end--;
+        }
+        return end;
+    }
+}
@@ -0,0 +1,297 @@
+package org.cujau.utils.csv;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Loads large CSV files on all cores.
+ * <p>
+ * The file is memory-mapped and split into chunks of roughly {@link #getChunkSize()} bytes. The
+ * chunk borders are moved onto record boundaries: the quote chars of every chunk are first counted
+ * in parallel, which tells whether each nominal chunk starts inside a quoted field, so line breaks
+ * inside quoted fields are never mistaken for the end of a record. The chunks are then decoded and
+ * parsed on a {@link ForkJoinPool}.
+ * </p>
+ * <p>
+ * Records are either delivered in their original order on the calling thread, or unordered on the
+ * worker threads as soon as they are parsed. In the unordered case the {@link CSVRecordHandler}
+ * must be thread-safe.
+ * </p>
+ * <p>
+ * The quote char must be escaped by doubling it, which is the default. The charset must encode the
+ * quote char, the line break chars and the record separator as the same single bytes as US-ASCII
+ * and never use those bytes inside multi-byte sequences, as is the case for UTF-8 and the ISO-8859
+ * charsets.
+ * </p>
+ */
+public class CSVParallelLoader {
+
+    public static final int DEFAULT_CHUNK_SIZE = 8 * 1024 * 1024;
+    private static final int SCAN_WINDOW = 64 * 1024;
+
+    private final CSVSymbols symbols;
+    private Charset charset = StandardCharsets.UTF_8;
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+    private ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    public CSVParallelLoader() {
+        this( new CSVSymbols() );
+    }
+
+    public CSVParallelLoader( CSVSymbols symbols ) {
+        this.symbols = symbols;
+    }
+
+    public CSVSymbols getCSVSymbols() {
+        return symbols;
+    }
+
+    public Charset getCharset() {
+        return charset;
+    }
+
+    public void setCharset( Charset charset ) {
+        this.charset = charset;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public void setChunkSize( int chunkSize ) {
+        if ( chunkSize <= 0 ) {
+            throw new IllegalArgumentException( "chunkSize must be > 0" );
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+
+    /**
+     * Set the pool on which the chunks are parsed. Defaults to the common pool.
+     */
+    public void setPool( ForkJoinPool pool ) {
+        this.pool = pool;
+    }
+
+    /**
+     * Load the given CSV file.
+     *
+     * @param file
+     *         The file to load.
+     * @param handler
+     *         The handler that receives the records.
+     * @param ordered
+     *         If <tt>true</tt>, the records are handed to the handler in file order on the calling
+     *         thread. If <tt>false</tt>, they are handed to the handler on the worker threads, in no
+     *         particular order.
+     * @throws IOException
+     *         If the file could not be read.
+     */
+    public void load( File file, CSVRecordHandler handler, boolean ordered )
+            throws IOException {
+        checkCharset();
+        try ( FileChannel channel = FileChannel.open( file.toPath(), StandardOpenOption.READ ) ) {
+            long size = channel.size();
+            long start = skipBOM( channel, size );
+            if ( start >= size ) {
+                return;
+            }
+            int chunks = (int) ( ( size - start + chunkSize - 1 ) / chunkSize );
+            long[] offsets = new long[chunks + 1];
+            for ( int i = 0; i < chunks; i++ ) {
+                offsets[i] = start + (long) i * chunkSize;
+            }
+            offsets[chunks] = size;
+
+            // Find out which nominal chunks start inside a quoted field.
+            final byte quote = (byte) symbols.getQuoteChar();
+            boolean[] inQuotes = new boolean[chunks + 1];
+            List<Future<Boolean>> parities = new ArrayList<Future<Boolean>>( chunks );
+            try {
+                for ( int i = 0; i < chunks; i++ ) {
+                    final long from = offsets[i];
+                    final long to = offsets[i + 1];
+                    parities.add( pool.submit( () -> hasOddQuoteCount( channel, from, to, quote ) ) );
+                }
+                for ( int i = 0; i < chunks; i++ ) {
+                    inQuotes[i + 1] = inQuotes[i] ^ get( parities.get( i ) );
+                }
+            } finally {
+                cancelAll( parities );
+            }
+
+            // Parse the chunks, keeping a bounded number of them in flight.
+            int window = Math.max( 2, pool.getParallelism() * 2 );
+            Deque<Future<CSVParsedChunk>> pending = new ArrayDeque<Future<CSVParsedChunk>>( window );
+            try {
+                int next = 0;
+                while ( next < chunks || !pending.isEmpty() ) {
+                    while ( next < chunks && pending.size() < window ) {
+                        final int i = next++;
+                        pending.add( pool.submit( () -> parseChunk( channel, offsets, inQuotes, i, handler,
+                                                                    ordered ) ) );
+                    }
+                    CSVParsedChunk chunk = get( pending.poll() );
+                    if ( chunk != null ) {
+                        chunk.deliver( handler );
+                    }
+                }
+            } finally {
+                cancelAll( pending );
+            }
+        }
+    }
+
+    private CSVParsedChunk parseChunk( FileChannel channel, long[] offsets, boolean[] inQuotes, int i,
+                                       CSVRecordHandler handler, boolean ordered )
+            throws IOException {
+        int last = offsets.length - 1;
+        long size = offsets[last];
+        byte quote = (byte) symbols.getQuoteChar();
+        long from = i == 0 ? offsets[0] : findRecordStart( channel, offsets[i], inQuotes[i], size, quote );
+        long to = i + 1 == last ? size : findRecordStart( channel, offsets[i + 1], inQuotes[i + 1], size, quote );
+        if ( from >= to ) {
+            // A quoted field spans this whole chunk. It is parsed with the preceding chunk.
+            return null;
+        }
+        if ( to - from > Integer.MAX_VALUE ) {
+            throw new IOException( "Record at offset " + from + " is too large to be mapped" );
+        }
+        MappedByteBuffer bytes = channel.map( FileChannel.MapMode.READ_ONLY, from, to - from );
+        CharBuffer chars = charset.newDecoder()
+                                  .onMalformedInput( CodingErrorAction.REPLACE )
+                                  .onUnmappableCharacter( CodingErrorAction.REPLACE )
+                                  .decode( bytes );
+        char[] buf = chars.array();
+        int offset = chars.arrayOffset() + chars.position();
+        if ( ordered ) {
+            return new CSVParsedChunk( buf, offset, chars.remaining(), symbols );
+        }
+        CSVReader reader = new CSVReader( buf, offset, chars.remaining(), symbols );
+        while ( reader.nextRecord() ) {
+            handler.handleRecord( reader );
+        }
+        return null;
+    }
+
+    /**
+     * @return The offset right after the first line break at or after <tt>offset</tt> that is not
+     *         inside a quoted field, or <tt>size</tt> if there is none.
+     */
+    static long findRecordStart( FileChannel channel, long offset, boolean inQuote, long size, byte quote )
+            throws IOException {
+        long p = offset;
+        while ( p < size ) {
+            int len = (int) Math.min( SCAN_WINDOW, size - p );
+            MappedByteBuffer window = channel.map( FileChannel.MapMode.READ_ONLY, p, len );
+            for ( int j = 0; j < len; j++ ) {
+                byte b = window.get( j );
+                if ( b == quote ) {
+                    inQuote = !inQuote;
+                } else if ( !inQuote ) {
+                    if ( b == '\n' ) {
+                        return p + j + 1;
+                    } else if ( b == '\r' ) {
+                        long after = p + j + 1;
+                        if ( after < size ) {
+                            byte n = j + 1 < len ? window.get( j + 1 )
+                                    : channel.map( FileChannel.MapMode.READ_ONLY, after, 1 ).get( 0 );
+                            if ( n == '\n' ) {
+                                return after + 1;
+                            }
+                        }
+                        return after;
+                    }
+                }
+            }
+            p += len;
+        }
+        return size;
+    }
+
+    private static boolean hasOddQuoteCount( FileChannel channel, long from, long to, byte quote )
+            throws IOException {
+        int len = (int) ( to - from );
+        MappedByteBuffer bytes = channel.map( FileChannel.MapMode.READ_ONLY, from, len );
+        int count = 0;
+        for ( int j = 0; j < len; j++ ) {
+            if ( bytes.get( j ) == quote ) {
+                count++;
+            }
+        }
+        return ( count & 1 ) != 0;
+    }
+
+    private long skipBOM( FileChannel channel, long size )
+            throws IOException {
+        if ( size >= 3 && StandardCharsets.UTF_8.equals( charset ) ) {
+            MappedByteBuffer head = channel.map( FileChannel.MapMode.READ_ONLY, 0, 3 );
+            if ( head.get( 0 ) == (byte) 0xEF && head.get( 1 ) == (byte) 0xBB && head.get( 2 ) == (byte) 0xBF ) {
+                return 3;
+            }
+        }
+        return 0;
+    }
+
+    private void checkCharset() {
+        if ( symbols.getEscapeChar() != symbols.getQuoteChar() ) {
+            // Escaped quote chars would throw off the quote counting.
+            throw new IllegalArgumentException( "Parallel loading requires the quote char to be escaped by doubling" );
+        }
+        String special = "\r\n" + symbols.getQuoteChar() + symbols.getRecordSeparator();
+        byte[] encoded = special.getBytes( charset );
+        boolean ok = encoded.length == special.length();
+        for ( int i = 0; ok && i < encoded.length; i++ ) {
+            ok = special.charAt( i ) < 0x80 && encoded[i] == special.charAt( i );
+        }
+        if ( !ok ) {
+            throw new IllegalArgumentException( "The charset " + charset + ", quote char and record separator '"
+                                                + symbols.getRecordSeparator()
+                                                + "' cannot be split on byte boundaries" );
+        }
+    }
+
+    private static <T> T get( Future<T> future )
+            throws IOException {
+        try {
+            return future.get();
+        } catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException( "Interrupted while loading CSV file" );
+        } catch ( ExecutionException e ) {
+            Throwable cause = e.getCause();
+            if ( cause instanceof IOException ) {
+                throw (IOException) cause;
+            } else if ( cause instanceof RuntimeException ) {
+                throw (RuntimeException) cause;
+            } else if ( cause instanceof Error ) {
+                throw (Error) cause;
+            }
+            throw new IOException( cause );
+        }
+    }
+
+    private static void cancelAll( Iterable<? extends Future<?>> futures ) {
+        for ( Future<?> f : futures ) {
+            f.cancel( false );
+        }
+    }
+}
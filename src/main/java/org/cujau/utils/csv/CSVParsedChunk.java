@@ -0,0 +1,94 @@
+package org.cujau.utils.csv;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * The parsed records of one chunk of a CSV file, kept as field offsets into the decoded chars of
+ * the chunk so they can be replayed in order without creating a String per field.
+ */
+class CSVParsedChunk implements CSVRecord {
+
+    private final char[] buf;
+    private int[] fieldStarts;
+    private int[] fieldEnds;
+    // recordFields[r] is the index of the first field of record r.
+    private int[] recordFields;
+    private int recordCount;
+    private int fieldTotal;
+
+    private int current = -1;
+    private CSVFieldView[] views = new CSVFieldView[16];
+
+    CSVParsedChunk( char[] buf, int offset, int length, CSVSymbols symbols )
+            throws IOException {
+        this.buf = buf;
+        int estimate = Math.max( 16, length / 8 );
+        fieldStarts = new int[estimate];
+        fieldEnds = new int[estimate];
+        recordFields = new int[Math.max( 16, estimate / 4 )];
+
+        CSVReader reader = new CSVReader( buf, offset, length, symbols );
+        while ( reader.nextRecord() ) {
+            if ( recordCount + 1 >= recordFields.length ) {
+                recordFields = Arrays.copyOf( recordFields, recordFields.length * 2 );
+            }
+            recordFields[recordCount++] = fieldTotal;
+            int n = reader.getFieldCount();
+            if ( fieldTotal + n > fieldStarts.length ) {
+                int newLen = Math.max( fieldStarts.length * 2, fieldTotal + n );
+                fieldStarts = Arrays.copyOf( fieldStarts, newLen );
+                fieldEnds = Arrays.copyOf( fieldEnds, newLen );
+            }
+            reader.copyFieldOffsets( fieldStarts, fieldEnds, fieldTotal );
+            fieldTotal += n;
+        }
+        recordFields[recordCount] = fieldTotal;
+    }
+
+    int getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Hand every record of this chunk, in order, to the given handler.
+     */
+    void deliver( CSVRecordHandler handler ) {
+        for ( current = 0; current < recordCount; current++ ) {
+            handler.handleRecord( this );
+        }
+    }
+
+    @Override
+    public int getFieldCount() {
+        return recordFields[current + 1] - recordFields[current];
+    }
+
+    @Override
+    public CharSequence getField( int index ) {
+        int f = fieldIndex( index );
+        if ( index >= views.length ) {
+            views = Arrays.copyOf( views, Math.max( views.length * 2, index + 1 ) );
+        }
+        CSVFieldView v = views[index];
+        if ( v == null ) {
+            v = new CSVFieldView();
+            views[index] = v;
+        }
+        return v.set( buf, fieldStarts[f], fieldEnds[f] );
+    }
+
+    @Override
+    public String getString( int index ) {
+        int f = fieldIndex( index );
+        return new String( buf, fieldStarts[f], fieldEnds[f] - fieldStarts[f] );
+    }
+
+    private int fieldIndex( int index ) {
+        int count = getFieldCount();
+        if ( index < 0 || index >= count ) {
+            throw new IndexOutOfBoundsException( "Field " + index + " of " + count );
+        }
+        return recordFields[current] + index;
+    }
+}
@@ -0,0 +1,30 @@
+package org.cujau.utils.csv;
+
+/**
+ * When the fields written by {@link CSVWriter} are put in quotes.
+ */
+public enum CSVQuotePolicy {
+
+    /**
+     * Only quote fields that contain the record separator or a line break. The quote and escape
+     * chars are escaped but do not cause the field to be quoted, as CSVWriter has always done.
+     */
+    MINIMAL,
+
+    /**
+     * Quote fields that contain the record separator, a line break, the quote char or the escape
+     * char, so that every field can be read back by {@link CSVReader}.
+     */
+    STRICT,
+
+    /**
+     * Quote every field.
+     */
+    ALL,
+
+    /**
+     * Quote every field that is not a number, as well as empty fields.
+     */
+    NON_NUMERIC
+
+}
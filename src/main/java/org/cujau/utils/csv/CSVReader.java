@@ -0,0 +1,366 @@
+package org.cujau.utils.csv;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Streaming reader for the CSV data produced by {@link CSVWriter}.
+ * <p>
+ * The data is read into a large, reusable char buffer and parsed one record at a time with
+ * {@link #nextRecord()}. The fields of the current record are exposed as {@link CharSequence} views
+ * into that buffer, so arbitrarily large files can be parsed with constant memory and without
+ * creating a String per field. Quoted fields are unescaped in place. The views are only valid until
+ * the next call to {@link #nextRecord()}; use {@link #getString(int)} to keep a value.
+ * </p>
+ * <p>
+ * The record separator, quote char and escape char are taken from the {@link CSVSymbols}. Quote
+ * chars inside quoted fields may always be doubled. Lines may be terminated with
+ * <tt>\n</tt>, <tt>\r\n</tt> or <tt>\r</tt>, whichever line separator the file was written with.
+ * An empty line is returned as a record with no fields.
+ * </p>
+ */
+public class CSVReader implements CSVRecord, Closeable {
+
+    static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private static final int FIELD_START = 0;
+    private static final int UNQUOTED = 1;
+    private static final int QUOTED = 2;
+    private static final int QUOTE_SEEN = 3;
+    private static final int QUOTED_TAIL = 4;
+    private static final int ESCAPED = 5;
+
+    private final CSVSymbols symbols;
+    private Reader reader;
+    private char[] buf;
+    private int pos;
+    private int limit;
+    private int recordStart;
+    private boolean eof;
+    private boolean skipLF;
+
+    private int fieldCount;
+    private int[] fieldStarts = new int[16];
+    private int[] fieldEnds = new int[16];
+    private CSVFieldView[] views = new CSVFieldView[16];
+    private long recordNumber;
+
+    public CSVReader( Reader reader ) {
+        this( reader, new CSVSymbols() );
+    }
+
+    public CSVReader( Reader reader, CSVSymbols symbols ) {
+        this( reader, symbols, DEFAULT_BUFFER_SIZE );
+    }
+
+    public CSVReader( Reader reader, CSVSymbols symbols, int bufferSize ) {
+        if ( bufferSize <= 0 ) {
+            throw new IllegalArgumentException( "bufferSize must be > 0" );
+        }
+        this.reader = reader;
+        this.symbols = symbols;
+        this.buf = new char[bufferSize];
+    }
+
+    /**
+     * Create a CSVReader that parses the given chars, which must hold complete records. The chars
+     * are unescaped in place.
+     */
+    CSVReader( char[] chars, int offset, int length, CSVSymbols symbols ) {
+        this.symbols = symbols;
+        this.buf = chars;
+        this.pos = offset;
+        this.limit = offset + length;
+        this.eof = true;
+    }
+
+    public CSVReader( ReadableByteChannel channel, Charset charset, CSVSymbols symbols ) {
+        this( channel, charset, symbols, DEFAULT_BUFFER_SIZE );
+    }
+
+    /**
+     * Create a CSVReader that decodes the bytes of the given channel with the given charset. The
+     * bytes are read in blocks of <tt>bufferSize</tt>.
+     */
+    public CSVReader( ReadableByteChannel channel, Charset charset, CSVSymbols symbols, int bufferSize ) {
+        this( Channels.newReader( channel, charset.newDecoder(), bufferSize ), symbols, bufferSize );
+    }
+
+    public CSVSymbols getCSVSymbols() {
+        return symbols;
+    }
+
+    /**
+     * Advance to the next record.
+     *
+     * @return <tt>true</tt> if a record was read, <tt>false</tt> if the end of the data was reached.
+     * @throws IOException
+     *         If the underlying Reader could not be read.
+     */
+    public boolean nextRecord()
+            throws IOException {
+        fieldCount = 0;
+        recordStart = pos;
+        if ( skipLF ) {
+            skipLF = false;
+            if ( ( pos < limit || fill() ) && buf[pos] == '\n' ) {
+                pos++;
+                recordStart = pos;
+            }
+        }
+
+        char sep = symbols.getRecordSeparator();
+        char quote = symbols.getQuoteChar();
+        char esc = symbols.getEscapeChar();
+        int state = FIELD_START;
+        int fieldStart = pos;
+        int w = pos;
+        boolean sawChars = false;
+        for ( ;; ) {
+            if ( pos >= limit ) {
+                int before = recordStart;
+                if ( !fill() ) {
+                    if ( !sawChars ) {
+                        return false;
+                    }
+                    if ( state == UNQUOTED ) {
+                        addField( fieldStart, pos );
+                    } else if ( state == FIELD_START ) {
+                        addField( pos, pos );
+                    } else {
+                        // Unterminated quoted field: take what we have.
+                        addField( fieldStart, w );
+                    }
+                    recordNumber++;
+                    return true;
+                }
+                int shift = before - recordStart;
+                fieldStart -= shift;
+                w -= shift;
+                continue;
+            }
+
+            char c = buf[pos++];
+            sawChars = true;
+            switch ( state ) {
+            case FIELD_START:
+                if ( c == quote ) {
+                    state = QUOTED;
+                    fieldStart = pos;
+                    w = pos;
+                } else if ( c == sep ) {
+                    addField( pos - 1, pos - 1 );
+                } else if ( c == '\n' || c == '\r' ) {
+                    if ( fieldCount > 0 ) {
+                        // The line ended right after a separator.
+                        addField( pos - 1, pos - 1 );
+                    }
+                    return endRecord( c );
+                } else {
+                    state = UNQUOTED;
+                    fieldStart = pos - 1;
+                }
+                break;
+            case UNQUOTED:
+                if ( c == sep ) {
+                    addField( fieldStart, pos - 1 );
+                    state = FIELD_START;
+                } else if ( c == '\n' || c == '\r' ) {
+                    addField( fieldStart, pos - 1 );
+                    return endRecord( c );
+                }
+                break;
+            case QUOTED:
+                if ( c == esc && esc != quote ) {
+                    state = ESCAPED;
+                } else if ( c == quote ) {
+                    state = QUOTE_SEEN;
+                } else {
+                    buf[w++] = c;
+                }
+                break;
+            case ESCAPED:
+                buf[w++] = c;
+                state = QUOTED;
+                break;
+            case QUOTE_SEEN:
+                if ( c == quote ) {
+                    // Doubled quote char.
+                    buf[w++] = c;
+                    state = QUOTED;
+                } else if ( c == sep ) {
+                    addField( fieldStart, w );
+                    state = FIELD_START;
+                } else if ( c == '\n' || c == '\r' ) {
+                    addField( fieldStart, w );
+                    return endRecord( c );
+                } else {
+                    // Be lenient with chars after the closing quote and keep them.
+                    buf[w++] = c;
+                    state = QUOTED_TAIL;
+                }
+                break;
+            default:
+                // QUOTED_TAIL
+                if ( c == sep ) {
+                    addField( fieldStart, w );
+                    state = FIELD_START;
+                } else if ( c == '\n' || c == '\r' ) {
+                    addField( fieldStart, w );
+                    return endRecord( c );
+                } else {
+                    buf[w++] = c;
+                }
+                break;
+            }
+        }
+    }
+
+    /**
+     * @return The number of fields in the current record.
+     */
+    @Override
+    public int getFieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * @return The number of records read so far. This is the 1-based number of the current record.
+     */
+    public long getRecordNumber() {
+        return recordNumber;
+    }
+
+    /**
+     * Get a view of the given field of the current record. The view is backed by the read buffer
+     * and is only valid until the next call to {@link #nextRecord()}.
+     *
+     * @param index
+     *         The 0-based index of the field.
+     * @return The field value.
+     */
+    @Override
+    public CharSequence getField( int index ) {
+        checkIndex( index );
+        CSVFieldView v = views[index];
+        if ( v == null ) {
+            v = new CSVFieldView();
+            views[index] = v;
+        }
+        return v.set( buf, fieldStarts[index], fieldEnds[index] );
+    }
+
+    /**
+     * @return The given field of the current record as a String.
+     */
+    @Override
+    public String getString( int index ) {
+        checkIndex( index );
+        return new String( buf, fieldStarts[index], fieldEnds[index] - fieldStarts[index] );
+    }
+
+    /**
+     * Convenience method that reads the next record and returns its fields as Strings.
+     *
+     * @return The fields of the next record or <tt>null</tt> if the end of the data was reached.
+     * @throws IOException
+     *         If the underlying Reader could not be read.
+     */
+    public List<String> readRecord()
+            throws IOException {
+        if ( !nextRecord() ) {
+            return null;
+        }
+        List<String> ret = new ArrayList<String>( fieldCount );
+        for ( int i = 0; i < fieldCount; i++ ) {
+            ret.add( getString( i ) );
+        }
+        return ret;
+    }
+
+    /**
+     * Copy the buffer offsets of the fields of the current record into the given arrays.
+     */
+    void copyFieldOffsets( int[] starts, int[] ends, int destPos ) {
+        System.arraycopy( fieldStarts, 0, starts, destPos, fieldCount );
+        System.arraycopy( fieldEnds, 0, ends, destPos, fieldCount );
+    }
+
+    @Override
+    public void close()
+            throws IOException {
+        if ( reader != null ) {
+            reader.close();
+        }
+    }
+
+    private boolean endRecord( char c ) {
+        if ( c == '\r' ) {
+            skipLF = true;
+        }
+        recordNumber++;
+        return true;
+    }
+
+    private void addField( int start, int end ) {
+        if ( fieldCount == fieldStarts.length ) {
+            int newLen = fieldCount * 2;
+            fieldStarts = Arrays.copyOf( fieldStarts, newLen );
+            fieldEnds = Arrays.copyOf( fieldEnds, newLen );
+            views = Arrays.copyOf( views, newLen );
+        }
+        fieldStarts[fieldCount] = start;
+        fieldEnds[fieldCount] = end;
+        fieldCount++;
+    }
+
+    /**
+     * Read more chars into the buffer. The current record is first moved to the start of the
+     * buffer and the buffer is grown if the record fills it completely.
+     *
+     * @return <tt>false</tt> if there is no more data.
+     */
+    private boolean fill()
+            throws IOException {
+        if ( eof || reader == null ) {
+            return false;
+        }
+        if ( recordStart > 0 ) {
+            int shift = recordStart;
+            System.arraycopy( buf, shift, buf, 0, limit - shift );
+            limit -= shift;
+            pos -= shift;
+            for ( int i = 0; i < fieldCount; i++ ) {
+                fieldStarts[i] -= shift;
+                fieldEnds[i] -= shift;
+            }
+            recordStart = 0;
+        }
+        if ( limit == buf.length ) {
+            buf = Arrays.copyOf( buf, buf.length * 2 );
+        }
+        int n;
+        do {
+            n = reader.read( buf, limit, buf.length - limit );
+        } while ( n == 0 );
+        if ( n < 0 ) {
+            eof = true;
+            return false;
+        }
+        limit += n;
+        return true;
+    }
+
+    private void checkIndex( int index ) {
+        if ( index < 0 || index >= fieldCount ) {
+            throw new IndexOutOfBoundsException( "Field " + index + " of " + fieldCount );
+        }
+    }
+}
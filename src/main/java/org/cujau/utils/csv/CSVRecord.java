@@ -0,0 +1,18 @@
+package org.cujau.utils.csv;
+
+/**
+ * The fields of one CSV record.
+ * <p>
+ * The {@link CharSequence} views returned by {@link #getField(int)} are only valid until the source
+ * of the record moves on to the next record. Use {@link #getString(int)} to keep a value.
+ * </p>
+ */
+public interface CSVRecord {
+
+    int getFieldCount();
+
+    CharSequence getField( int index );
+
+    String getString( int index );
+
+}
@@ -0,0 +1,10 @@
+package org.cujau.utils.csv;
+
+/**
+ * Callback that receives the records of a CSV file, for example from {@link CSVParallelLoader}.
+ */
+public interface CSVRecordHandler {
+
+    void handleRecord( CSVRecord record );
+
+}
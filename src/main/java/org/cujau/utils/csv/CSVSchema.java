@@ -0,0 +1,175 @@
+package org.cujau.utils.csv;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The layout of a CSV file: its {@link CSVSymbols}, whether it starts with a header line, and the
+ * name and type of each column.
+ * <p>
+ * A schema is usually inferred by {@link CSVSniffer}. Its typed getters parse the fields of a
+ * {@link CSVRecord} straight into primitives with the decimal and grouping separators of the
+ * symbols, without creating a String per field.
+ * </p>
+ */
+public class CSVSchema {
+
+    private final CSVSymbols symbols;
+    private final boolean header;
+    private final List<String> names;
+    private final List<CSVColumnType> types;
+
+    /**
+     * @param symbols
+     *         The symbols of the CSV data.
+     * @param header
+     *         Whether the first line of the data holds the column names.
+     * @param names
+     *         The names of the columns.
+     * @param types
+     *         The types of the columns, in the same order as the names.
+     */
+    public CSVSchema( CSVSymbols symbols, boolean header, List<String> names, List<CSVColumnType> types ) {
+        if ( names.size() != types.size() ) {
+            throw new IllegalArgumentException( "There must be as many column names as column types" );
+        }
+        this.symbols = symbols;
+        this.header = header;
+        this.names = Collections.unmodifiableList( new ArrayList<String>( names ) );
+        this.types = Collections.unmodifiableList( new ArrayList<CSVColumnType>( types ) );
+    }
+
+    public CSVSymbols getCSVSymbols() {
+        return symbols;
+    }
+
+    public boolean hasHeader() {
+        return header;
+    }
+
+    public int getColumnCount() {
+        return names.size();
+    }
+
+    public List<String> getColumnNames() {
+        return names;
+    }
+
+    public String getColumnName( int column ) {
+        return names.get( column );
+    }
+
+    public List<CSVColumnType> getColumnTypes() {
+        return types;
+    }
+
+    public CSVColumnType getColumnType( int column ) {
+        return types.get( column );
+    }
+
+    /**
+     * @return The index of the column with the given name, or -1 if there is none.
+     */
+    public int indexOf( String name ) {
+        return names.indexOf( name );
+    }
+
+    /**
+     * Create a reader for data in the format of this schema. The header line, if any, is skipped.
+     */
+    public CSVReader createReader( Reader reader )
+            throws IOException {
+        CSVReader ret = new CSVReader( reader, symbols );
+        if ( header ) {
+            ret.nextRecord();
+        }
+        return ret;
+    }
+
+    /**
+     * @return <tt>true</tt> if the given field of the record is missing or empty.
+     */
+    public boolean isEmpty( CSVRecord record, int column ) {
+        if ( column >= record.getFieldCount() ) {
+            return true;
+        }
+        CharSequence field = record.getField( column );
+        for ( int i = 0; i < field.length(); i++ ) {
+            if ( !Character.isWhitespace( field.charAt( i ) ) ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int getInt( CSVRecord record, int column )
+            throws NumberFormatException {
+        return parseInt( record.getField( column ) );
+    }
+
+    public long getLong( CSVRecord record, int column )
+            throws NumberFormatException {
+        return parseLong( record.getField( column ) );
+    }
+
+    public double getDouble( CSVRecord record, int column )
+            throws NumberFormatException {
+        return parseDouble( record.getField( column ) );
+    }
+
+    /**
+     * @return <tt>true</tt> if the field is <tt>1</tt>, <tt>yes</tt> or <tt>true</tt> (in any case),
+     *         like {@link org.cujau.utils.converters.StringConverterHelper#booleanValueOf(String)}.
+     */
+    public boolean getBoolean( CSVRecord record, int column ) {
+        return parseBoolean( record.getField( column ) );
+    }
+
+    public int parseInt( CharSequence value )
+            throws NumberFormatException {
+        return CSVNumbers.parseInt( value, symbols.getGroupingSeparator() );
+    }
+
+    public long parseLong( CharSequence value )
+            throws NumberFormatException {
+        return CSVNumbers.parseLong( value, symbols.getGroupingSeparator() );
+    }
+
+    public double parseDouble( CharSequence value )
+            throws NumberFormatException {
+        return CSVNumbers.parseDouble( value, symbols.getDecimalSeparator(), symbols.getGroupingSeparator() );
+    }
+
+    public boolean parseBoolean( CharSequence value ) {
+        return contentEqualsIgnoreCase( value, "1" ) || contentEqualsIgnoreCase( value, "yes" )
+               || contentEqualsIgnoreCase( value, "true" );
+    }
+
+    static boolean contentEqualsIgnoreCase( CharSequence value, String str ) {
+        int len = value.length();
+        if ( len != str.length() ) {
+            return false;
+        }
+        for ( int i = 0; i < len; i++ ) {
+            if ( Character.toLowerCase( value.charAt( i ) ) != str.charAt( i ) ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder( "CSVSchema: header=" ).append( header ).append( " columns=[" );
+        for ( int i = 0; i < names.size(); i++ ) {
+            if ( i > 0 ) {
+                sb.append( ", " );
+            }
+            sb.append( names.get( i ) ).append( ':' ).append( types.get( i ) );
+        }
+        return sb.append( "] " ).append( symbols ).toString();
+    }
+}
@@ -0,0 +1,341 @@
+package org.cujau.utils.csv;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Infers the {@link CSVSchema} of foreign CSV data from a sample.
+ * <p>
+ * The first {@link #getSampleSize()} bytes (or chars) of the data are parsed with each of the
+ * candidate record separators <tt>,</tt> <tt>;</tt> <tt>\t</tt> and <tt>|</tt>. The separator that
+ * splits the most records into the same number of fields wins; ties go to the separator that
+ * {@link CSVSymbols} picks for the locale. The line separator is the first line break found outside
+ * of quotes.
+ * </p>
+ * <p>
+ * Each column gets the narrowest {@link CSVColumnType} that all of its non-empty values fit into.
+ * Numbers are recognized with the decimal and grouping separators of the locale, like
+ * {@link org.cujau.utils.converters.StringConverterHelper} does. Whether the first line is a header
+ * is decided by a vote of the columns: a typed column votes for a header if its first value does not
+ * have that type, and a text column whose values all have the same length votes for a header if its
+ * first value has another length.
+ * </p>
+ * <p>
+ * When sniffing a file, additional samples can be taken at random offsets with
+ * {@link #setRandomSamples(int)}, so that the column types also hold for values far from the start
+ * of the file. These samples are read through a memory-mapped buffer and start at the first line
+ * break after the random offset.
+ * </p>
+ */
+public class CSVSniffer {
+
+    public static final int DEFAULT_SAMPLE_SIZE = 64 * 1024;
+
+    private static final char[] CANDIDATE_SEPARATORS = { ',', ';', '\t', '|' };
+    private static final int UNSET_LENGTH = -1;
+    private static final int VARYING_LENGTH = -2;
+
+    private final Locale locale;
+    private Charset charset = StandardCharsets.UTF_8;
+    private int sampleSize = DEFAULT_SAMPLE_SIZE;
+    private int randomSamples;
+
+    public CSVSniffer() {
+        this( Locale.getDefault( Locale.Category.FORMAT ) );
+    }
+
+    /**
+     * @param locale
+     *         The locale whose decimal and grouping separators are used for the numbers.
+     */
+    public CSVSniffer( Locale locale ) {
+        this.locale = locale;
+    }
+
+    public Locale getLocale() {
+        return locale;
+    }
+
+    public Charset getCharset() {
+        return charset;
+    }
+
+    /**
+     * Set the charset of the files to sniff. Defaults to UTF-8.
+     */
+    public void setCharset( Charset charset ) {
+        this.charset = charset;
+    }
+
+    public int getSampleSize() {
+        return sampleSize;
+    }
+
+    /**
+     * Set the size of each sample, in bytes for files and in chars for Readers. Defaults to
+     * {@link #DEFAULT_SAMPLE_SIZE}.
+     */
+    public void setSampleSize( int sampleSize ) {
+        if ( sampleSize <= 0 ) {
+            throw new IllegalArgumentException( "sampleSize must be > 0" );
+        }
+        this.sampleSize = sampleSize;
+    }
+
+    public int getRandomSamples() {
+        return randomSamples;
+    }
+
+    /**
+     * Set the number of samples taken at random offsets of a file, in addition to the sample at its
+     * start. Defaults to 0.
+     */
+    public void setRandomSamples( int randomSamples ) {
+        this.randomSamples = randomSamples;
+    }
+
+    /**
+     * Infer the schema of the given file.
+     */
+    public CSVSchema sniff( File file )
+            throws IOException {
+        List<CharBuffer> samples = new ArrayList<CharBuffer>();
+        List<Boolean> truncated = new ArrayList<Boolean>();
+        try ( FileChannel channel = FileChannel.open( file.toPath(), StandardOpenOption.READ ) ) {
+            long size = channel.size();
+            int len = (int) Math.min( sampleSize, size );
+            CharBuffer head = decode( channel.map( FileChannel.MapMode.READ_ONLY, 0, len ) );
+            if ( head.hasRemaining() && head.get( head.position() ) == '\ufeff' ) {
+                head.position( head.position() + 1 );
+            }
+            samples.add( head );
+            truncated.add( len < size );
+
+            if ( randomSamples > 0 && size > 2L * sampleSize ) {
+                // Seeded with the size so that the same file always gets the same schema.
+                Random random = new Random( size );
+                byte quote = (byte) new CSVSymbols( locale ).getQuoteChar();
+                for ( int i = 0; i < randomSamples; i++ ) {
+                    long offset = sampleSize + (long) ( random.nextDouble() * ( size - 2L * sampleSize ) );
+                    long from = CSVParallelLoader.findRecordStart( channel, offset, false, size, quote );
+                    len = (int) Math.min( sampleSize, size - from );
+                    if ( len > 0 ) {
+                        samples.add( decode( channel.map( FileChannel.MapMode.READ_ONLY, from, len ) ) );
+                        truncated.add( from + len < size );
+                    }
+                }
+            }
+        }
+        return sniff( samples, truncated );
+    }
+
+    /**
+     * Infer the schema of the data read from the given Reader. Only the first
+     * {@link #getSampleSize()} chars are read; the Reader is not closed.
+     */
+    public CSVSchema sniff( Reader reader )
+            throws IOException {
+        char[] chars = new char[sampleSize];
+        int len = 0;
+        int n;
+        while ( len < chars.length && ( n = reader.read( chars, len, chars.length - len ) ) != -1 ) {
+            len += n;
+        }
+        boolean truncated = len == chars.length && reader.read() != -1;
+        int start = len > 0 && chars[0] == '\ufeff' ? 1 : 0;
+        List<CharBuffer> samples = new ArrayList<CharBuffer>( 1 );
+        samples.add( CharBuffer.wrap( chars, start, len - start ) );
+        List<Boolean> truncations = new ArrayList<Boolean>( 1 );
+        truncations.add( truncated );
+        return sniff( samples, truncations );
+    }
+
+    private CSVSchema sniff( List<CharBuffer> samples, List<Boolean> truncated )
+            throws IOException {
+        CharBuffer head = samples.get( 0 );
+        CSVSymbols symbols = new CSVSymbols( locale );
+        String lineSeparator = findLineSeparator( head, symbols.getQuoteChar() );
+        if ( lineSeparator != null ) {
+            symbols.setLineSeparator( lineSeparator );
+        }
+
+        // Pick the separator that splits the most records into the same number of fields.
+        char localeSeparator = symbols.getRecordSeparator();
+        char separator = localeSeparator;
+        List<List<String>> records = null;
+        int width = 0;
+        int bestScore = -1;
+        for ( char candidate : CANDIDATE_SEPARATORS ) {
+            symbols.setRecordSeparator( candidate );
+            List<List<String>> parsed = parse( head, truncated.get( 0 ), symbols );
+            int[] mode = mostCommonWidth( parsed );
+            // A single column says nothing about the separator.
+            int score = mode[0] > 1 ? mode[1] : 0;
+            if ( score > bestScore || ( score == bestScore && candidate == localeSeparator ) ) {
+                separator = candidate;
+                records = parsed;
+                width = mode[0];
+                bestScore = score;
+            }
+        }
+        symbols.setRecordSeparator( separator );
+
+        // Type the columns from the records after the first one, in all the samples.
+        CSVColumnType[] types = new CSVColumnType[width];
+        int[] lengths = new int[width];
+        Arrays.fill( lengths, UNSET_LENGTH );
+        for ( int i = 1; i < records.size(); i++ ) {
+            accumulate( records.get( i ), types, lengths, symbols );
+        }
+        for ( int i = 1; i < samples.size(); i++ ) {
+            for ( List<String> record : parse( samples.get( i ), truncated.get( i ), symbols ) ) {
+                accumulate( record, types, lengths, symbols );
+            }
+        }
+
+        List<String> first = records.isEmpty() ? null : records.get( 0 );
+        boolean header = records.size() > 1 && isHeader( first, types, lengths, symbols );
+        if ( !header && first != null ) {
+            accumulate( first, types, lengths, symbols );
+        }
+        List<String> names = new ArrayList<String>( width );
+        List<CSVColumnType> columnTypes = new ArrayList<CSVColumnType>( width );
+        for ( int c = 0; c < width; c++ ) {
+            names.add( header && c < first.size() ? first.get( c ).trim() : "column" + ( c + 1 ) );
+            columnTypes.add( types[c] == null ? CSVColumnType.STRING : types[c] );
+        }
+        return new CSVSchema( symbols, header, names, columnTypes );
+    }
+
+    /**
+     * @return <tt>true</tt> if most columns vote for the first record being a header.
+     */
+    private static boolean isHeader( List<String> first, CSVColumnType[] types, int[] lengths,
+                                     CSVSymbols symbols ) {
+        int votes = 0;
+        for ( int c = 0; c < types.length && c < first.size(); c++ ) {
+            String value = first.get( c );
+            if ( types[c] == null || isBlank( value ) ) {
+                continue;
+            }
+            if ( types[c] != CSVColumnType.STRING ) {
+                votes += typeOf( value, symbols ) == CSVColumnType.STRING ? 1 : -1;
+            } else if ( lengths[c] >= 0 ) {
+                votes += value.length() != lengths[c] ? 1 : -1;
+            }
+        }
+        return votes > 0;
+    }
+
+    private static void accumulate( List<String> record, CSVColumnType[] types, int[] lengths,
+                                    CSVSymbols symbols ) {
+        for ( int c = 0; c < types.length && c < record.size(); c++ ) {
+            String value = record.get( c );
+            if ( isBlank( value ) ) {
+                continue;
+            }
+            CSVColumnType type = typeOf( value, symbols );
+            types[c] = types[c] == null ? type : types[c].merge( type );
+            if ( lengths[c] == UNSET_LENGTH ) {
+                lengths[c] = value.length();
+            } else if ( lengths[c] != value.length() ) {
+                lengths[c] = VARYING_LENGTH;
+            }
+        }
+    }
+
+    static CSVColumnType typeOf( String value, CSVSymbols symbols ) {
+        String v = value.trim();
+        if ( v.equalsIgnoreCase( "true" ) || v.equalsIgnoreCase( "false" ) || v.equalsIgnoreCase( "yes" )
+             || v.equalsIgnoreCase( "no" ) ) {
+            return CSVColumnType.BOOLEAN;
+        }
+        CSVColumnType type = CSVNumbers.classify( v, symbols.getDecimalSeparator(), symbols.getGroupingSeparator() );
+        return type == null ? CSVColumnType.STRING : type;
+    }
+
+    private static boolean isBlank( String value ) {
+        return value.trim().isEmpty();
+    }
+
+    /**
+     * @return The most common number of fields of the records, and how many records have it.
+     */
+    private static int[] mostCommonWidth( List<List<String>> records ) {
+        Map<Integer, Integer> counts = new HashMap<Integer, Integer>();
+        int width = 0;
+        int count = 0;
+        for ( List<String> record : records ) {
+            int n = counts.merge( record.size(), 1, Integer::sum );
+            if ( n > count || ( n == count && record.size() > width ) ) {
+                width = record.size();
+                count = n;
+            }
+        }
+        return new int[] { width, count };
+    }
+
+    /**
+     * Parse the non-empty records of the sample. If the sample was cut off, its last record is
+     * incomplete and dropped. The sample itself is left untouched, because the reader unescapes the
+     * quoted fields in place and the same sample is parsed with every candidate separator.
+     */
+    private static List<List<String>> parse( CharBuffer sample, boolean truncated, CSVSymbols symbols )
+            throws IOException {
+        char[] chars = new char[sample.remaining()];
+        sample.duplicate().get( chars );
+        CSVReader reader = new CSVReader( chars, 0, chars.length, symbols );
+        List<List<String>> ret = new ArrayList<List<String>>();
+        List<String> record;
+        while ( ( record = reader.readRecord() ) != null ) {
+            if ( !record.isEmpty() ) {
+                ret.add( record );
+            }
+        }
+        if ( truncated && !ret.isEmpty() ) {
+            ret.remove( ret.size() - 1 );
+        }
+        return ret;
+    }
+
+    /**
+     * @return The first line break outside of quotes, or <tt>null</tt> if there is none.
+     */
+    private static String findLineSeparator( CharBuffer sample, char quote ) {
+        boolean inQuote = false;
+        for ( int i = sample.position(); i < sample.limit(); i++ ) {
+            char c = sample.get( i );
+            if ( c == quote ) {
+                inQuote = !inQuote;
+            } else if ( !inQuote && c == '\n' ) {
+                return "\n";
+            } else if ( !inQuote && c == '\r' ) {
+                return i + 1 < sample.limit() && sample.get( i + 1 ) == '\n' ? "\r\n" : "\r";
+            }
+        }
+        return null;
+    }
+
+    private CharBuffer decode( MappedByteBuffer bytes )
+            throws IOException {
+        return charset.newDecoder()
+                      .onMalformedInput( CodingErrorAction.REPLACE )
+                      .onUnmappableCharacter( CodingErrorAction.REPLACE )
+                      .decode( bytes );
+    }
+}
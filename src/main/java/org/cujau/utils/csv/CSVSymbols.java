@@ -7,10 +7,18 @@ public class CSVSymbols implements CSVSettableDateFormat {
 
     private static final char DEFAULT_SEPARATOR = ',';
     private static final char ALTERNATE_SEPARATOR = ';';
+    private static final char DEFAULT_QUOTE = '"';
 
     private char separator;
     private String lineSeparator;
     private String dateFormat;
+    private char quoteChar = DEFAULT_QUOTE;
+    private char escapeChar = DEFAULT_QUOTE;
+    private CSVQuotePolicy quotePolicy = CSVQuotePolicy.MINIMAL;
+    private char decimalSeparator;
+    private char groupingSeparator;
+    // Compiled on demand from the symbols above and dropped whenever one of them changes.
+    private CSVCharClasses charClasses;
     
     public CSVSymbols() {
         this( Locale.getDefault( Locale.Category.FORMAT ) );
@@ -22,6 +30,7 @@ public class CSVSymbols implements CSVSettableDateFormat {
 
     public void setRecordSeparator( char separator ) {
         this.separator = separator;
+        charClasses = null;
     }
 
     public char getRecordSeparator() {
@@ -36,6 +45,79 @@ public class CSVSymbols implements CSVSettableDateFormat {
         return lineSeparator;
     }
 
+    /**
+     * Set the char used to quote fields. Defaults to <tt>"</tt>.
+     */
+    public void setQuoteChar( char quoteChar ) {
+        this.quoteChar = quoteChar;
+        charClasses = null;
+    }
+
+    public char getQuoteChar() {
+        return quoteChar;
+    }
+
+    /**
+     * Set the char that escapes the quote char (and itself) inside quoted fields. Defaults to the
+     * quote char, which means that quote chars are doubled.
+     */
+    public void setEscapeChar( char escapeChar ) {
+        this.escapeChar = escapeChar;
+        charClasses = null;
+    }
+
+    public char getEscapeChar() {
+        return escapeChar;
+    }
+
+    /**
+     * Set which fields are quoted. Defaults to {@link CSVQuotePolicy#MINIMAL}. Use
+     * {@link CSVQuotePolicy#STRICT} if fields containing the quote char must be read back.
+     */
+    public void setQuotePolicy( CSVQuotePolicy quotePolicy ) {
+        this.quotePolicy = quotePolicy;
+        charClasses = null;
+    }
+
+    public CSVQuotePolicy getQuotePolicy() {
+        return quotePolicy;
+    }
+
+    /**
+     * Set the decimal separator of the numbers in the CSV data. Defaults to the one of the locale.
+     */
+    public void setDecimalSeparator( char decimalSeparator ) {
+        this.decimalSeparator = decimalSeparator;
+        charClasses = null;
+    }
+
+    public char getDecimalSeparator() {
+        return decimalSeparator;
+    }
+
+    /**
+     * Set the grouping (thousands) separator of the numbers in the CSV data. Defaults to the one of
+     * the locale.
+     */
+    public void setGroupingSeparator( char groupingSeparator ) {
+        this.groupingSeparator = groupingSeparator;
+        charClasses = null;
+    }
+
+    public char getGroupingSeparator() {
+        return groupingSeparator;
+    }
+
+    CSVCharClasses getCharClasses() {
+        CSVCharClasses cc = charClasses;
+        if ( cc == null ) {
+            cc = new CSVCharClasses( separator, quoteChar, escapeChar, quotePolicy, decimalSeparator,
+                                     groupingSeparator );
+            charClasses = cc;
+        }
+        return cc;
+    }
+
     @Override
     public void setDateFormat( String df ) {
         this.dateFormat = df;
@@ -54,6 +136,8 @@ public class CSVSymbols implements CSVSettableDateFormat {
         // Try to determine what the record separator should be.
         //
         DecimalFormatSymbols dfs = new DecimalFormatSymbols( locale );
+        decimalSeparator = dfs.getDecimalSeparator();
+        groupingSeparator = dfs.getGroupingSeparator();
         // The first part of this statement is to detect locales like 'fr' and 'de' where
         // the decimal separator is not the 'en' standard '.'.
         //
@@ -72,6 +156,7 @@ public class CSVSymbols implements CSVSettableDateFormat {
     
     @Override
     public String toString() {
-        return "CSVSymbols: sep='"+separator+"' lineSep='"+lineSeparator+"'";
+        return "CSVSymbols: sep='"+separator+"' lineSep='"+lineSeparator+"' quote='"+quoteChar+"' escape='"
+               +escapeChar+"' policy="+quotePolicy+" decimal='"+decimalSeparator+"' grouping='"+groupingSeparator+"'";
     }
 }
@@ -0,0 +1,832 @@
+package org.cujau.utils.csv;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Columnar in-memory table of CSV data.
+ * <p>
+ * Every column of the {@link CSVSchema} is stored in a single array: <tt>int[]</tt>,
+ * <tt>long[]</tt> or <tt>double[]</tt> for numeric columns and a bit set for boolean columns. Text
+ * columns are dictionary-encoded, so each distinct value is stored once and each row only takes an
+ * <tt>int</tt>. When a text column has more than {@link #getMaxDictionarySize()} distinct values,
+ * its values are stored back to back in a single <tt>char[]</tt> instead. Empty and missing fields
+ * are recorded in a null bitmap per column.
+ * </p>
+ * <p>
+ * The table is filled by {@link #handleRecord(CSVRecord)} straight from the {@link CharSequence}
+ * views of the parser, so no String is created per field. It can therefore be filled by a
+ * {@link CSVReader} (see {@link #read(CSVSchema, Reader)}) or by a {@link CSVParallelLoader} in
+ * ordered mode. If the schema has a header, the first record handed to the table is skipped.
+ * </p>
+ * <p>
+ * The schema is usually inferred from a sample. If a later value does not fit the type of its
+ * column, the column is widened (<tt>INT</tt> to <tt>LONG</tt> to <tt>DOUBLE</tt>, anything to
+ * <tt>STRING</tt>) and {@link #getColumnType(int)} reports the new type. The rows read before a
+ * column is widened to text hold the text of their values (<tt>5</tt> for <tt>+5</tt>,
+ * <tt>100.0</tt> for <tt>100</tt>). If the fields must be given back as they were read, call
+ * {@link #setKeepOriginalText(boolean)}: each typed column then also keeps the text of the fields
+ * that its values do not give back exactly (<tt>+5</tt>, <tt>007</tt>, <tt>1,234</tt>,
+ * <tt>yes</tt>), dictionary-encoded like a text column, which can take as much memory as the values.
+ * </p>
+ * <p>
+ * A CSVTable is not thread-safe while it is being filled.
+ * </p>
+ */
+public class CSVTable implements CSVRecordHandler {
+
+    public static final int DEFAULT_MAX_DICTIONARY_SIZE = 1 << 16;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final CSVSchema schema;
+    private final Column[] columns;
+    private int rowCount;
+    private boolean skipHeader;
+    private int maxDictionarySize = DEFAULT_MAX_DICTIONARY_SIZE;
+    private boolean keepOriginalText;
+
+    public CSVTable( CSVSchema schema ) {
+        this.schema = schema;
+        this.skipHeader = schema.hasHeader();
+        this.columns = new Column[schema.getColumnCount()];
+        for ( int c = 0; c < columns.length; c++ ) {
+            columns[c] = Column.create( schema.getColumnType( c ) );
+        }
+    }
+
+    /**
+     * Read all the records of the given Reader into a new table. The Reader is not closed.
+     */
+    public static CSVTable read( CSVSchema schema, Reader reader )
+            throws IOException {
+        CSVTable table = new CSVTable( schema );
+        CSVReader csv = new CSVReader( reader, schema.getCSVSymbols() );
+        while ( csv.nextRecord() ) {
+            table.handleRecord( csv );
+        }
+        table.trimToSize();
+        return table;
+    }
+
+    public CSVSchema getSchema() {
+        return schema;
+    }
+
+    public int getMaxDictionarySize() {
+        return maxDictionarySize;
+    }
+
+    /**
+     * Set the number of distinct values above which a text column is no longer dictionary-encoded.
+     * Defaults to {@link #DEFAULT_MAX_DICTIONARY_SIZE}.
+     */
+    public void setMaxDictionarySize( int maxDictionarySize ) {
+        this.maxDictionarySize = maxDictionarySize;
+    }
+
+    public boolean isKeepOriginalText() {
+        return keepOriginalText;
+    }
+
+    /**
+     * Keep the text of the fields that typed columns do not give back exactly, so that a column
+     * widened to <tt>STRING</tt> holds the fields as they were read. Defaults to <tt>false</tt>. Must
+     * be set before the table is filled.
+     */
+    public void setKeepOriginalText( boolean keepOriginalText ) {
+        this.keepOriginalText = keepOriginalText;
+    }
+
+    /**
+     * Append the record as a new row. Fields beyond the columns of the schema are ignored.
+     */
+    @Override
+    public void handleRecord( CSVRecord record ) {
+        if ( skipHeader ) {
+            skipHeader = false;
+            return;
+        }
+        if ( record.getFieldCount() == 0 ) {
+            // Blank line.
+            return;
+        }
+        int fields = record.getFieldCount();
+        for ( int c = 0; c < columns.length; c++ ) {
+            CharSequence value = c < fields ? record.getField( c ) : null;
+            if ( value == null || isBlank( value ) ) {
+                columns[c].setNull( rowCount );
+                columns[c].appendNull( rowCount );
+            } else {
+                columns[c] = columns[c].append( rowCount, value, this );
+            }
+        }
+        rowCount++;
+    }
+
+    /**
+     * Release the unused capacity of the columns once the table is filled.
+     */
+    public void trimToSize() {
+        for ( Column column : columns ) {
+            column.trimToSize( rowCount );
+        }
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    /**
+     * @return The type of the column, which may be wider than the one of the schema.
+     */
+    public CSVColumnType getColumnType( int column ) {
+        return columns[column].getType();
+    }
+
+    /**
+     * @return <tt>true</tt> if the field was empty or missing.
+     */
+    public boolean isNull( int row, int column ) {
+        checkRow( row );
+        return columns[column].isNull( row );
+    }
+
+    /**
+     * @return The value of an <tt>INT</tt> column, or 0 if the field is null.
+     */
+    public int getInt( int row, int column ) {
+        checkRow( row );
+        return columns[column].getInt( row );
+    }
+
+    /**
+     * @return The value of an <tt>INT</tt> or <tt>LONG</tt> column, or 0 if the field is null.
+     */
+    public long getLong( int row, int column ) {
+        checkRow( row );
+        return columns[column].getLong( row );
+    }
+
+    /**
+     * @return The value of a numeric column, or 0 if the field is null.
+     */
+    public double getDouble( int row, int column ) {
+        checkRow( row );
+        return columns[column].getDouble( row );
+    }
+
+    /**
+     * @return The value of a <tt>BOOLEAN</tt> column, or <tt>false</tt> if the field is null.
+     */
+    public boolean getBoolean( int row, int column ) {
+        checkRow( row );
+        return columns[column].getBoolean( row );
+    }
+
+    /**
+     * @return The value of any column as a String, or <tt>null</tt> if the field is null. The values
+     *         of dictionary-encoded columns are shared, other values are created on each call.
+     */
+    public String getString( int row, int column ) {
+        checkRow( row );
+        Column col = columns[column];
+        return col.isNull( row ) ? null : col.getString( row );
+    }
+
+    private void checkRow( int row ) {
+        if ( row < 0 || row >= rowCount ) {
+            throw new IndexOutOfBoundsException( "Row " + row + " of " + rowCount );
+        }
+    }
+
+    private static boolean isBlank( CharSequence value ) {
+        for ( int i = 0; i < value.length(); i++ ) {
+            if ( !Character.isWhitespace( value.charAt( i ) ) ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int grow( int capacity, int row ) {
+        return Math.max( row + 1, capacity + ( capacity >> 1 ) );
+    }
+
+    /**
+     * @return The length of {@link Long#toString(long)} of the value.
+     */
+    private static int stringSize( long value ) {
+        int size = value < 0 ? 2 : 1;
+        for ( long v = value; v <= -10 || v >= 10; v /= 10 ) {
+            size++;
+        }
+        return size;
+    }
+
+    abstract static class Column {
+        private long[] nulls = new long[1];
+
+        // The text of the rows that getString() does not give back as read, for widening to STRING.
+        // Only kept if the table keeps the original text.
+        private StringColumn originals;
+        private int originalRows;
+
+        static Column create( CSVColumnType type ) {
+            switch ( type ) {
+            case INT:
+                return new IntColumn();
+            case LONG:
+                return new LongColumn();
+            case DOUBLE:
+                return new DoubleColumn();
+            case BOOLEAN:
+                return new BooleanColumn();
+            default:
+                return new StringColumn();
+            }
+        }
+
+        abstract CSVColumnType getType();
+
+        /**
+         * Store the value in the given row.
+         *
+         * @return This column, or a wider column holding the previous rows and the value if the value
+         *         does not fit this column.
+         */
+        abstract Column append( int row, CharSequence value, CSVTable table );
+
+        abstract void appendNull( int row );
+
+        abstract String getString( int row );
+
+        void trimToSize( int rows ) {
+            nulls = Arrays.copyOf( nulls, Math.max( 1, ( rows + 63 ) >>> 6 ) );
+            if ( originals != null ) {
+                originals.trimToSize( originalRows );
+            }
+        }
+
+        /**
+         * @return <tt>true</tt> if {@link #getString(int)} gives back the value stored in the row.
+         */
+        boolean isCanonical( int row, CharSequence value ) {
+            return StringColumn.contentEquals( getString( row ), value );
+        }
+
+        /**
+         * Remember the text of the value stored in the row if the column cannot give it back.
+         */
+        final void keepOriginal( int row, CharSequence value, CSVTable table ) {
+            if ( !table.keepOriginalText || isCanonical( row, value ) ) {
+                return;
+            }
+            if ( originals == null ) {
+                originals = new StringColumn();
+            }
+            for ( ; originalRows < row; originalRows++ ) {
+                originals.setNull( originalRows );
+                originals.appendNull( originalRows );
+            }
+            originals.append( row, value, table );
+            originalRows = row + 1;
+        }
+
+        /**
+         * @return The value of the row as it was read.
+         */
+        final String getOriginal( int row ) {
+            if ( row < originalRows && !originals.isNull( row ) ) {
+                return originals.getString( row );
+            }
+            return getString( row );
+        }
+
+        int getInt( int row ) {
+            throw unsupported( CSVColumnType.INT );
+        }
+
+        long getLong( int row ) {
+            throw unsupported( CSVColumnType.LONG );
+        }
+
+        double getDouble( int row ) {
+            throw unsupported( CSVColumnType.DOUBLE );
+        }
+
+        boolean getBoolean( int row ) {
+            throw unsupported( CSVColumnType.BOOLEAN );
+        }
+
+        final boolean isNull( int row ) {
+            int word = row >>> 6;
+            return word < nulls.length && ( nulls[word] & ( 1L << row ) ) != 0;
+        }
+
+        final void setNull( int row ) {
+            int word = row >>> 6;
+            if ( word >= nulls.length ) {
+                nulls = Arrays.copyOf( nulls, grow( nulls.length, word ) );
+            }
+            nulls[word] |= 1L << row;
+        }
+
+        /**
+         * Copy the rows so far into a column of the type that fits both them and the value, then
+         * append the value to it.
+         */
+        final Column widen( int row, CharSequence value, CSVTable table ) {
+            CSVColumnType valueType = CSVSniffer.typeOf( value.toString(), table.schema.getCSVSymbols() );
+            CSVColumnType type = getType().merge( valueType );
+            if ( type == getType() ) {
+                // The value looks like it fits, but does not parse. Keep it as text.
+                type = CSVColumnType.STRING;
+            }
+            Column wider = create( type );
+            for ( int r = 0; r < row; r++ ) {
+                if ( isNull( r ) ) {
+                    wider.setNull( r );
+                    wider.appendNull( r );
+                } else {
+                    wider.copy( r, this, table );
+                    wider.keepOriginal( r, getOriginal( r ), table );
+                }
+            }
+            return wider.append( row, value, table );
+        }
+
+        /**
+         * Store the value of the given row of a narrower column.
+         */
+        void copy( int row, Column from, CSVTable table ) {
+            append( row, from.getOriginal( row ), table );
+        }
+
+        private UnsupportedOperationException unsupported( CSVColumnType requested ) {
+            return new UnsupportedOperationException( "Cannot read a " + getType() + " column as " + requested );
+        }
+    }
+
+    static final class IntColumn extends Column {
+        private int[] values = new int[INITIAL_CAPACITY];
+
+        @Override
+        CSVColumnType getType() {
+            return CSVColumnType.INT;
+        }
+
+        @Override
+        Column append( int row, CharSequence value, CSVTable table ) {
+            int v;
+            try {
+                v = table.schema.parseInt( value );
+            } catch ( NumberFormatException e ) {
+                return widen( row, value, table );
+            }
+            appendNull( row );
+            values[row] = v;
+            keepOriginal( row, value, table );
+            return this;
+        }
+
+        @Override
+        void appendNull( int row ) {
+            if ( row >= values.length ) {
+                values = Arrays.copyOf( values, grow( values.length, row ) );
+            }
+        }
+
+        @Override
+        void trimToSize( int rows ) {
+            super.trimToSize( rows );
+            values = Arrays.copyOf( values, rows );
+        }
+
+        @Override
+        int getInt( int row ) {
+            return values[row];
+        }
+
+        @Override
+        long getLong( int row ) {
+            return values[row];
+        }
+
+        @Override
+        double getDouble( int row ) {
+            return values[row];
+        }
+
+        @Override
+        String getString( int row ) {
+            return Integer.toString( values[row] );
+        }
+
+        @Override
+        boolean isCanonical( int row, CharSequence value ) {
+            // The parser only accepts a sign, digits and separators, so only the length can differ.
+            return value.length() == stringSize( values[row] );
+        }
+    }
+
+    static final class LongColumn extends Column {
+        private long[] values = new long[INITIAL_CAPACITY];
+
+        @Override
+        CSVColumnType getType() {
+            return CSVColumnType.LONG;
+        }
+
+        @Override
+        Column append( int row, CharSequence value, CSVTable table ) {
+            long v;
+            try {
+                v = table.schema.parseLong( value );
+            } catch ( NumberFormatException e ) {
+                return widen( row, value, table );
+            }
+            appendNull( row );
+            values[row] = v;
+            keepOriginal( row, value, table );
+            return this;
+        }
+
+        @Override
+        void copy( int row, Column from, CSVTable table ) {
+            appendNull( row );
+            values[row] = from.getLong( row );
+        }
+
+        @Override
+        void appendNull( int row ) {
+            if ( row >= values.length ) {
+                values = Arrays.copyOf( values, grow( values.length, row ) );
+            }
+        }
+
+        @Override
+        void trimToSize( int rows ) {
+            super.trimToSize( rows );
+            values = Arrays.copyOf( values, rows );
+        }
+
+        @Override
+        long getLong( int row ) {
+            return values[row];
+        }
+
+        @Override
+        double getDouble( int row ) {
+            return values[row];
+        }
+
+        @Override
+        String getString( int row ) {
+            return Long.toString( values[row] );
+        }
+
+        @Override
+        boolean isCanonical( int row, CharSequence value ) {
+            return value.length() == stringSize( values[row] );
+        }
+    }
+
+    static final class DoubleColumn extends Column {
+        private double[] values = new double[INITIAL_CAPACITY];
+        private final StringBuilder scratch = new StringBuilder( 32 );
+
+        @Override
+        CSVColumnType getType() {
+            return CSVColumnType.DOUBLE;
+        }
+
+        @Override
+        Column append( int row, CharSequence value, CSVTable table ) {
+            double v;
+            try {
+                v = table.schema.parseDouble( value );
+            } catch ( NumberFormatException e ) {
+                return widen( row, value, table );
+            }
+            appendNull( row );
+            values[row] = v;
+            keepOriginal( row, value, table );
+            return this;
+        }
+
+        @Override
+        void copy( int row, Column from, CSVTable table ) {
+            appendNull( row );
+            values[row] = from.getDouble( row );
+        }
+
+        @Override
+        void appendNull( int row ) {
+            if ( row >= values.length ) {
+                values = Arrays.copyOf( values, grow( values.length, row ) );
+            }
+        }
+
+        @Override
+        void trimToSize( int rows ) {
+            super.trimToSize( rows );
+            values = Arrays.copyOf( values, rows );
+        }
+
+        @Override
+        double getDouble( int row ) {
+            return values[row];
+        }
+
+        @Override
+        String getString( int row ) {
+            return Double.toString( values[row] );
+        }
+
+        @Override
+        boolean isCanonical( int row, CharSequence value ) {
+            // Double.toString always has a fraction or an exponent, or is NaN or Infinity. Compare
+            // the others in a scratch buffer rather than a new String per field.
+            int len = value.length();
+            boolean point = false;
+            for ( int i = 0; i < len && !point; i++ ) {
+                char ch = value.charAt( i );
+                point = ch == '.' || ch == 'E' || ch == 'N' || ch == 'I';
+            }
+            if ( !point ) {
+                return false;
+            }
+            scratch.setLength( 0 );
+            scratch.append( values[row] );
+            if ( scratch.length() != len ) {
+                return false;
+            }
+            for ( int i = 0; i < len; i++ ) {
+                if ( scratch.charAt( i ) != value.charAt( i ) ) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    static final class BooleanColumn extends Column {
+        private long[] bits = new long[INITIAL_CAPACITY >>> 6];
+
+        @Override
+        CSVColumnType getType() {
+            return CSVColumnType.BOOLEAN;
+        }
+
+        @Override
+        Column append( int row, CharSequence value, CSVTable table ) {
+            boolean v;
+            if ( is( value, "true" ) || is( value, "yes" ) || is( value, "1" ) ) {
+                v = true;
+            } else if ( is( value, "false" ) || is( value, "no" ) || is( value, "0" ) ) {
+                v = false;
+            } else {
+                return widen( row, value, table );
+            }
+            appendNull( row );
+            if ( v ) {
+                bits[row >>> 6] |= 1L << row;
+            }
+            keepOriginal( row, value, table );
+            return this;
+        }
+
+        private static boolean is( CharSequence value, String str ) {
+            return CSVSchema.contentEqualsIgnoreCase( value, str );
+        }
+
+        @Override
+        void appendNull( int row ) {
+            int word = row >>> 6;
+            if ( word >= bits.length ) {
+                bits = Arrays.copyOf( bits, grow( bits.length, word ) );
+            }
+        }
+
+        @Override
+        void trimToSize( int rows ) {
+            super.trimToSize( rows );
+            bits = Arrays.copyOf( bits, ( rows + 63 ) >>> 6 );
+        }
+
+        @Override
+        boolean getBoolean( int row ) {
+            return ( bits[row >>> 6] & ( 1L << row ) ) != 0;
+        }
+
+        @Override
+        String getString( int row ) {
+            return Boolean.toString( getBoolean( row ) );
+        }
+
+        @Override
+        boolean isCanonical( int row, CharSequence value ) {
+            return StringColumn.contentEquals( getBoolean( row ) ? "true" : "false", value );
+        }
+    }
+
+    /**
+     * Text column. The values are dictionary-encoded until there are too many distinct values, then
+     * they are stored back to back in a char array.
+     */
+    static final class StringColumn extends Column {
+        private static final int NO_CODE = -1;
+
+        // Dictionary encoding: the code of each row, and an open addressing hash table of the codes.
+        private String[] dictionary = new String[16];
+        private int[] hashes = new int[16];
+        private int dictionarySize;
+        private int[] slots = new int[32];
+        private int[] codes = new int[INITIAL_CAPACITY];
+
+        // Plain encoding, once dictionary is null: the end offset of each row in chars.
+        private char[] chars;
+        private int[] ends;
+        private int length;
+
+        StringColumn() {
+            Arrays.fill( slots, NO_CODE );
+        }
+
+        @Override
+        CSVColumnType getType() {
+            return CSVColumnType.STRING;
+        }
+
+        @Override
+        boolean isCanonical( int row, CharSequence value ) {
+            return true;
+        }
+
+        @Override
+        Column append( int row, CharSequence value, CSVTable table ) {
+            if ( dictionary != null ) {
+                int code = lookup( value );
+                if ( code == NO_CODE && dictionarySize >= table.maxDictionarySize ) {
+                    unpack( row );
+                } else {
+                    if ( code == NO_CODE ) {
+                        code = add( value );
+                    }
+                    appendNull( row );
+                    codes[row] = code;
+                    return this;
+                }
+            }
+            int len = value.length();
+            if ( length + len > chars.length ) {
+                chars = Arrays.copyOf( chars, grow( chars.length, length + len ) );
+            }
+            for ( int i = 0; i < len; i++ ) {
+                chars[length++] = value.charAt( i );
+            }
+            appendNull( row );
+            ends[row] = length;
+            return this;
+        }
+
+        @Override
+        void appendNull( int row ) {
+            if ( dictionary != null ) {
+                if ( row >= codes.length ) {
+                    codes = Arrays.copyOf( codes, grow( codes.length, row ) );
+                }
+                codes[row] = NO_CODE;
+            } else {
+                if ( row >= ends.length ) {
+                    ends = Arrays.copyOf( ends, grow( ends.length, row ) );
+                }
+                ends[row] = length;
+            }
+        }
+
+        @Override
+        void trimToSize( int rows ) {
+            super.trimToSize( rows );
+            if ( dictionary != null ) {
+                codes = Arrays.copyOf( codes, rows );
+            } else {
+                ends = Arrays.copyOf( ends, rows );
+                chars = Arrays.copyOf( chars, length );
+            }
+        }
+
+        @Override
+        String getString( int row ) {
+            if ( dictionary != null ) {
+                return dictionary[codes[row]];
+            }
+            int start = row == 0 ? 0 : ends[row - 1];
+            return new String( chars, start, ends[row] - start );
+        }
+
+        /**
+         * @return <tt>true</tt> while the column is dictionary-encoded.
+         */
+        boolean isDictionaryEncoded() {
+            return dictionary != null;
+        }
+
+        private int lookup( CharSequence value ) {
+            int hash = hash( value );
+            int mask = slots.length - 1;
+            for ( int i = mix( hash ) & mask; ; i = ( i + 1 ) & mask ) {
+                int code = slots[i];
+                if ( code == NO_CODE || ( hashes[code] == hash && contentEquals( dictionary[code], value ) ) ) {
+                    return code;
+                }
+            }
+        }
+
+        private int add( CharSequence value ) {
+            if ( dictionarySize == dictionary.length ) {
+                dictionary = Arrays.copyOf( dictionary, dictionarySize * 2 );
+                hashes = Arrays.copyOf( hashes, dictionarySize * 2 );
+            }
+            int code = dictionarySize++;
+            dictionary[code] = value.toString();
+            hashes[code] = hash( value );
+            if ( dictionarySize * 2 > slots.length ) {
+                slots = new int[slots.length * 2];
+                Arrays.fill( slots, NO_CODE );
+                for ( int c = 0; c < dictionarySize; c++ ) {
+                    insert( c );
+                }
+            } else {
+                insert( code );
+            }
+            return code;
+        }
+
+        private void insert( int code ) {
+            int mask = slots.length - 1;
+            int i = mix( hashes[code] ) & mask;
+            while ( slots[i] != NO_CODE ) {
+                i = ( i + 1 ) & mask;
+            }
+            slots[i] = code;
+        }
+
+        /**
+         * Switch the first <tt>rows</tt> rows to the plain encoding.
+         */
+        private void unpack( int rows ) {
+            long total = 0;
+            for ( int r = 0; r < rows; r++ ) {
+                if ( codes[r] != NO_CODE ) {
+                    total += dictionary[codes[r]].length();
+                }
+            }
+            chars = new char[(int) Math.min( Integer.MAX_VALUE - 8, total + ( total >> 1 ) + 16 )];
+            ends = new int[Math.max( codes.length, rows + 1 )];
+            for ( int r = 0; r < rows; r++ ) {
+                if ( codes[r] != NO_CODE ) {
+                    String s = dictionary[codes[r]];
+                    s.getChars( 0, s.length(), chars, length );
+                    length += s.length();
+                }
+                ends[r] = length;
+            }
+            dictionary = null;
+            hashes = null;
+            slots = null;
+            codes = null;
+        }
+
+        private static int hash( CharSequence value ) {
+            int h = 0;
+            for ( int i = 0; i < value.length(); i++ ) {
+                h = 31 * h + value.charAt( i );
+            }
+            return h;
+        }
+
+        private static int mix( int h ) {
+            return h ^ ( h >>> 16 );
+        }
+
+        private static boolean contentEquals( String s, CharSequence value ) {
+            int len = s.length();
+            if ( len != value.length() ) {
+                return false;
+            }
+            for ( int i = 0; i < len; i++ ) {
+                if ( s.charAt( i ) != value.charAt( i ) ) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
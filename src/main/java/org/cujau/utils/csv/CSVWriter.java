@@ -1,35 +1,93 @@
 package org.cujau.utils.csv;
 
+import java.io.CharArrayWriter;
+import java.io.Closeable;
+import java.io.Flushable;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/**
+ * Writes CSV lines to a parent {@link Writer}.
+ * <p>
+ * Records are scanned once, character by character, and copied into an internal char buffer with
+ * quote chars escaped and the surrounding quotes added inline, so no intermediate Strings are
+ * created per record. Which records are quoted is decided by the {@link CSVQuotePolicy} of the
+ * {@link CSVSymbols}. By default the buffer is handed to the parent Writer at the end of every
+ * line. When constructed with an explicit buffer size, the CSVWriter runs in buffered mode: the
+ * buffer is only handed to the parent Writer when it is full or when {@link #flush()} or
+ * {@link #close()} is called.
+ * </p>
+ */
+public class CSVWriter implements Flushable, Closeable {
+
+    static final int DEFAULT_BUFFER_SIZE = 8192;
+    private static final StringCSVRenderer STRING_RENDERER = new StringCSVRenderer();
 
-public class CSVWriter {
     private CSVSymbols symbols;
     private Writer writer;
+    private char[] buf;
+    private int pos;
+    private final boolean flushEachLine;
+    // Separator state and scratch space of the field-by-field API.
+    private boolean needSep;
+    private final StringBuilder scratch = new StringBuilder( 32 );
 
     public CSVWriter( Writer parentWriter ) {
         this( parentWriter, new CSVSymbols() );
     }
 
     public CSVWriter( Writer parentWriter, CSVSymbols symbols ) {
+        this( parentWriter, symbols, DEFAULT_BUFFER_SIZE, true );
+    }
+
+    /**
+     * Create a buffered CSVWriter. Rendered lines are kept in a buffer of <tt>bufferSize</tt> chars
+     * and written to the parent Writer in blocks. Call {@link #flush()} or {@link #close()} once all
+     * lines have been rendered.
+     *
+     * @param parentWriter
+     *         The Writer to which the CSV data is written.
+     * @param symbols
+     *         The CSV symbols to use.
+     * @param bufferSize
+     *         The size of the internal buffer in chars.
+     */
+    public CSVWriter( Writer parentWriter, CSVSymbols symbols, int bufferSize ) {
+        this( parentWriter, symbols, bufferSize, false );
+    }
+
+    private CSVWriter( Writer parentWriter, CSVSymbols symbols, int bufferSize, boolean flushEachLine ) {
+        if ( bufferSize <= 0 ) {
+            throw new IllegalArgumentException( "bufferSize must be > 0" );
+        }
         this.symbols = symbols;
         this.writer = parentWriter;
+        this.buf = new char[bufferSize];
+        this.flushEachLine = flushEachLine;
     }
 
     public CSVSymbols getCSVSymbols() {
         return symbols;
     }
-    
+
     public void renderLine( String... records ) throws IOException {
         renderLine( Arrays.asList( records ) );
     }
-    
+
     public void renderLine( List<String> records )
             throws IOException {
-        StringCSVRenderer renderer = new StringCSVRenderer();
-        renderLine( renderer, records );
+        renderLine( STRING_RENDERER, records );
     }
 
     public void renderLine( CSVRenderer renderer, List<Object> recordValues, Object... accessoryData )
@@ -39,41 +97,431 @@ public class CSVWriter {
             String s = renderer.renderRecord( value, accessoryData );
             needSep = writeRecord( s, needSep );
         }
-        writer.write( symbols.getLineSeparator() );
+        writeLineSeparator();
     }
 
     public <E> void renderLine( CSVTypedRenderer<E> renderer, List<E> recordValues, Object... accessoryData )
             throws IOException {
+        appendLine( renderer, recordValues, accessoryData );
+        if ( flushEachLine ) {
+            flushBuffer();
+        }
+    }
+
+    /**
+     * Render all the given lines of Strings. See
+     * {@link #renderLines(CSVTypedRenderer, Iterable, Object...)}.
+     */
+    public void renderLines( Iterable<? extends List<String>> lines )
+            throws IOException {
+        renderLines( STRING_RENDERER, lines );
+    }
+
+    /**
+     * Render all the given lines with the same renderer. Unlike calling
+     * {@link #renderLine(CSVTypedRenderer, List, Object...)} once per line, the lines are only
+     * handed to the parent Writer when the buffer is full and once at the end, even if this
+     * CSVWriter is not in buffered mode.
+     */
+    public <E> void renderLines( CSVTypedRenderer<E> renderer, Iterable<? extends List<E>> lines,
+                                 Object... accessoryData )
+            throws IOException {
+        renderLines( renderer, lines.iterator(), accessoryData );
+    }
+
+    /**
+     * Render all the lines of the given Stream with the same renderer. See
+     * {@link #renderLines(CSVTypedRenderer, Iterable, Object...)}.
+     */
+    public <E> void renderLines( CSVTypedRenderer<E> renderer, Stream<? extends List<E>> lines,
+                                 Object... accessoryData )
+            throws IOException {
+        renderLines( renderer, lines.iterator(), accessoryData );
+    }
+
+    private <E> void renderLines( CSVTypedRenderer<E> renderer, Iterator<? extends List<E>> lines,
+                                  Object... accessoryData )
+            throws IOException {
+        while ( lines.hasNext() ) {
+            appendLine( renderer, lines.next(), accessoryData );
+        }
+        if ( flushEachLine ) {
+            flushBuffer();
+        }
+    }
+
+    /**
+     * Render all the given lines on the threads of the given executor.
+     * <p>
+     * The lines are cut into batches of <tt>batchSize</tt> lines. Each batch is rendered by a worker
+     * into its own buffer, and the buffers are written to the parent Writer in the original order.
+     * Only a bounded number of batches are in flight at any time, and their buffers are reused. The
+     * renderer must be thread-safe.
+     * </p>
+     *
+     * @param renderer
+     *         The thread-safe renderer used for all the lines.
+     * @param lines
+     *         The lines to render.
+     * @param executor
+     *         The executor on which the batches are rendered.
+     * @param batchSize
+     *         The number of lines rendered per task.
+     * @param accessoryData
+     *         Passed to the renderer.
+     * @throws IOException
+     *         If the lines could not be written.
+     */
+    public <E> void renderLinesParallel( final CSVTypedRenderer<E> renderer, Iterable<? extends List<E>> lines,
+                                         ExecutorService executor, int batchSize, final Object... accessoryData )
+            throws IOException {
+        if ( batchSize <= 0 ) {
+            throw new IllegalArgumentException( "batchSize must be > 0" );
+        }
+        int window = Math.max( 2, Runtime.getRuntime().availableProcessors() * 2 );
+        Deque<Future<Batch>> pending = new ArrayDeque<Future<Batch>>( window );
+        Deque<Batch> free = new ArrayDeque<Batch>( window );
+        Iterator<? extends List<E>> it = lines.iterator();
+        try {
+            while ( it.hasNext() || !pending.isEmpty() ) {
+                while ( it.hasNext() && pending.size() < window ) {
+                    final List<List<E>> batchLines = new ArrayList<List<E>>( batchSize );
+                    while ( it.hasNext() && batchLines.size() < batchSize ) {
+                        batchLines.add( it.next() );
+                    }
+                    Batch b = free.poll();
+                    final Batch batch = b != null ? b : new Batch( symbols, buf.length );
+                    pending.add( executor.submit( () -> batch.render( renderer, batchLines, accessoryData ) ) );
+                }
+                Batch done = getBatch( pending.poll() );
+                flushBuffer();
+                done.out.writeTo( writer );
+                done.out.reset();
+                free.add( done );
+            }
+        } finally {
+            for ( Future<Batch> f : pending ) {
+                f.cancel( false );
+            }
+        }
+    }
+
+    private static Batch getBatch( Future<Batch> future )
+            throws IOException {
+        try {
+            return future.get();
+        } catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException( "Interrupted while rendering CSV lines" );
+        } catch ( ExecutionException e ) {
+            Throwable cause = e.getCause();
+            if ( cause instanceof IOException ) {
+                throw (IOException) cause;
+            } else if ( cause instanceof RuntimeException ) {
+                throw (RuntimeException) cause;
+            } else if ( cause instanceof Error ) {
+                throw (Error) cause;
+            }
+            throw new IOException( cause );
+        }
+    }
+
+    private <E> void appendLine( CSVTypedRenderer<E> renderer, List<E> recordValues, Object... accessoryData )
+            throws IOException {
         boolean needSep = false;
         for ( E value : recordValues ) {
             String s = renderer.renderRecord( value, accessoryData );
             needSep = writeRecord( s, needSep );
         }
-        writer.write( symbols.getLineSeparator() );
+        appendLineSeparator();
+    }
+
+    /**
+     * Write a single field of the current line. Together with the other <tt>writeField</tt> methods
+     * and {@link #endLine()}, this allows a line to be written field by field without building a
+     * list of Strings first.
+     */
+    public void writeField( CharSequence value )
+            throws IOException {
+        separate();
+        writeEscaped( value );
+    }
+
+    /**
+     * Write a single <tt>long</tt> field of the current line directly into the buffer. It is only
+     * quoted with the {@link CSVQuotePolicy#ALL} quote policy.
+     */
+    public void writeField( long value )
+            throws IOException {
+        separate();
+        if ( value == Long.MIN_VALUE || buf.length < 22 ) {
+            // Cannot be negated, or the buffer is too small to take the digits directly.
+            scratch.setLength( 0 );
+            scratch.append( value );
+            writeEscaped( scratch );
+            return;
+        }
+        if ( buf.length - pos < 22 ) {
+            flushBuffer();
+        }
+        CSVCharClasses cc = symbols.getCharClasses();
+        boolean quote = cc.policy == CSVQuotePolicy.ALL;
+        if ( quote ) {
+            buf[pos++] = cc.quoteChar;
+        }
+        if ( value < 0 ) {
+            buf[pos++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for ( long v = value; v >= 10; v /= 10 ) {
+            digits++;
+        }
+        int p = pos + digits;
+        pos = p;
+        do {
+            buf[--p] = (char) ( '0' + (int) ( value % 10 ) );
+            value /= 10;
+        } while ( value != 0 );
+        if ( quote ) {
+            buf[pos++] = cc.quoteChar;
+        }
+    }
+
+    /**
+     * Write a single <tt>int</tt> field of the current line directly into the buffer.
+     */
+    public void writeField( int value )
+            throws IOException {
+        writeField( (long) value );
+    }
+
+    /**
+     * Write a single <tt>double</tt> field of the current line, formatted like
+     * {@link Double#toString(double)}.
+     */
+    public void writeField( double value )
+            throws IOException {
+        scratch.setLength( 0 );
+        scratch.append( value );
+        writeField( scratch );
+    }
+
+    /**
+     * Write a single <tt>float</tt> field of the current line, formatted like
+     * {@link Float#toString(float)}.
+     */
+    public void writeField( float value )
+            throws IOException {
+        scratch.setLength( 0 );
+        scratch.append( value );
+        writeField( scratch );
+    }
+
+    /**
+     * Write a single <tt>boolean</tt> field of the current line.
+     */
+    public void writeField( boolean value )
+            throws IOException {
+        writeField( value ? "true" : "false" );
+    }
+
+    /**
+     * End the current line started with the <tt>writeField</tt> methods.
+     */
+    public void endLine()
+            throws IOException {
+        writeLineSeparator();
+        needSep = false;
+    }
+
+    /**
+     * Write any buffered lines to the parent Writer and flush it.
+     */
+    @Override
+    public void flush()
+            throws IOException {
+        flushBuffer();
+        writer.flush();
+    }
+
+    /**
+     * Write any buffered lines to the parent Writer and close it.
+     */
+    @Override
+    public void close()
+            throws IOException {
+        flushBuffer();
+        writer.close();
     }
 
     boolean writeRecord( String s, boolean needSep )
             throws IOException {
         if ( needSep ) {
-            writer.write( symbols.getRecordSeparator() );
+            append( symbols.getRecordSeparator() );
         }
-        writer.write( quoteIfNecessary( escapeDoubleQuotes( s ) ) );
+        writeEscaped( s );
         return true;
     }
-    
+
+    /**
+     * Copy the given record into the buffer in a single pass. See {@link #escapeInto}.
+     */
+    private void writeEscaped( CharSequence s )
+            throws IOException {
+        // Worst case: every char is escaped, plus the two surrounding quotes.
+        int worstCase = 2 * s.length() + 2;
+        if ( buf.length - pos < worstCase ) {
+            flushBuffer();
+            if ( buf.length < worstCase ) {
+                // Too big to ever fit in the buffer. Escape it into a temporary array instead.
+                char[] tmp = new char[worstCase];
+                writer.write( tmp, 0, escapeInto( s, tmp, 0, symbols.getCharClasses() ) );
+                return;
+            }
+        }
+        pos = escapeInto( s, buf, pos, symbols.getCharClasses() );
+    }
+
+    /**
+     * Copy the given record into <tt>dst</tt>, which must have room for twice its length plus two,
+     * escaping the quote and escape chars on the way. Every char is looked up once in the compiled
+     * char classes of the symbols, which also tells if the record must be quoted according to the
+     * quote policy. If so, the copied chars are shifted by one to make room for the opening quote and
+     * the closing quote is appended.
+     *
+     * @return The position in <tt>dst</tt> after the record.
+     */
+    private static int escapeInto( CharSequence s, char[] dst, int start, CSVCharClasses cc ) {
+        int len = s.length();
+        char esc = cc.escapeChar;
+        int p = start;
+        boolean special = false;
+        for ( int i = 0; i < len; i++ ) {
+            char c = s.charAt( i );
+            int cls = cc.classOf( c );
+            if ( ( cls & CSVCharClasses.ESCAPE ) != 0 ) {
+                dst[p++] = esc;
+            }
+            special |= ( cls & CSVCharClasses.QUOTE ) != 0;
+            dst[p++] = c;
+        }
+        boolean quote;
+        switch ( cc.policy ) {
+        case ALL:
+            quote = true;
+            break;
+        case NON_NUMERIC:
+            quote = special || !cc.isNumber( s );
+            break;
+        default:
+            quote = special;
+            break;
+        }
+        if ( quote ) {
+            System.arraycopy( dst, start, dst, start + 1, p - start );
+            dst[start] = cc.quoteChar;
+            p++;
+            dst[p++] = cc.quoteChar;
+        }
+        return p;
+    }
+
+    private void separate()
+            throws IOException {
+        if ( needSep ) {
+            append( symbols.getRecordSeparator() );
+        }
+        needSep = true;
+    }
+
+    private void writeLineSeparator()
+            throws IOException {
+        appendLineSeparator();
+        if ( flushEachLine ) {
+            flushBuffer();
+        }
+    }
+
+    private void appendLineSeparator()
+            throws IOException {
+        String lineSep = symbols.getLineSeparator();
+        int len = lineSep.length();
+        if ( buf.length - pos < len ) {
+            flushBuffer();
+            if ( buf.length < len ) {
+                writer.write( lineSep );
+                return;
+            }
+        }
+        lineSep.getChars( 0, len, buf, pos );
+        pos += len;
+    }
+
+    private void append( char c )
+            throws IOException {
+        if ( pos == buf.length ) {
+            flushBuffer();
+        }
+        buf[pos++] = c;
+    }
+
+    private void flushBuffer()
+            throws IOException {
+        if ( pos > 0 ) {
+            writer.write( buf, 0, pos );
+            pos = 0;
+        }
+    }
+
     String escapeDoubleQuotes( String str ) {
-        return str.replace( "\"", "\"\"" );
+        CSVCharClasses cc = symbols.getCharClasses();
+        StringBuilder b = new StringBuilder( str.length() + 8 );
+        for ( int i = 0; i < str.length(); i++ ) {
+            char c = str.charAt( i );
+            if ( ( cc.classOf( c ) & CSVCharClasses.ESCAPE ) != 0 ) {
+                b.append( cc.escapeChar );
+            }
+            b.append( c );
+        }
+        return b.toString();
     }
 
     String quoteIfNecessary( String str ) {
-        if ( str.indexOf( symbols.getRecordSeparator() ) != -1 ||
-                str.indexOf( '\n' ) != -1 || str.indexOf( '\r' ) != -1 ) {
-            return "\"" + str + "\"";
+        CSVCharClasses cc = symbols.getCharClasses();
+        boolean quote = cc.policy == CSVQuotePolicy.ALL || ( cc.policy == CSVQuotePolicy.NON_NUMERIC && !cc.isNumber( str ) );
+        for ( int i = 0; !quote && i < str.length(); i++ ) {
+            quote = ( cc.classOf( str.charAt( i ) ) & CSVCharClasses.QUOTE ) != 0;
+        }
+        if ( quote ) {
+            return cc.quoteChar + str + cc.quoteChar;
         }
         return str;
     }
-    
-    private class StringCSVRenderer implements CSVTypedRenderer<String> {
+
+    /**
+     * A reusable buffer into which a batch of lines is rendered by a worker thread.
+     */
+    private static class Batch {
+        final CharArrayWriter out;
+        final CSVWriter writer;
+
+        Batch( CSVSymbols symbols, int bufferSize ) {
+            out = new CharArrayWriter( bufferSize );
+            writer = new CSVWriter( out, symbols, bufferSize );
+        }
+
+        <E> Batch render( CSVTypedRenderer<E> renderer, List<List<E>> lines, Object... accessoryData )
+                throws IOException {
+            for ( List<E> line : lines ) {
+                writer.appendLine( renderer, line, accessoryData );
+            }
+            writer.flushBuffer();
+            return this;
+        }
+    }
+
+    private static class StringCSVRenderer implements CSVTypedRenderer<String> {
         @Override
         public String renderRecord( String value, Object... accessoryData ) {
             return value;
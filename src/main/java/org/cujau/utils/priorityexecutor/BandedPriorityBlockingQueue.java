@@ -0,0 +1,289 @@
+package org.cujau.utils.priorityexecutor;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Multi-level work queue for {@link PriorityThreadPoolExecutor} with one lock-free queue per
+ * priority band.
+ * <p>
+ * Every priority between the highest and the lowest priority given at construction has its own
+ * {@link ConcurrentLinkedQueue}. Priorities outside of that range are clamped to the nearest band.
+ * As with {@link PriorityFutureComparator}, a lower number is a higher priority. Tasks that are not
+ * {@link PriorityFuture}s go to the lowest band.
+ * </p>
+ * <p>
+ * Submitting threads never block each other: an offer is a lock-free append to its band followed by
+ * the release of a {@link Semaphore} permit. A taking thread acquires a permit, which reserves one
+ * element, and then removes the first element of the highest non-empty band. Since the number of
+ * permits never exceeds the number of elements that have not been reserved yet, a thread holding a
+ * permit always finds an element. A bitmap of the bands that may be non-empty lets the take skip the
+ * empty bands 64 at a time, so a wide priority range does not slow down every take.
+ * </p>
+ * <p>
+ * The ordering is the same as with a {@link java.util.concurrent.PriorityBlockingQueue} and a
+ * {@link PriorityFutureComparator} without aging, except that tasks of the same priority are always
+ * taken in FIFO order, and that a task offered while a take is scanning the bands may be passed over
+ * by that take. Within a band, deadlines do not make tasks run earliest deadline first, and waiting
+ * tasks do not age into higher bands. Tasks whose deadline passes are still cancelled by the
+ * executor.
+ * </p>
+ */
+public class BandedPriorityBlockingQueue extends AbstractQueue<Runnable> implements BatchBlockingQueue<Runnable> {
+
+    private static final int MAX_BANDS = 1 << 16;
+
+    private final int highestPriority;
+    private final ConcurrentLinkedQueue<Runnable>[] bands;
+    // One bit per band, set after a task is added to the band and cleared by a take that finds the
+    // band empty. A band with tasks always has its bit set.
+    private final AtomicLongArray occupied;
+    private final Semaphore available = new Semaphore(0);
+
+    /**
+     * @param highestPriority
+     *         The priority of the first band (the lowest number).
+     * @param lowestPriority
+     *         The priority of the last band (the highest number).
+     */
+    @SuppressWarnings("unchecked")
+    public BandedPriorityBlockingQueue(int highestPriority, int lowestPriority) {
+        long count = (long) lowestPriority - highestPriority + 1;
+        if (count < 1 || count > MAX_BANDS) {
+            throw new IllegalArgumentException("Invalid priority range " + highestPriority + ".." + lowestPriority);
+        }
+        this.highestPriority = highestPriority;
+        this.bands = new ConcurrentLinkedQueue[(int) count];
+        for (int i = 0; i < bands.length; i++) {
+            bands[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.occupied = new AtomicLongArray((bands.length + 63) >>> 6);
+    }
+
+    /**
+     * @return The number of priority bands.
+     */
+    public int getBandCount() {
+        return bands.length;
+    }
+
+    @Override
+    public boolean offer(Runnable r) {
+        if (r == null) {
+            throw new NullPointerException();
+        }
+        enqueue(r);
+        available.release();
+        return true;
+    }
+
+    /**
+     * Append the tasks to their bands and release all their permits at once.
+     */
+    @Override
+    public int offerAll(List<? extends Runnable> tasks) {
+        for (Runnable r : tasks) {
+            if (r == null) {
+                throw new NullPointerException();
+            }
+        }
+        for (Runnable r : tasks) {
+            enqueue(r);
+        }
+        available.release(tasks.size());
+        return tasks.size();
+    }
+
+    @Override
+    public void put(Runnable r) {
+        offer(r);
+    }
+
+    @Override
+    public boolean offer(Runnable r, long timeout, TimeUnit unit) {
+        return offer(r);
+    }
+
+    @Override
+    public Runnable take()
+            throws InterruptedException {
+        available.acquire();
+        return claim();
+    }
+
+    @Override
+    public Runnable poll(long timeout, TimeUnit unit)
+            throws InterruptedException {
+        if (!available.tryAcquire(timeout, unit)) {
+            return null;
+        }
+        return claim();
+    }
+
+    @Override
+    public Runnable poll() {
+        if (!available.tryAcquire()) {
+            return null;
+        }
+        return claim();
+    }
+
+    @Override
+    public Runnable peek() {
+        for (int word = 0; word < occupied.length(); word++) {
+            for (long bits = occupied.get(word); bits != 0; bits &= bits - 1) {
+                Runnable r = bands[(word << 6) + Long.numberOfTrailingZeros(bits)].peek();
+                if (r != null) {
+                    return r;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Remove the given task if it has not been reserved by a taking thread yet.
+     */
+    @Override
+    public boolean remove(Object o) {
+        if (!(o instanceof Runnable) || !available.tryAcquire()) {
+            // Every element left is reserved by a taking thread, so o is about to be taken anyway.
+            return false;
+        }
+        if (bands[bandOf((Runnable) o)].remove(o)) {
+            return true;
+        }
+        available.release();
+        return false;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Runnable && bands[bandOf((Runnable) o)].contains(o);
+    }
+
+    /**
+     * @return The number of tasks that have not been reserved by a taking thread.
+     */
+    @Override
+    public int size() {
+        return available.availablePermits();
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> c, int maxElements) {
+        if (c == this) {
+            throw new IllegalArgumentException();
+        }
+        int n = 0;
+        Runnable r;
+        while (n < maxElements && (r = poll()) != null) {
+            c.add(r);
+            n++;
+        }
+        return n;
+    }
+
+    /**
+     * @return An iterator over a snapshot of the tasks, in priority order. Its <tt>remove()</tt>
+     *         removes the task from this queue.
+     */
+    @Override
+    public Iterator<Runnable> iterator() {
+        List<Runnable> snapshot = new ArrayList<>();
+        for (ConcurrentLinkedQueue<Runnable> band : bands) {
+            snapshot.addAll(band);
+        }
+        return new Iterator<Runnable>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < snapshot.size();
+            }
+
+            @Override
+            public Runnable next() {
+                if (next >= snapshot.size()) {
+                    throw new NoSuchElementException();
+                }
+                return snapshot.get(next++);
+            }
+
+            @Override
+            public void remove() {
+                if (next == 0) {
+                    throw new IllegalStateException();
+                }
+                BandedPriorityBlockingQueue.this.remove(snapshot.get(next - 1));
+            }
+        };
+    }
+
+    /**
+     * Remove the first element of the highest non-empty band. The caller holds a permit.
+     */
+    private Runnable claim() {
+        for (;;) {
+            for (int word = 0; word < occupied.length(); word++) {
+                for (long bits = occupied.get(word); bits != 0; bits &= bits - 1) {
+                    int band = (word << 6) + Long.numberOfTrailingZeros(bits);
+                    Runnable r = bands[band].poll();
+                    if (r != null) {
+                        return r;
+                    }
+                    clearOccupied(band);
+                }
+            }
+            // The reserved element was offered to a band that was already scanned.
+            Thread.onSpinWait();
+        }
+    }
+
+    private void enqueue(Runnable r) {
+        int band = bandOf(r);
+        bands[band].add(r);
+        setOccupied(band);
+    }
+
+    private void setOccupied(int band) {
+        long bit = 1L << band;
+        if ((occupied.get(band >>> 6) & bit) == 0) {
+            occupied.accumulateAndGet(band >>> 6, bit, (word, b) -> word | b);
+        }
+    }
+
+    private void clearOccupied(int band) {
+        occupied.accumulateAndGet(band >>> 6, ~(1L << band), (word, mask) -> word & mask);
+        // A task added while the bit was still set would otherwise be hidden from the takes.
+        if (!bands[band].isEmpty()) {
+            setOccupied(band);
+        }
+    }
+
+    private int bandOf(Runnable r) {
+        if (!(r instanceof PriorityFuture)) {
+            return bands.length - 1;
+        }
+        long band = (long) ((PriorityFuture<?>) r).getPriority() - highestPriority;
+        return (int) Math.max(0, Math.min(bands.length - 1, band));
+    }
+}
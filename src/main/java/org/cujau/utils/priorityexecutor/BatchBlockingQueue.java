@@ -0,0 +1,19 @@
+package org.cujau.utils.priorityexecutor;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * BlockingQueue that can insert many elements in one operation, used by
+ * {@link PriorityThreadPoolExecutor#submitAll} to queue a batch of tasks at once.
+ */
+public interface BatchBlockingQueue<E> extends BlockingQueue<E> {
+
+    /**
+     * Insert the given elements, taking the lock of the queue, if any, only once.
+     *
+     * @return The number of inserted elements. They are the first elements of the list, the others
+     *         were not accepted.
+     */
+    int offerAll(List<? extends E> elements);
+}
@@ -0,0 +1,366 @@
+package org.cujau.utils.priorityexecutor;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.TreeSet;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Work queue for {@link PriorityThreadPoolExecutor} with a fixed capacity that sheds the lowest
+ * priority tasks under overload.
+ * <p>
+ * While the queue is not full it behaves like the default
+ * {@link java.util.concurrent.PriorityBlockingQueue}. When it is full, a task that runs before the
+ * last queued task takes the place of that task: the last task is evicted and its
+ * {@link PriorityFuture} completes with an ExecutionException caused by a
+ * {@link RejectedExecutionException}. A task that does not run before the last queued task is not
+ * accepted, so the executor hands it to its RejectedExecutionHandler. This keeps the memory used by
+ * the queue flat and the interactive work flowing during load spikes.
+ * </p>
+ * <p>
+ * The tasks are kept sorted under a single lock, so that both the first task, which is taken next,
+ * and the last task, which is evicted next, are found in logarithmic time.
+ * </p>
+ */
+public class BoundedPriorityBlockingQueue extends AbstractQueue<Runnable> implements BatchBlockingQueue<Runnable> {
+
+    private final int capacity;
+    private final TreeSet<Runnable> tasks;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private volatile Consumer<Runnable> evictionListener;
+
+    /**
+     * @param capacity
+     *         The maximum number of queued tasks.
+     */
+    public BoundedPriorityBlockingQueue(int capacity) {
+        this(capacity, new PriorityFutureComparator());
+    }
+
+    /**
+     * @param capacity
+     *         The maximum number of queued tasks.
+     * @param comparator
+     *         The order of the tasks. It must be consistent over time and distinguish any two tasks,
+     *         like {@link PriorityFutureComparator} does.
+     */
+    public BoundedPriorityBlockingQueue(int capacity, Comparator<Runnable> comparator) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be > 0");
+        }
+        this.capacity = capacity;
+        this.tasks = new TreeSet<>(comparator);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Set the listener that is told about every evicted task, after the task has been completed.
+     */
+    void setEvictionListener(Consumer<Runnable> evictionListener) {
+        this.evictionListener = evictionListener;
+    }
+
+    /**
+     * Add the given task, evicting the last queued task if the queue is full and the given task runs
+     * before it.
+     *
+     * @return <tt>false</tt> if the queue is full and the given task does not run before any queued
+     *         task.
+     */
+    @Override
+    public boolean offer(Runnable r) {
+        if (r == null) {
+            throw new NullPointerException();
+        }
+        Runnable evicted = null;
+        lock.lock();
+        try {
+            if (tasks.size() >= capacity) {
+                Runnable last = tasks.last();
+                if (tasks.comparator().compare(r, last) >= 0) {
+                    return false;
+                }
+                tasks.pollLast();
+                evicted = last;
+            }
+            tasks.add(r);
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+        if (evicted != null) {
+            evict(evicted);
+        }
+        return true;
+    }
+
+    /**
+     * Add the given tasks under a single lock acquisition, evicting queued tasks as {@link #offer}
+     * does, and stop at the first task that is not accepted.
+     */
+    @Override
+    public int offerAll(List<? extends Runnable> tasks) {
+        for (Runnable r : tasks) {
+            if (r == null) {
+                throw new NullPointerException();
+            }
+        }
+        List<Runnable> evicted = new ArrayList<>();
+        int n = 0;
+        lock.lock();
+        try {
+            for (Runnable r : tasks) {
+                if (this.tasks.size() >= capacity) {
+                    Runnable last = this.tasks.last();
+                    if (this.tasks.comparator().compare(r, last) >= 0) {
+                        break;
+                    }
+                    this.tasks.pollLast();
+                    evicted.add(last);
+                }
+                this.tasks.add(r);
+                n++;
+            }
+            if (n > 0) {
+                notEmpty.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+        for (Runnable r : evicted) {
+            evict(r);
+        }
+        return n;
+    }
+
+    private void evict(Runnable r) {
+        if (r instanceof PriorityFuture) {
+            ((PriorityFuture<?>) r).reject(
+                    new RejectedExecutionException("Evicted from a full queue by a task of higher priority"));
+        }
+        Consumer<Runnable> listener = evictionListener;
+        if (listener != null) {
+            listener.accept(r);
+        }
+    }
+
+    @Override
+    public void put(Runnable r)
+            throws InterruptedException {
+        while (!offer(r)) {
+            lock.lockInterruptibly();
+            try {
+                while (tasks.size() >= capacity) {
+                    notFull.await();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public boolean offer(Runnable r, long timeout, TimeUnit unit)
+            throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        while (!offer(r)) {
+            lock.lockInterruptibly();
+            try {
+                while (tasks.size() >= capacity) {
+                    if (nanos <= 0) {
+                        return false;
+                    }
+                    nanos = notFull.awaitNanos(nanos);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public Runnable take()
+            throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (tasks.isEmpty()) {
+                notEmpty.await();
+            }
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable poll(long timeout, TimeUnit unit)
+            throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (tasks.isEmpty()) {
+                if (nanos <= 0) {
+                    return null;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable poll() {
+        lock.lock();
+        try {
+            return tasks.isEmpty() ? null : dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Remove the first task. The caller holds the lock and the queue is not empty.
+     */
+    private Runnable dequeue() {
+        Runnable r = tasks.pollFirst();
+        notFull.signal();
+        return r;
+    }
+
+    @Override
+    public Runnable peek() {
+        lock.lock();
+        try {
+            return tasks.isEmpty() ? null : tasks.first();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (!(o instanceof PriorityFuture)) {
+            return false;
+        }
+        lock.lock();
+        try {
+            if (tasks.remove(o)) {
+                notFull.signal();
+                return true;
+            }
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (!(o instanceof PriorityFuture)) {
+            return false;
+        }
+        lock.lock();
+        try {
+            return tasks.contains(o);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return tasks.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return capacity - size();
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> c, int maxElements) {
+        if (c == this) {
+            throw new IllegalArgumentException();
+        }
+        lock.lock();
+        try {
+            int n = 0;
+            while (n < maxElements && !tasks.isEmpty()) {
+                c.add(tasks.pollFirst());
+                n++;
+            }
+            if (n > 0) {
+                notFull.signalAll();
+            }
+            return n;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return An iterator over a snapshot of the tasks, in priority order. Its <tt>remove()</tt>
+     *         removes the task from this queue.
+     */
+    @Override
+    public Iterator<Runnable> iterator() {
+        List<Runnable> snapshot;
+        lock.lock();
+        try {
+            snapshot = new ArrayList<>(tasks);
+        } finally {
+            lock.unlock();
+        }
+        return new Iterator<Runnable>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < snapshot.size();
+            }
+
+            @Override
+            public Runnable next() {
+                if (next >= snapshot.size()) {
+                    throw new NoSuchElementException();
+                }
+                return snapshot.get(next++);
+            }
+
+            @Override
+            public void remove() {
+                if (next == 0) {
+                    throw new IllegalStateException();
+                }
+                BoundedPriorityBlockingQueue.this.remove(snapshot.get(next - 1));
+            }
+        };
+    }
+}
@@ -0,0 +1,388 @@
+package org.cujau.utils.priorityexecutor;
+
+import java.util.AbstractQueue;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Work queue for {@link PriorityThreadPoolExecutor} that can change the priority of a queued task.
+ * <p>
+ * It is a binary heap like {@link java.util.concurrent.PriorityBlockingQueue}, but every queued
+ * {@link PriorityFuture} knows its position in the heap. Changing the priority of a queued task
+ * with {@link #reprioritize(PriorityFuture, int)} therefore only moves that task up or down the
+ * heap, and removing a task, as done for cancelled tasks, does not search the whole heap. Both take
+ * logarithmic time.
+ * </p>
+ * <p>
+ * Only {@link PriorityFuture}s can be queued, which is what {@link PriorityThreadPoolExecutor}
+ * offers. A task can be in only one indexed queue at a time.
+ * </p>
+ */
+public class IndexedPriorityBlockingQueue extends AbstractQueue<Runnable> implements BatchBlockingQueue<Runnable> {
+
+    private static final int DEFAULT_INITIAL_CAPACITY = 64;
+
+    private final Comparator<Runnable> comparator;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private PriorityFuture<?>[] heap;
+    private int size;
+
+    public IndexedPriorityBlockingQueue() {
+        this(DEFAULT_INITIAL_CAPACITY, new PriorityFutureComparator());
+    }
+
+    /**
+     * @param initialCapacity
+     *         The initial size of the heap array.
+     * @param comparator
+     *         The order of the tasks.
+     */
+    public IndexedPriorityBlockingQueue(int initialCapacity, Comparator<Runnable> comparator) {
+        this.heap = new PriorityFuture<?>[Math.max(1, initialCapacity)];
+        this.comparator = comparator;
+    }
+
+    /**
+     * Change the priority of a queued task and move it to its new place.
+     *
+     * @return <tt>true</tt> if the task was queued, <tt>false</tt> if it has already been taken or
+     *         was never queued, in which case its priority is not changed.
+     */
+    public boolean reprioritize(PriorityFuture<?> task, int priority) {
+        lock.lock();
+        try {
+            int i = indexOf(task);
+            if (i < 0) {
+                return false;
+            }
+            task.setPriority(priority);
+            siftDown(siftUp(i, task), task);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException
+     *         if the task is not a {@link PriorityFuture}.
+     */
+    @Override
+    public boolean offer(Runnable r) {
+        if (r == null) {
+            throw new NullPointerException();
+        }
+        if (!(r instanceof PriorityFuture)) {
+            throw new IllegalArgumentException("Only PriorityFutures can be queued: " + r);
+        }
+        PriorityFuture<?> task = (PriorityFuture<?>) r;
+        lock.lock();
+        try {
+            if (task.getHeapIndex() >= 0) {
+                throw new IllegalStateException("Task already queued: " + task);
+            }
+            if (size == heap.length) {
+                heap = Arrays.copyOf(heap, heap.length + (heap.length >> 1) + 1);
+            }
+            siftUp(size++, task);
+            notEmpty.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Add the given tasks under a single lock acquisition. Either all the tasks are added, or none.
+     *
+     * @throws NullPointerException
+     *         if a task is <tt>null</tt>.
+     * @throws IllegalArgumentException
+     *         if a task is not a {@link PriorityFuture}.
+     * @throws IllegalStateException
+     *         if a task is already queued, or is in the list twice.
+     */
+    @Override
+    public int offerAll(List<? extends Runnable> tasks) {
+        for (Runnable r : tasks) {
+            if (r == null) {
+                throw new NullPointerException();
+            }
+            if (!(r instanceof PriorityFuture)) {
+                throw new IllegalArgumentException("Only PriorityFutures can be queued: " + r);
+            }
+        }
+        lock.lock();
+        try {
+            if (size + tasks.size() > heap.length) {
+                heap = Arrays.copyOf(heap, Math.max(size + tasks.size(), heap.length + (heap.length >> 1) + 1));
+            }
+            int added = 0;
+            for (Runnable r : tasks) {
+                PriorityFuture<?> task = (PriorityFuture<?>) r;
+                if (task.getHeapIndex() >= 0) {
+                    // Take back the tasks added so far.
+                    for (int i = 0; i < added; i++) {
+                        PriorityFuture<?> t = (PriorityFuture<?>) tasks.get(i);
+                        removeAt(t.getHeapIndex());
+                    }
+                    throw new IllegalStateException("Task already queued: " + task);
+                }
+                siftUp(size++, task);
+                added++;
+            }
+            if (added > 0) {
+                notEmpty.signalAll();
+            }
+            return added;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void put(Runnable r) {
+        offer(r);
+    }
+
+    @Override
+    public boolean offer(Runnable r, long timeout, TimeUnit unit) {
+        return offer(r);
+    }
+
+    @Override
+    public Runnable take()
+            throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (size == 0) {
+                notEmpty.await();
+            }
+            return removeAt(0);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable poll(long timeout, TimeUnit unit)
+            throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (size == 0) {
+                if (nanos <= 0) {
+                    return null;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            return removeAt(0);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable poll() {
+        lock.lock();
+        try {
+            return size == 0 ? null : removeAt(0);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable peek() {
+        lock.lock();
+        try {
+            return heap[0];
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        lock.lock();
+        try {
+            int i = indexOf(o);
+            if (i < 0) {
+                return false;
+            }
+            removeAt(i);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        lock.lock();
+        try {
+            return indexOf(o) >= 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> c, int maxElements) {
+        if (c == this) {
+            throw new IllegalArgumentException();
+        }
+        lock.lock();
+        try {
+            int n = 0;
+            while (n < maxElements && size > 0) {
+                c.add(removeAt(0));
+                n++;
+            }
+            return n;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return An iterator over a snapshot of the tasks, in priority order. Its <tt>remove()</tt>
+     *         removes the task from this queue.
+     */
+    @Override
+    public Iterator<Runnable> iterator() {
+        Runnable[] snapshot;
+        lock.lock();
+        try {
+            snapshot = Arrays.copyOf(heap, size, Runnable[].class);
+        } finally {
+            lock.unlock();
+        }
+        Arrays.sort(snapshot, comparator);
+        return new Iterator<Runnable>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < snapshot.length;
+            }
+
+            @Override
+            public Runnable next() {
+                if (next >= snapshot.length) {
+                    throw new NoSuchElementException();
+                }
+                return snapshot[next++];
+            }
+
+            @Override
+            public void remove() {
+                if (next == 0) {
+                    throw new IllegalStateException();
+                }
+                IndexedPriorityBlockingQueue.this.remove(snapshot[next - 1]);
+            }
+        };
+    }
+
+    /**
+     * @return The position of the given task in the heap, or -1 if it is not in this queue. The
+     *         caller holds the lock.
+     */
+    private int indexOf(Object o) {
+        if (!(o instanceof PriorityFuture)) {
+            return -1;
+        }
+        int i = ((PriorityFuture<?>) o).getHeapIndex();
+        return i >= 0 && i < size && heap[i] == o ? i : -1;
+    }
+
+    /**
+     * Remove the task at the given position. The caller holds the lock.
+     */
+    private PriorityFuture<?> removeAt(int i) {
+        PriorityFuture<?> removed = heap[i];
+        removed.setHeapIndex(-1);
+        int last = --size;
+        PriorityFuture<?> moved = heap[last];
+        heap[last] = null;
+        if (i != last) {
+            siftDown(siftUp(i, moved), moved);
+        }
+        return removed;
+    }
+
+    /**
+     * Place the given task at position <tt>i</tt> or above it.
+     *
+     * @return The final position of the task.
+     */
+    private int siftUp(int i, PriorityFuture<?> task) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            PriorityFuture<?> p = heap[parent];
+            if (comparator.compare(task, p) >= 0) {
+                break;
+            }
+            place(i, p);
+            i = parent;
+        }
+        place(i, task);
+        return i;
+    }
+
+    /**
+     * Place the given task at position <tt>i</tt> or below it.
+     */
+    private void siftDown(int i, PriorityFuture<?> task) {
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            PriorityFuture<?> c = heap[child];
+            int right = child + 1;
+            if (right < size && comparator.compare(heap[right], c) < 0) {
+                child = right;
+                c = heap[child];
+            }
+            if (comparator.compare(task, c) <= 0) {
+                break;
+            }
+            place(i, c);
+            i = child;
+        }
+        place(i, task);
+    }
+
+    private void place(int i, PriorityFuture<?> task) {
+        heap[i] = task;
+        task.setHeapIndex(i);
+    }
+}
@@ -3,5 +3,32 @@ package org.cujau.utils.priorityexecutor;
 import java.util.concurrent.Callable;
 
 public interface PriorityCallable<T> extends Callable<T> {
+
+    /**
+     * The value of {@link #getDeadline()} for a task without deadline.
+     */
+    long NO_DEADLINE = Long.MAX_VALUE;
+
     int getPriority();
+
+    /**
+     * Among tasks of the same priority, the one with the earliest deadline runs first. A task whose
+     * deadline passes before it starts is removed from the queue and cancelled instead of run.
+     *
+     * @return The deadline as a {@link System#nanoTime()} value, or {@link #NO_DEADLINE}.
+     */
+    default long getDeadline() {
+        return NO_DEADLINE;
+    }
+
+    /**
+     * When a task is submitted while a task with the same key is still queued, the queued task runs
+     * the new task instead and both submissions share the same future. Only the latest task of a key
+     * is therefore run.
+     *
+     * @return The coalescing key, or <tt>null</tt> to never coalesce this task.
+     */
+    default Object getCoalescingKey() {
+        return null;
+    }
 }
@@ -0,0 +1,85 @@
+package org.cujau.utils.priorityexecutor;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * CompletableFuture whose asynchronous stages run on a {@link PriorityThreadPoolExecutor} with a
+ * given priority.
+ * <p>
+ * The <tt>...Async</tt> methods that take no executor, such as <tt>thenApplyAsync(fn)</tt>, run
+ * their function on the executor of this future with the priority of this future instead of on the
+ * common ForkJoinPool, and the futures they return are again PriorityCompletableFutures with that
+ * priority. A whole pipeline started with {@link PriorityThreadPoolExecutor#supplyAsync} therefore
+ * keeps its priority. Use {@link #withPriority(int)} to continue a pipeline with another priority.
+ * </p>
+ */
+public class PriorityCompletableFuture<T> extends CompletableFuture<T> {
+
+    private final PriorityThreadPoolExecutor executor;
+    private final int priority;
+
+    PriorityCompletableFuture(PriorityThreadPoolExecutor executor, int priority) {
+        this.executor = executor;
+        this.priority = priority;
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
+    /**
+     * @return A future completed with the result of this future, whose dependent asynchronous stages
+     *         run with the given priority.
+     */
+    public PriorityCompletableFuture<T> withPriority(int priority) {
+        PriorityCompletableFuture<T> f = new PriorityCompletableFuture<>(executor, priority);
+        whenComplete((value, failure) -> {
+            if (failure != null) {
+                f.completeExceptionally(failure);
+            } else {
+                f.complete(value);
+            }
+        });
+        return f;
+    }
+
+    @Override
+    public <U> CompletableFuture<U> newIncompleteFuture() {
+        return new PriorityCompletableFuture<>(executor, priority);
+    }
+
+    @Override
+    public Executor defaultExecutor() {
+        return command -> executor.execute(new Task(priority, command));
+    }
+
+    @Override
+    public String toString() {
+        return super.toString() + "[priority " + priority + "]";
+    }
+
+    /**
+     * Gives a Runnable a priority.
+     */
+    static final class Task implements PriorityRunnable {
+
+        private final int priority;
+        private final Runnable command;
+
+        Task(int priority, Runnable command) {
+            this.priority = priority;
+            this.command = command;
+        }
+
+        @Override
+        public int getPriority() {
+            return priority;
+        }
+
+        @Override
+        public void run() {
+            command.run();
+        }
+    }
+}
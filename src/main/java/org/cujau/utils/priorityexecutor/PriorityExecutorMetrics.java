@@ -0,0 +1,393 @@
+package org.cujau.utils.priorityexecutor;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Counters and latency histograms of a {@link PriorityThreadPoolExecutor}.
+ * <p>
+ * The metrics are kept per priority band: every priority between the highest and the lowest
+ * priority given at construction has its own band, priorities outside of that range are counted in
+ * the nearest band. For every band they hold the number of queued tasks and a
+ * {@link LatencyHistogram} of the time the tasks waited in the queue, which shows whether high
+ * priority work is held up behind lower priority work. The time the tasks ran is kept in a single
+ * histogram. Recording is lock-free and does not allocate.
+ * </p>
+ * <p>
+ * Install the metrics with {@link PriorityThreadPoolExecutor#setMetrics} before submitting tasks,
+ * read them with {@link #snapshot()}, or publish them over JMX with {@link #register(String)}.
+ * </p>
+ */
+public class PriorityExecutorMetrics implements PriorityExecutorMetricsMBean {
+
+    public static final String JMX_DOMAIN = "org.cujau.utils.priorityexecutor";
+
+    private static final int MAX_BANDS = 1 << 10;
+
+    private final int highestPriority;
+    private final int lowestPriority;
+    private final AtomicLongArray queued;
+    private final LatencyHistogram[] waitTimes;
+    private final LatencyHistogram runTime = new LatencyHistogram();
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder cancelled = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final ThreadLocal<long[]> startedNanos = ThreadLocal.withInitial(() -> new long[1]);
+
+    /**
+     * Create metrics for the priorities 0 to 9.
+     */
+    public PriorityExecutorMetrics() {
+        this(0, 9);
+    }
+
+    /**
+     * @param highestPriority
+     *         The priority of the first band (the lowest number).
+     * @param lowestPriority
+     *         The priority of the last band (the highest number).
+     */
+    public PriorityExecutorMetrics(int highestPriority, int lowestPriority) {
+        long count = (long) lowestPriority - highestPriority + 1;
+        if (count < 1 || count > MAX_BANDS) {
+            throw new IllegalArgumentException("Invalid priority range " + highestPriority + ".." + lowestPriority);
+        }
+        this.highestPriority = highestPriority;
+        this.lowestPriority = lowestPriority;
+        this.queued = new AtomicLongArray((int) count);
+        this.waitTimes = new LatencyHistogram[(int) count];
+        for (int i = 0; i < waitTimes.length; i++) {
+            waitTimes[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * @return The band of the given priority.
+     */
+    public int bandOf(int priority) {
+        if (priority <= highestPriority) {
+            return 0;
+        } else if (priority >= lowestPriority) {
+            return queued.length() - 1;
+        }
+        return priority - highestPriority;
+    }
+
+    private int bandOf(Runnable task) {
+        if (task instanceof PriorityFuture) {
+            return bandOf(((PriorityFuture<?>) task).getPriority());
+        }
+        return queued.length() - 1;
+    }
+
+    void taskSubmitted(Runnable task) {
+        submitted.increment();
+        queued.incrementAndGet(bandOf(task));
+    }
+
+    /**
+     * Take back {@link #taskSubmitted(Runnable)} for a task that was counted before it was offered to
+     * the queue, and that the queue did not accept.
+     */
+    void taskNotSubmitted(Runnable task) {
+        submitted.decrement();
+        queued.decrementAndGet(bandOf(task));
+    }
+
+    /**
+     * Called for a submitted task that left the queue without being run.
+     */
+    void taskRemoved(Runnable task) {
+        queued.decrementAndGet(bandOf(task));
+    }
+
+    /**
+     * Called for a queued task whose priority changed.
+     */
+    void taskReprioritized(int oldPriority, int newPriority) {
+        int from = bandOf(oldPriority);
+        int to = bandOf(newPriority);
+        if (from != to) {
+            queued.incrementAndGet(to);
+            queued.decrementAndGet(from);
+        }
+    }
+
+    void taskRejected(Runnable task) {
+        rejected.increment();
+        taskRemoved(task);
+    }
+
+    void taskStarted(Runnable task) {
+        long now = System.nanoTime();
+        int band = bandOf(task);
+        queued.decrementAndGet(band);
+        if (task instanceof PriorityFuture) {
+            waitTimes[band].record(now - ((PriorityFuture<?>) task).getCreatedNanos());
+        }
+        startedNanos.get()[0] = now;
+    }
+
+    void taskFinished(Runnable task, Throwable failure) {
+        long elapsed = System.nanoTime() - startedNanos.get()[0];
+        if (failure == null && task instanceof Future && ((Future<?>) task).isDone()) {
+            Future<?> future = (Future<?>) task;
+            if (future.isCancelled()) {
+                // Cancelled while queued, it did not really run.
+                cancelled.increment();
+                return;
+            }
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                failure = e.getCause();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        runTime.record(elapsed);
+        if (failure != null) {
+            failed.increment();
+        } else {
+            completed.increment();
+        }
+    }
+
+    /**
+     * @return A copy of the current counters and histograms.
+     */
+    public Snapshot snapshot() {
+        long[] q = new long[queued.length()];
+        LatencyHistogram.Snapshot[] w = new LatencyHistogram.Snapshot[waitTimes.length];
+        for (int i = 0; i < q.length; i++) {
+            q[i] = queued.get(i);
+            w[i] = waitTimes[i].snapshot();
+        }
+        return new Snapshot(highestPriority, submitted.sum(), completed.sum(), failed.sum(), cancelled.sum(),
+                            rejected.sum(), q, w, runTime.snapshot());
+    }
+
+    /**
+     * Clear the histograms and the cumulative counters. The queued counts are kept.
+     */
+    @Override
+    public void reset() {
+        for (LatencyHistogram h : waitTimes) {
+            h.reset();
+        }
+        runTime.reset();
+        submitted.reset();
+        completed.reset();
+        failed.reset();
+        cancelled.reset();
+        rejected.reset();
+    }
+
+    /**
+     * Register these metrics with the platform MBean server.
+     *
+     * @param name
+     *         The name of the executor, used as the <tt>name</tt> key of the ObjectName.
+     * @return The ObjectName under which the metrics are registered.
+     */
+    public ObjectName register(String name)
+            throws JMException {
+        ObjectName objectName =
+                new ObjectName(JMX_DOMAIN + ":type=PriorityExecutorMetrics,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        return objectName;
+    }
+
+    /**
+     * Unregister metrics registered with {@link #register(String)}.
+     */
+    public static void unregister(ObjectName objectName)
+            throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        if (server.isRegistered(objectName)) {
+            server.unregisterMBean(objectName);
+        }
+    }
+
+    @Override
+    public int getHighestPriority() {
+        return highestPriority;
+    }
+
+    @Override
+    public int getLowestPriority() {
+        return lowestPriority;
+    }
+
+    @Override
+    public long getSubmittedCount() {
+        return submitted.sum();
+    }
+
+    @Override
+    public long getCompletedCount() {
+        return completed.sum();
+    }
+
+    @Override
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    @Override
+    public long getCancelledCount() {
+        return cancelled.sum();
+    }
+
+    @Override
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    @Override
+    public long getQueuedCount() {
+        long sum = 0;
+        for (int i = 0; i < queued.length(); i++) {
+            sum += queued.get(i);
+        }
+        return sum;
+    }
+
+    @Override
+    public long[] getQueuedCountByBand() {
+        long[] q = new long[queued.length()];
+        for (int i = 0; i < q.length; i++) {
+            q[i] = queued.get(i);
+        }
+        return q;
+    }
+
+    @Override
+    public long[] getWaitTimeP50ByBand() {
+        return waitTimePercentiles(50);
+    }
+
+    @Override
+    public long[] getWaitTimeP99ByBand() {
+        return waitTimePercentiles(99);
+    }
+
+    @Override
+    public long[] getWaitTimeMaxByBand() {
+        return waitTimePercentiles(100);
+    }
+
+    private long[] waitTimePercentiles(double percentile) {
+        long[] p = new long[waitTimes.length];
+        for (int i = 0; i < p.length; i++) {
+            p[i] = waitTimes[i].snapshot().getPercentile(percentile, TimeUnit.MILLISECONDS);
+        }
+        return p;
+    }
+
+    @Override
+    public long getRunTimeP50() {
+        return runTime.snapshot().getPercentile(50, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public long getRunTimeP99() {
+        return runTime.snapshot().getPercentile(99, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public long getRunTimeMax() {
+        return TimeUnit.NANOSECONDS.toMillis(runTime.snapshot().getMax());
+    }
+
+    /**
+     * Immutable copy of {@link PriorityExecutorMetrics}.
+     */
+    public static final class Snapshot {
+
+        private final int highestPriority;
+        private final long submitted;
+        private final long completed;
+        private final long failed;
+        private final long cancelled;
+        private final long rejected;
+        private final long[] queued;
+        private final LatencyHistogram.Snapshot[] waitTimes;
+        private final LatencyHistogram.Snapshot runTime;
+
+        private Snapshot(int highestPriority, long submitted, long completed, long failed, long cancelled,
+                         long rejected, long[] queued, LatencyHistogram.Snapshot[] waitTimes,
+                         LatencyHistogram.Snapshot runTime) {
+            this.highestPriority = highestPriority;
+            this.submitted = submitted;
+            this.completed = completed;
+            this.failed = failed;
+            this.cancelled = cancelled;
+            this.rejected = rejected;
+            this.queued = queued;
+            this.waitTimes = waitTimes;
+            this.runTime = runTime;
+        }
+
+        public int getBandCount() {
+            return queued.length;
+        }
+
+        /**
+         * @return The priority of the given band.
+         */
+        public int getPriorityOfBand(int band) {
+            return highestPriority + band;
+        }
+
+        public long getSubmittedCount() {
+            return submitted;
+        }
+
+        public long getCompletedCount() {
+            return completed;
+        }
+
+        public long getFailedCount() {
+            return failed;
+        }
+
+        public long getCancelledCount() {
+            return cancelled;
+        }
+
+        public long getRejectedCount() {
+            return rejected;
+        }
+
+        public long getQueuedCount() {
+            long sum = 0;
+            for (long q : queued) {
+                sum += q;
+            }
+            return sum;
+        }
+
+        public long getQueuedCount(int band) {
+            return queued[band];
+        }
+
+        public LatencyHistogram.Snapshot getWaitTime(int band) {
+            return waitTimes[band];
+        }
+
+        public LatencyHistogram.Snapshot getRunTime() {
+            return runTime;
+        }
+    }
+}
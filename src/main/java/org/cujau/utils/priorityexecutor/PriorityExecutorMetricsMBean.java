@@ -0,0 +1,40 @@
+package org.cujau.utils.priorityexecutor;
+
+/**
+ * JMX view of {@link PriorityExecutorMetrics}. Times are in milliseconds, arrays are indexed by
+ * priority band, the first band being the highest priority.
+ */
+public interface PriorityExecutorMetricsMBean {
+
+    int getHighestPriority();
+
+    int getLowestPriority();
+
+    long getSubmittedCount();
+
+    long getCompletedCount();
+
+    long getFailedCount();
+
+    long getCancelledCount();
+
+    long getRejectedCount();
+
+    long getQueuedCount();
+
+    long[] getQueuedCountByBand();
+
+    long[] getWaitTimeP50ByBand();
+
+    long[] getWaitTimeP99ByBand();
+
+    long[] getWaitTimeMaxByBand();
+
+    long getRunTimeP50();
+
+    long getRunTimeP99();
+
+    long getRunTimeMax();
+
+    void reset();
+}
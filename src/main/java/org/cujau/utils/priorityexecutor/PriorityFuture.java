@@ -1,31 +1,152 @@
 package org.cujau.utils.priorityexecutor;
 
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.RunnableFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class PriorityFuture<T> implements RunnableFuture<T> {
 
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
     private RunnableFuture<T> src;
-    private int priority;
+    private volatile int priority;
+    private final long sequence;
+    private final long createdNanos;
+    private final long deadline;
+    private boolean propagateFailure;
+    private volatile RejectedExecutionException rejection;
+    private int heapIndex = -1;
+    private volatile TimingWheel.Entry deadlineTimer;
 
     PriorityFuture(RunnableFuture<T> other, int priority) {
+        this(other, priority, PriorityCallable.NO_DEADLINE);
+    }
+
+    PriorityFuture(RunnableFuture<T> other, int priority, long deadline) {
+        this(other, priority, deadline, System.nanoTime());
+    }
+
+    /**
+     * @param createdNanos
+     *         The creation time, as a {@link System#nanoTime()} value.
+     */
+    PriorityFuture(RunnableFuture<T> other, int priority, long deadline, long createdNanos) {
         this.src = other;
         this.priority = priority;
+        this.sequence = SEQUENCE.getAndIncrement();
+        this.createdNanos = createdNanos;
+        this.deadline = deadline;
     }
 
     public int getPriority() {
         return priority;
     }
 
+    /**
+     * Change the priority. Only done while the task is not in a queue, or by the queue holding it.
+     */
+    void setPriority(int priority) {
+        this.priority = priority;
+    }
+
+    /**
+     * @return The position of this task in the heap of an {@link IndexedPriorityBlockingQueue}, or -1.
+     */
+    int getHeapIndex() {
+        return heapIndex;
+    }
+
+    void setHeapIndex(int heapIndex) {
+        this.heapIndex = heapIndex;
+    }
+
+    /**
+     * @return The creation order of this task. Tasks of the same priority run in this order.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * @return The {@link System#nanoTime()} at which this task was created.
+     */
+    public long getCreatedNanos() {
+        return createdNanos;
+    }
+
+    /**
+     * @return The {@link System#nanoTime()} by which this task must have started, or
+     *         {@link PriorityCallable#NO_DEADLINE}.
+     */
+    public long getDeadline() {
+        return deadline;
+    }
+
+    /**
+     * @return <tt>true</tt> if this task has a deadline and the deadline has passed.
+     */
+    public boolean isExpired() {
+        return deadline != PriorityCallable.NO_DEADLINE && System.nanoTime() - deadline > 0;
+    }
+
+    /**
+     * Remember the timer that cancels this task when its deadline passes, so that the timer lets go of
+     * the task as soon as it is done.
+     */
+    void setDeadlineTimer(TimingWheel.Entry timer) {
+        deadlineTimer = timer;
+        if (isDone()) {
+            // Done before the timer was known.
+            releaseDeadlineTimer();
+        }
+    }
+
+    private void releaseDeadlineTimer() {
+        TimingWheel.Entry timer = deadlineTimer;
+        if (timer != null) {
+            deadlineTimer = null;
+            timer.cancel();
+        }
+    }
+
+    /**
+     * Make {@link #run()} rethrow the unchecked exception of a failed task, as a task run directly by
+     * an executor would.
+     */
+    void setPropagateFailure(boolean propagateFailure) {
+        this.propagateFailure = propagateFailure;
+    }
+
+    /**
+     * Complete this task without running it: {@link #get()} throws an ExecutionException caused by
+     * the given exception.
+     *
+     * @return <tt>false</tt> if the task had already completed.
+     */
+    boolean reject(RejectedExecutionException e) {
+        rejection = e;
+        if (src.cancel(false)) {
+            releaseDeadlineTimer();
+            return true;
+        }
+        rejection = null;
+        return false;
+    }
+
     @Override
     public boolean cancel(boolean mayInterruptIfRunning) {
-        return src.cancel(mayInterruptIfRunning);
+        boolean cancelled = src.cancel(mayInterruptIfRunning);
+        releaseDeadlineTimer();
+        return cancelled;
     }
 
     @Override
     public boolean isCancelled() {
-        return src.isCancelled();
+        return src.isCancelled() && rejection == null;
     }
 
     @Override
@@ -36,17 +157,59 @@ public class PriorityFuture<T> implements RunnableFuture<T> {
     @Override
     public T get()
             throws InterruptedException, ExecutionException {
-        return src.get();
+        try {
+            return src.get();
+        } catch (CancellationException e) {
+            throw rejectedOr(e);
+        }
     }
 
     @Override
     public T get(long timeout, TimeUnit unit)
-            throws InterruptedException, ExecutionException {
-        return src.get();
+            throws InterruptedException, ExecutionException, TimeoutException {
+        try {
+            return src.get(timeout, unit);
+        } catch (CancellationException e) {
+            throw rejectedOr(e);
+        }
+    }
+
+    private CancellationException rejectedOr(CancellationException e)
+            throws ExecutionException {
+        RejectedExecutionException r = rejection;
+        if (r != null) {
+            throw new ExecutionException(r);
+        }
+        return e;
     }
 
+    /**
+     * Run the task, or cancel it if its deadline has passed while it was queued.
+     */
     @Override
     public void run() {
-        src.run();
+        if (isExpired()) {
+            cancel(false);
+            return;
+        }
+        try {
+            src.run();
+        } finally {
+            releaseDeadlineTimer();
+        }
+        if (propagateFailure && src.isDone() && !src.isCancelled()) {
+            try {
+                src.get();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                } else if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
     }
 }
@@ -1,8 +1,46 @@
 package org.cujau.utils.priorityexecutor;
 
 import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Orders {@link PriorityFuture}s by priority (lower numbers first), then by deadline (earliest
+ * first, tasks without deadline last) and then by creation order, so tasks of the same priority
+ * without deadline run first-in first-out.
+ * <p>
+ * With an aging interval, a waiting task gains one priority level per interval it has waited, so
+ * low priority tasks cannot starve: a task of priority <tt>p + k</tt> created more than <tt>k</tt>
+ * intervals before a task of priority <tt>p</tt> runs first. The effective priority is derived from
+ * the creation time, which never changes, so the order of two queued tasks never changes either and
+ * the comparator can safely be used by a heap.
+ * </p>
+ */
+public class PriorityFutureComparator implements Comparator<Runnable> {
+
+    private final long agingNanos;
+
+    /**
+     * Create a comparator without aging.
+     */
+    public PriorityFutureComparator() {
+        this.agingNanos = 0;
+    }
+
+    /**
+     * Create a comparator with aging.
+     *
+     * @param agingInterval
+     *         The time a task has to wait to gain one priority level.
+     * @param unit
+     *         The unit of the interval.
+     */
+    public PriorityFutureComparator(long agingInterval, TimeUnit unit) {
+        if (agingInterval <= 0) {
+            throw new IllegalArgumentException("agingInterval must be > 0");
+        }
+        this.agingNanos = unit.toNanos(agingInterval);
+    }
 
-class PriorityFutureComparator implements Comparator<Runnable> {
     @Override
     public int compare(Runnable o1, Runnable o2) {
         if (o1 == null && o2 == null) {
@@ -12,10 +50,45 @@ class PriorityFutureComparator implements Comparator<Runnable> {
         } else if (o2 == null) {
             return 1;
         } else {
-            int p1 = ((PriorityFuture<?>) o1).getPriority();
-            int p2 = ((PriorityFuture<?>) o2).getPriority();
+            PriorityFuture<?> f1 = (PriorityFuture<?>) o1;
+            PriorityFuture<?> f2 = (PriorityFuture<?>) o2;
+            int p1 = f1.getPriority();
+            int p2 = f2.getPriority();
+
+            int c;
+            if (agingNanos == 0) {
+                c = Integer.compare(p1, p2);
+            } else {
+                c = Long.signum(agedDifference((long) p1 - p2, f1.getCreatedNanos() - f2.getCreatedNanos()));
+            }
+            if (c == 0) {
+                c = compareDeadlines(f1.getDeadline(), f2.getDeadline());
+            }
+            return c != 0 ? c : Long.compare(f1.getSequence(), f2.getSequence());
+        }
+    }
+
+    private static int compareDeadlines(long d1, long d2) {
+        if (d1 == d2) {
+            return 0;
+        } else if (d1 == PriorityCallable.NO_DEADLINE) {
+            return 1;
+        } else if (d2 == PriorityCallable.NO_DEADLINE) {
+            return -1;
+        }
+        // nanoTime values may overflow, only their difference is meaningful.
+        return Long.signum(d1 - d2);
+    }
 
-            return Integer.compare(p1, p2);
+    /**
+     * @return <tt>priorityDiff * agingNanos + createdDiff</tt>, saturated to the range of a long.
+     */
+    private long agedDifference(long priorityDiff, long createdDiff) {
+        if (Math.abs(priorityDiff) > Long.MAX_VALUE / 2 / agingNanos) {
+            // So many levels apart that no waiting time can make up for it.
+            return priorityDiff;
         }
+        // Waiting times are small compared to a long, so the sum cannot overflow.
+        return priorityDiff * agingNanos + createdDiff;
     }
 }
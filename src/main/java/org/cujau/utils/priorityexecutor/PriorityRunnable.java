@@ -0,0 +1,15 @@
+package org.cujau.utils.priorityexecutor;
+
+public interface PriorityRunnable extends Runnable {
+
+    int getPriority();
+
+    /**
+     * @return The deadline as a {@link System#nanoTime()} value, or
+     *         {@link PriorityCallable#NO_DEADLINE}.
+     * @see PriorityCallable#getDeadline()
+     */
+    default long getDeadline() {
+        return PriorityCallable.NO_DEADLINE;
+    }
+}
@@ -0,0 +1,242 @@
+package org.cujau.utils.priorityexecutor;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RunnableScheduledFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Prioritized executor that also runs delayed and periodic tasks.
+ *
+ * The scheduled tasks wait in a {@link TimingWheel} until they are due and are then queued like any
+ * other task, with the priority of their {@link PriorityRunnable} or {@link PriorityCallable}, so a
+ * due task of high priority runs before the queued tasks of lower priority. Scheduling a task costs
+ * the same whatever the number of scheduled tasks, which suits many periodic jobs. A task runs at
+ * most about one tick after its due time, and then only when a worker is free. A task cancelled
+ * before it is due leaves the wheel at the next tick instead of staying there until its due time.
+ *
+ * Unlike with a ScheduledThreadPoolExecutor, the delayed and periodic tasks that are not due yet are
+ * cancelled on shutdown.
+ */
+public class PriorityScheduledThreadPoolExecutor extends PriorityThreadPoolExecutor
+        implements ScheduledExecutorService {
+
+    private static final long DEFAULT_TICK_MILLIS = 10;
+    private static final int DEFAULT_WHEEL_SIZE = 512;
+    private static final int DEFAULT_INITIAL_QUEUE_SIZE = 64;
+    private static final AtomicInteger WHEEL_COUNT = new AtomicInteger();
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    private final TimingWheel wheel;
+
+    /**
+     * Create an executor with a tick of 10 ms and a wheel of 512 ticks.
+     */
+    public PriorityScheduledThreadPoolExecutor(int corePoolSize) {
+        this(corePoolSize, Executors.defaultThreadFactory());
+    }
+
+    public PriorityScheduledThreadPoolExecutor(int corePoolSize, ThreadFactory threadFactory) {
+        this(corePoolSize, threadFactory, DEFAULT_TICK_MILLIS, TimeUnit.MILLISECONDS, DEFAULT_WHEEL_SIZE);
+    }
+
+    /**
+     * @param corePoolSize
+     *         The number of worker threads.
+     * @param threadFactory
+     *         The factory of the worker threads.
+     * @param tickDuration
+     *         The resolution of the due times.
+     * @param unit
+     *         The unit of the tick duration.
+     * @param wheelSize
+     *         The number of ticks of the timing wheel. Tasks due within one turn of the wheel are
+     *         handled slightly faster than tasks due later.
+     */
+    public PriorityScheduledThreadPoolExecutor(int corePoolSize, ThreadFactory threadFactory, long tickDuration,
+                                               TimeUnit unit, int wheelSize) {
+        super(corePoolSize, corePoolSize, 0, TimeUnit.MILLISECONDS, threadFactory, DEFAULT_INITIAL_QUEUE_SIZE);
+        this.wheel = new TimingWheel(unit.toNanos(tickDuration), wheelSize, this::executeDue, r -> {
+            Thread t = new Thread(r, "priority-timing-wheel-" + WHEEL_COUNT.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @Override
+    public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+        return delayedExecute(new ScheduledTask<>(Executors.callable(command), priorityOf(command),
+                                                  triggerTime(delay, unit), 0));
+    }
+
+    @Override
+    public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+        return delayedExecute(new ScheduledTask<>(callable, priorityOf(callable), triggerTime(delay, unit), 0));
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period, TimeUnit unit) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("period must be > 0");
+        }
+        return delayedExecute(new ScheduledTask<>(Executors.callable(command), priorityOf(command),
+                                                  triggerTime(initialDelay, unit), unit.toNanos(period)));
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay,
+                                                     TimeUnit unit) {
+        if (delay <= 0) {
+            throw new IllegalArgumentException("delay must be > 0");
+        }
+        return delayedExecute(new ScheduledTask<>(Executors.callable(command), priorityOf(command),
+                                                  triggerTime(initialDelay, unit), -unit.toNanos(delay)));
+    }
+
+    private <V> ScheduledFuture<V> delayedExecute(ScheduledTask<V> task) {
+        if (isShutdown() || !task.schedule()) {
+            task.cancel(false);
+            throw new RejectedExecutionException("Executor has been shut down");
+        }
+        return task;
+    }
+
+    private static long triggerTime(long delay, TimeUnit unit) {
+        return System.nanoTime() + unit.toNanos(Math.max(0, delay));
+    }
+
+    /**
+     * Queue a task of the timing wheel that is due.
+     */
+    private void executeDue(Runnable task) {
+        try {
+            execute(task);
+        } catch (RejectedExecutionException e) {
+            ((ScheduledTask<?>) task).cancel(false);
+        }
+    }
+
+    /**
+     * @return The number of delayed and periodic tasks that are waiting for their time.
+     */
+    int getScheduledCount() {
+        return wheel.size();
+    }
+
+    @Override
+    public void shutdown() {
+        super.shutdown();
+        wheel.stop();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        List<Runnable> pending = super.shutdownNow();
+        wheel.stop();
+        return pending;
+    }
+
+    /**
+     * A delayed or periodic task. It is a {@link PriorityRunnable}, so the executor queues it with
+     * its priority when it is due.
+     */
+    private final class ScheduledTask<V> extends FutureTask<V>
+            implements RunnableScheduledFuture<V>, PriorityRunnable {
+
+        private final int priority;
+        private final long sequence = SEQUENCE.getAndIncrement();
+        /**
+         * Positive for a fixed rate, negative for a fixed delay, 0 for a one-shot task.
+         */
+        private final long period;
+        private volatile long time;
+        private volatile TimingWheel.Entry timeout;
+
+        ScheduledTask(Callable<V> callable, int priority, long time, long period) {
+            super(callable);
+            this.priority = priority;
+            this.time = time;
+            this.period = period;
+        }
+
+        @Override
+        public int getPriority() {
+            return priority;
+        }
+
+        @Override
+        public boolean isPeriodic() {
+            return period != 0;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(time - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            if (other == this) {
+                return 0;
+            }
+            if (other instanceof ScheduledTask) {
+                ScheduledTask<?> o = (ScheduledTask<?>) other;
+                int c = Long.signum(time - o.time);
+                return c != 0 ? c : Long.compare(sequence, o.sequence);
+            }
+            return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+        }
+
+        /**
+         * Put this task in the wheel until its time.
+         *
+         * @return <tt>false</tt> if the wheel has been stopped.
+         */
+        boolean schedule() {
+            TimingWheel.Entry entry = wheel.schedule(time, this);
+            if (entry == null) {
+                return false;
+            }
+            timeout = entry;
+            if (isCancelled()) {
+                // Cancelled before the entry was known.
+                entry.cancel();
+            }
+            return true;
+        }
+
+        /**
+         * Cancel this task, and take it out of the wheel if it is not due yet.
+         */
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            TimingWheel.Entry entry = timeout;
+            if (cancelled && entry != null) {
+                entry.cancel();
+            }
+            return cancelled;
+        }
+
+        @Override
+        public void run() {
+            if (!isPeriodic()) {
+                super.run();
+            } else if (runAndReset()) {
+                time = period > 0 ? time + period : System.nanoTime() - period;
+                if (isShutdown() || !schedule()) {
+                    cancel(false);
+                }
+            }
+        }
+    }
+}
@@ -1,20 +1,80 @@
 package org.cujau.utils.priorityexecutor;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.RunnableFuture;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 /**
  * Prioritized ThreadPoolExecutor.
  *
+ * By default the tasks wait in a {@link PriorityBlockingQueue}. For many submitting threads, the
+ * constructors taking a work queue accept a {@link BandedPriorityBlockingQueue} instead, which does
+ * not serialize the submissions on a single lock. It always runs the tasks of the same priority in
+ * submission order, so the earliest deadline first ordering and aging described below do not apply
+ * to it.
+ *
+ * To bound the memory used by the queued tasks, pass a {@link BoundedPriorityBlockingQueue}, which
+ * evicts the lowest priority tasks when it is full.
+ *
+ * The priority of a queued task can be changed with {@link #reprioritize(Future, int)}, which is
+ * cheapest with an {@link IndexedPriorityBlockingQueue}.
+ *
+ * {@link #submitAll(Collection)} and {@link #invokeAll(Collection)} queue a batch of tasks in one
+ * operation when the work queue is a {@link BatchBlockingQueue}. A {@link PriorityCallable} with a
+ * coalescing key replaces a queued task with the same key instead of being queued itself.
+ *
+ * {@link #supplyAsync(int, Supplier)} and {@link #runAsync(int, Runnable)} start
+ * {@link PriorityCompletableFuture} pipelines whose asynchronous stages run on this executor with
+ * the same priority.
+ *
+ * Tasks of the same priority run in submission order. To keep low priority tasks from starving
+ * under sustained load, pass a {@link PriorityBlockingQueue} with an aging
+ * {@link PriorityFutureComparator} to one of these constructors.
+ *
+ * The priority of a task is taken from {@link PriorityCallable} or {@link PriorityRunnable}. Any
+ * other Callable or Runnable, including the ones handed to {@link #execute(Runnable)} by
+ * <tt>CompletableFuture.runAsync</tt> and friends, gets the default priority. Tasks of the same
+ * priority with a deadline run earliest deadline first. A task whose deadline passes while it is
+ * queued is removed from the queue and cancelled by a {@link TimingWheel}, at most about 10 ms late,
+ * so that the callers waiting on its future are released at that time and not when a worker would
+ * have reached it. A task whose deadline has already passed when it is submitted is cancelled at
+ * once instead of being queued. The wheel and its thread are only created for the first deadline.
+ *
+ * Queue lengths, wait times and run times are recorded by a {@link PriorityExecutorMetrics} set with
+ * {@link #setMetrics(PriorityExecutorMetrics)}.
+ *
  * Taken from StackOverflow: https://stackoverflow.com/questions/3545623/how-to-implement-priorityblockingqueue-with-threadpoolexecutor-and-custom-tasks/5485769#5485769
  */
 public class PriorityThreadPoolExecutor extends ThreadPoolExecutor {
 
+    public static final int DEFAULT_PRIORITY = 0;
+
+    private static final long DEADLINE_TICK_MILLIS = 10;
+    private static final int DEADLINE_WHEEL_SIZE = 512;
+    private static final AtomicInteger WHEEL_COUNT = new AtomicInteger();
+
+    private volatile int defaultPriority = DEFAULT_PRIORITY;
+    // Cancels the queued tasks whose deadline passes. Only created for the first task with a deadline.
+    private volatile TimingWheel deadlines;
+    private volatile PriorityExecutorMetrics metrics;
+    private final ConcurrentHashMap<Object, CoalescingCallable<?>> coalescing = new ConcurrentHashMap<>();
+
     public PriorityThreadPoolExecutor(int corePoolSize, int maximumPoolSize, long keepAliveTime, TimeUnit unit,
                                       int initialQueueSize) {
         super(corePoolSize, maximumPoolSize, keepAliveTime, unit,
@@ -40,9 +100,597 @@ public class PriorityThreadPoolExecutor extends ThreadPoolExecutor {
               new PriorityBlockingQueue<>(initialQueueSize, new PriorityFutureComparator()), threadFactory, handler);
     }
 
+    /**
+     * @param workQueue
+     *         The queue holding the tasks before they are executed. It must order the
+     *         {@link PriorityFuture}s created by this executor by priority, like
+     *         {@link BandedPriorityBlockingQueue} does.
+     */
+    public PriorityThreadPoolExecutor(int corePoolSize, int maximumPoolSize, long keepAliveTime, TimeUnit unit,
+                                      BlockingQueue<Runnable> workQueue) {
+        super(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue);
+    }
+
+    public PriorityThreadPoolExecutor(int corePoolSize, int maximumPoolSize, long keepAliveTime, TimeUnit unit,
+                                      BlockingQueue<Runnable> workQueue, ThreadFactory threadFactory) {
+        super(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue, threadFactory);
+    }
+
+    public PriorityThreadPoolExecutor(int corePoolSize, int maximumPoolSize, long keepAliveTime, TimeUnit unit,
+                                      BlockingQueue<Runnable> workQueue, RejectedExecutionHandler handler) {
+        super(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue, handler);
+    }
+
+    public PriorityThreadPoolExecutor(int corePoolSize, int maximumPoolSize, long keepAliveTime, TimeUnit unit,
+                                      BlockingQueue<Runnable> workQueue, ThreadFactory threadFactory,
+                                      RejectedExecutionHandler handler) {
+        super(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue, threadFactory, handler);
+    }
+
+    public int getDefaultPriority() {
+        return defaultPriority;
+    }
+
+    /**
+     * Set the priority of the tasks that are neither a {@link PriorityCallable} nor a
+     * {@link PriorityRunnable}. Defaults to {@link #DEFAULT_PRIORITY}.
+     */
+    public void setDefaultPriority(int defaultPriority) {
+        this.defaultPriority = defaultPriority;
+    }
+
+    public PriorityExecutorMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Record the activity of this executor in the given metrics, or stop recording with
+     * <tt>null</tt>. Set the metrics before submitting tasks, otherwise the queue lengths do not
+     * account for the tasks that were already queued.
+     */
+    public void setMetrics(PriorityExecutorMetrics metrics) {
+        RejectedExecutionHandler handler = getRejectedExecutionHandler();
+        this.metrics = metrics;
+        setRejectedExecutionHandler(handler);
+        if (getQueue() instanceof BoundedPriorityBlockingQueue) {
+            BoundedPriorityBlockingQueue queue = (BoundedPriorityBlockingQueue) getQueue();
+            queue.setEvictionListener(metrics == null ? null : metrics::taskRejected);
+        }
+    }
+
+    @Override
+    public void setRejectedExecutionHandler(RejectedExecutionHandler handler) {
+        if (handler == null) {
+            throw new NullPointerException();
+        }
+        PriorityExecutorMetrics m = metrics;
+        super.setRejectedExecutionHandler(m == null ? handler : new CountingRejectedExecutionHandler(handler, m));
+    }
+
+    @Override
+    public RejectedExecutionHandler getRejectedExecutionHandler() {
+        RejectedExecutionHandler handler = super.getRejectedExecutionHandler();
+        if (handler instanceof CountingRejectedExecutionHandler) {
+            return ((CountingRejectedExecutionHandler) handler).delegate;
+        }
+        return handler;
+    }
+
+    /**
+     * Execute the given task. Tasks that do not come from {@link #newTaskFor} are wrapped into a
+     * {@link PriorityFuture} so that the queue can order them. An exception thrown by such a task is
+     * still propagated to {@link #afterExecute} and the worker thread, as with a plain
+     * ThreadPoolExecutor.
+     */
+    @Override
+    public void execute(Runnable command) {
+        if (command == null) {
+            throw new NullPointerException();
+        }
+        if (!(command instanceof PriorityFuture)) {
+            PriorityFuture<Object> task = new PriorityFuture<>(super.newTaskFor(command, null), priorityOf(command),
+                                                               deadlineOf(command));
+            task.setPropagateFailure(true);
+            command = task;
+        }
+        PriorityFuture<?> task = (PriorityFuture<?>) command;
+        if (task.isExpired()) {
+            // Too late already, do not even queue it.
+            task.cancel(false);
+            return;
+        }
+        PriorityExecutorMetrics m = metrics;
+        if (m != null) {
+            m.taskSubmitted(command);
+        }
+        super.execute(command);
+        watchDeadline(task);
+    }
+
+    /**
+     * Cancel the given task when its deadline passes, if it is still queued by then. Called once the
+     * task is queued, so that a deadline that passes meanwhile still finds it in the queue.
+     */
+    private void watchDeadline(final PriorityFuture<?> task) {
+        if (task.getDeadline() == PriorityCallable.NO_DEADLINE || task.isDone()) {
+            return;
+        }
+        TimingWheel.Entry entry = deadlineWheel().schedule(task.getDeadline(), () -> {
+            // Not removed if a worker has already taken it, which then cancels it if it is late.
+            if (!task.isDone() && remove(task)) {
+                task.cancel(false);
+            }
+        });
+        if (entry != null) {
+            task.setDeadlineTimer(entry);
+        }
+    }
+
+    private TimingWheel deadlineWheel() {
+        TimingWheel wheel = deadlines;
+        if (wheel == null) {
+            synchronized (coalescing) {
+                wheel = deadlines;
+                if (wheel == null) {
+                    wheel = new TimingWheel(TimeUnit.MILLISECONDS.toNanos(DEADLINE_TICK_MILLIS), DEADLINE_WHEEL_SIZE,
+                                            Runnable::run, r -> {
+                        Thread t = new Thread(r, "priority-deadline-wheel-" + WHEEL_COUNT.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    });
+                    deadlines = wheel;
+                }
+            }
+        }
+        return wheel;
+    }
+
+    /**
+     * @return The number of deadlines that are being watched.
+     */
+    int getDeadlineCount() {
+        TimingWheel wheel = deadlines;
+        return wheel == null ? 0 : wheel.size();
+    }
+
+    /**
+     * Change the priority of a task that is still waiting in the queue, so that it runs earlier or
+     * later than it would have. With an {@link IndexedPriorityBlockingQueue} the task is moved in
+     * place; with other queues it is removed and offered again.
+     *
+     * @param future
+     *         A future returned by one of the <tt>submit</tt> methods of this executor.
+     * @param priority
+     *         The new priority.
+     * @return <tt>true</tt> if the task was queued and its priority changed, <tt>false</tt> if it
+     *         has already started or was not submitted to this executor.
+     */
+    public boolean reprioritize(Future<?> future, int priority) {
+        if (!(future instanceof PriorityFuture)) {
+            return false;
+        }
+        PriorityFuture<?> task = (PriorityFuture<?>) future;
+        int oldPriority = task.getPriority();
+        BlockingQueue<Runnable> queue = getQueue();
+        if (queue instanceof IndexedPriorityBlockingQueue) {
+            if (!((IndexedPriorityBlockingQueue) queue).reprioritize(task, priority)) {
+                return false;
+            }
+        } else {
+            if (!queue.remove(task)) {
+                return false;
+            }
+            task.setPriority(priority);
+            if (!queue.offer(task)) {
+                PriorityExecutorMetrics m = metrics;
+                if (m != null) {
+                    m.taskReprioritized(oldPriority, priority);
+                    m.taskRejected(task);
+                }
+                task.reject(new RejectedExecutionException("No room left in the queue after the priority change"));
+                return false;
+            }
+        }
+        PriorityExecutorMetrics m = metrics;
+        if (m != null) {
+            m.taskReprioritized(oldPriority, priority);
+        }
+        return true;
+    }
+
+    @Override
+    protected void beforeExecute(Thread t, Runnable r) {
+        super.beforeExecute(t, r);
+        PriorityExecutorMetrics m = metrics;
+        if (m != null) {
+            m.taskStarted(r);
+        }
+    }
+
+    @Override
+    protected void afterExecute(Runnable r, Throwable t) {
+        super.afterExecute(r, t);
+        PriorityExecutorMetrics m = metrics;
+        if (m != null) {
+            m.taskFinished(r, t);
+        }
+    }
+
+    @Override
+    public boolean remove(Runnable task) {
+        boolean removed = super.remove(task);
+        PriorityExecutorMetrics m = metrics;
+        if (removed && m != null) {
+            m.taskRemoved(task);
+        }
+        return removed;
+    }
+
+    @Override
+    public void purge() {
+        PriorityExecutorMetrics m = metrics;
+        if (m != null) {
+            for (Runnable r : getQueue().toArray(new Runnable[0])) {
+                if (r instanceof Future && ((Future<?>) r).isCancelled() && getQueue().remove(r)) {
+                    m.taskRemoved(r);
+                }
+            }
+        }
+        super.purge();
+    }
+
+    @Override
+    protected void terminated() {
+        super.terminated();
+        TimingWheel wheel = deadlines;
+        if (wheel != null) {
+            wheel.stop();
+        }
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        List<Runnable> pending = super.shutdownNow();
+        PriorityExecutorMetrics m = metrics;
+        if (m != null) {
+            for (Runnable r : pending) {
+                m.taskRemoved(r);
+            }
+        }
+        return pending;
+    }
+
+    /**
+     * Submit the given task. If it is a {@link PriorityCallable} with a coalescing key and a task with
+     * the same key is still queued, the queued task is changed to run the given task instead and its
+     * future is returned. The queued task keeps its place, unless the given task has a higher
+     * priority, in which case the queued task is moved up.
+     */
+    @Override
+    public <T> Future<T> submit(Callable<T> task) {
+        Object key = coalescingKeyOf(task);
+        if (key == null) {
+            return super.submit(task);
+        }
+        return submitCoalescing(key, (PriorityCallable<T>) task);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> Future<T> submitCoalescing(Object key, PriorityCallable<T> task) {
+        for (;;) {
+            CoalescingCallable<T> pending = (CoalescingCallable<T>) coalescing.get(key);
+            if (pending != null) {
+                if (pending.replace(task)) {
+                    if (task.getPriority() < pending.future.getPriority()) {
+                        reprioritize(pending.future, task.getPriority());
+                    }
+                    return pending.future;
+                }
+                // Started or cancelled in the meantime.
+                coalescing.remove(key, pending);
+                continue;
+            }
+            CoalescingCallable<T> c = new CoalescingCallable<>(key, task);
+            c.future = new PriorityFuture<>(c.newTask(), priorityOf(task), deadlineOf(task));
+            if (coalescing.putIfAbsent(key, c) != null) {
+                continue;
+            }
+            try {
+                execute(c.future);
+            } catch (RejectedExecutionException e) {
+                coalescing.remove(key, c);
+                throw e;
+            }
+            return c.future;
+        }
+    }
+
+    /**
+     * Submit all the given tasks. When the work queue is a {@link BatchBlockingQueue} and all core
+     * threads are started, the tasks are queued in a single operation instead of one by one. Tasks
+     * with a coalescing key are submitted one by one, as with {@link #submit(Callable)}.
+     *
+     * @return The futures of the tasks, in the order of the given collection.
+     * @throws RejectedExecutionException
+     *         if a task is rejected, in which case the tasks submitted so far are cancelled.
+     */
+    public <T> List<Future<T>> submitAll(Collection<? extends Callable<T>> tasks) {
+        List<Future<T>> futures = new ArrayList<>(tasks.size());
+        List<Runnable> batch = new ArrayList<>(tasks.size());
+        boolean batching = getQueue() instanceof BatchBlockingQueue && getCorePoolSize() > 0;
+        try {
+            for (Callable<T> task : tasks) {
+                if (task == null) {
+                    throw new NullPointerException();
+                }
+                if (!batching || coalescingKeyOf(task) != null || getPoolSize() < getCorePoolSize()) {
+                    futures.add(submit(task));
+                } else {
+                    RunnableFuture<T> f = newTaskFor(task);
+                    futures.add(f);
+                    batch.add(f);
+                }
+            }
+            if (!batch.isEmpty()) {
+                executeAll(batch);
+            }
+        } catch (RuntimeException | Error e) {
+            for (Future<T> f : futures) {
+                f.cancel(true);
+            }
+            throw e;
+        }
+        return futures;
+    }
+
+    /**
+     * @return The number of coalescing keys whose task has not started yet.
+     */
+    int getCoalescingCount() {
+        return coalescing.size();
+    }
+
+    /**
+     * Queue the given tasks with {@link BatchBlockingQueue#offerAll}, following the same rules as
+     * {@link #execute(Runnable)} for the tasks that are not accepted and on shutdown.
+     */
+    @SuppressWarnings("unchecked")
+    private void executeAll(List<Runnable> batch) {
+        if (isShutdown()) {
+            for (Runnable r : batch) {
+                execute(r);
+            }
+            return;
+        }
+        batch.removeIf(r -> {
+            PriorityFuture<?> task = (PriorityFuture<?>) r;
+            if (task.isExpired()) {
+                task.cancel(false);
+                return true;
+            }
+            return false;
+        });
+        // Counted before they are published, as in execute(), so that a worker never starts an uncounted task.
+        PriorityExecutorMetrics m = metrics;
+        if (m != null) {
+            for (Runnable r : batch) {
+                m.taskSubmitted(r);
+            }
+        }
+        int accepted;
+        try {
+            accepted = ((BatchBlockingQueue<Runnable>) getQueue()).offerAll(batch);
+        } catch (RuntimeException e) {
+            if (m != null) {
+                for (Runnable r : batch) {
+                    m.taskNotSubmitted(r);
+                }
+            }
+            throw e;
+        }
+        for (int i = 0; i < accepted; i++) {
+            watchDeadline((PriorityFuture<?>) batch.get(i));
+        }
+        for (int i = accepted; i < batch.size(); i++) {
+            if (m != null) {
+                m.taskNotSubmitted(batch.get(i));
+            }
+            // Let the executor try to start a worker for it, or reject it.
+            execute(batch.get(i));
+        }
+        if (isShutdown()) {
+            for (int i = 0; i < accepted; i++) {
+                Runnable r = batch.get(i);
+                if (getQueue().remove(r)) {
+                    super.getRejectedExecutionHandler().rejectedExecution(r, this);
+                }
+            }
+        } else if (getPoolSize() == 0) {
+            prestartCoreThread();
+        }
+    }
+
+    /**
+     * Execute all the given tasks, queued in one operation as with {@link #submitAll(Collection)},
+     * and wait until they are completed.
+     */
+    @Override
+    public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks)
+            throws InterruptedException {
+        List<Future<T>> futures = submitAll(tasks);
+        try {
+            for (Future<T> f : futures) {
+                if (!f.isDone()) {
+                    try {
+                        f.get();
+                    } catch (CancellationException | ExecutionException e) {
+                        // Reported by the future.
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            for (Future<T> f : futures) {
+                f.cancel(true);
+            }
+            throw e;
+        }
+        return futures;
+    }
+
+    /**
+     * Run the given supplier with the given priority.
+     *
+     * @return A future completed with the result of the supplier. Its dependent asynchronous stages
+     *         run on this executor with the same priority.
+     */
+    public <T> PriorityCompletableFuture<T> supplyAsync(int priority, Supplier<T> supplier) {
+        if (supplier == null) {
+            throw new NullPointerException();
+        }
+        PriorityCompletableFuture<T> f = new PriorityCompletableFuture<>(this, priority);
+        execute(new PriorityCompletableFuture.Task(priority, () -> {
+            if (f.isDone()) {
+                // Cancelled while queued.
+                return;
+            }
+            try {
+                f.complete(supplier.get());
+            } catch (Throwable t) {
+                f.completeExceptionally(t);
+            }
+        }));
+        return f;
+    }
+
+    /**
+     * Run the given task with the given priority.
+     *
+     * @return A future completed when the task has run. Its dependent asynchronous stages run on this
+     *         executor with the same priority.
+     */
+    public PriorityCompletableFuture<Void> runAsync(int priority, Runnable task) {
+        if (task == null) {
+            throw new NullPointerException();
+        }
+        return supplyAsync(priority, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    /**
+     * @return A future already completed with the given value, to start a pipeline whose
+     *         asynchronous stages run on this executor with the given priority.
+     */
+    public <T> PriorityCompletableFuture<T> completedFuture(int priority, T value) {
+        PriorityCompletableFuture<T> f = new PriorityCompletableFuture<>(this, priority);
+        f.complete(value);
+        return f;
+    }
+
     @Override
     protected <T> RunnableFuture<T> newTaskFor(Callable<T> callable) {
         RunnableFuture<T> newTaskFor = super.newTaskFor(callable);
-        return new PriorityFuture<>(newTaskFor, ((PriorityCallable<T>) callable).getPriority());
+        return new PriorityFuture<>(newTaskFor, priorityOf(callable), deadlineOf(callable));
+    }
+
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(Runnable runnable, T value) {
+        RunnableFuture<T> newTaskFor = super.newTaskFor(runnable, value);
+        return new PriorityFuture<>(newTaskFor, priorityOf(runnable), deadlineOf(runnable));
+    }
+
+    int priorityOf(Object task) {
+        if (task instanceof PriorityCallable) {
+            return ((PriorityCallable<?>) task).getPriority();
+        } else if (task instanceof PriorityRunnable) {
+            return ((PriorityRunnable) task).getPriority();
+        }
+        return defaultPriority;
+    }
+
+    private static Object coalescingKeyOf(Callable<?> task) {
+        return task instanceof PriorityCallable ? ((PriorityCallable<?>) task).getCoalescingKey() : null;
+    }
+
+    private static long deadlineOf(Object task) {
+        if (task instanceof PriorityCallable) {
+            return ((PriorityCallable<?>) task).getDeadline();
+        } else if (task instanceof PriorityRunnable) {
+            return ((PriorityRunnable) task).getDeadline();
+        }
+        return PriorityCallable.NO_DEADLINE;
+    }
+
+    /**
+     * Counts the rejected tasks before handing them to the handler of the user.
+     */
+    private static final class CountingRejectedExecutionHandler implements RejectedExecutionHandler {
+
+        private final RejectedExecutionHandler delegate;
+        private final PriorityExecutorMetrics metrics;
+
+        CountingRejectedExecutionHandler(RejectedExecutionHandler delegate, PriorityExecutorMetrics metrics) {
+            this.delegate = delegate;
+            this.metrics = metrics;
+        }
+
+        @Override
+        public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+            metrics.taskRejected(r);
+            delegate.rejectedExecution(r, executor);
+        }
+    }
+
+    /**
+     * The callable of a coalescing task, which runs the last task submitted with its key.
+     */
+    private final class CoalescingCallable<T> implements Callable<T> {
+
+        private final Object key;
+        private Callable<T> delegate;
+        private boolean started;
+        PriorityFuture<T> future;
+
+        CoalescingCallable(Object key, Callable<T> delegate) {
+            this.key = key;
+            this.delegate = delegate;
+        }
+
+        /**
+         * @return The task running this callable. It releases the key once it is done, so that the
+         *         key of a task that was cancelled, expired or evicted before it started is not kept.
+         */
+        RunnableFuture<T> newTask() {
+            return new FutureTask<T>(this) {
+                @Override
+                protected void done() {
+                    coalescing.remove(key, CoalescingCallable.this);
+                }
+            };
+        }
+
+        /**
+         * @return <tt>false</tt> if the task has already started or completed.
+         */
+        synchronized boolean replace(Callable<T> task) {
+            if (started || future.isDone()) {
+                return false;
+            }
+            delegate = task;
+            return true;
+        }
+
+        @Override
+        public T call()
+                throws Exception {
+            Callable<T> task;
+            synchronized (this) {
+                started = true;
+                task = delegate;
+            }
+            coalescing.remove(key, this);
+            return task.call();
+        }
     }
 }
@@ -0,0 +1,101 @@
+package org.cujau.utils.priorityexecutor;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prioritized executor that runs its tasks on virtual threads.
+ *
+ * At most <tt>permits</tt> tasks run at the same time, each on its own virtual thread. The other
+ * tasks wait in the priority queue and are dequeued in the same order as with a
+ * {@link PriorityThreadPoolExecutor}. Since virtual threads are cheap, the number of permits can be
+ * much higher than a platform thread pool could afford, so blocking I/O tasks do not need a huge
+ * pool. Idle virtual threads terminate after the keep-alive time.
+ *
+ * Virtual threads need Java 21. The library is compiled for Java 11, so the virtual thread factory
+ * is looked up reflectively; on older runtimes the constructors throw an
+ * UnsupportedOperationException. Use {@link #isSupported()} to check beforehand.
+ */
+public class PriorityVirtualThreadExecutor extends PriorityThreadPoolExecutor {
+
+    private static final long DEFAULT_KEEP_ALIVE_SECONDS = 10;
+    private static final int DEFAULT_INITIAL_QUEUE_SIZE = 64;
+    private static final boolean SUPPORTED = checkSupported();
+
+    /**
+     * @param permits
+     *         The maximum number of tasks that run at the same time.
+     */
+    public PriorityVirtualThreadExecutor(int permits) {
+        this(permits, "priority-virtual-");
+    }
+
+    /**
+     * @param permits
+     *         The maximum number of tasks that run at the same time.
+     * @param namePrefix
+     *         The prefix of the names of the virtual threads, followed by a counter.
+     */
+    public PriorityVirtualThreadExecutor(int permits, String namePrefix) {
+        this(permits, namePrefix,
+             new PriorityBlockingQueue<>(DEFAULT_INITIAL_QUEUE_SIZE, new PriorityFutureComparator()));
+    }
+
+    /**
+     * @param permits
+     *         The maximum number of tasks that run at the same time.
+     * @param namePrefix
+     *         The prefix of the names of the virtual threads, followed by a counter.
+     * @param workQueue
+     *         The queue holding the tasks waiting for a permit.
+     */
+    public PriorityVirtualThreadExecutor(int permits, String namePrefix, BlockingQueue<Runnable> workQueue) {
+        super(permits, permits, DEFAULT_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, workQueue,
+              newVirtualThreadFactory(namePrefix));
+        allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * @return <tt>true</tt> if the runtime supports virtual threads.
+     */
+    public static boolean isSupported() {
+        return SUPPORTED;
+    }
+
+    private static boolean checkSupported() {
+        // Java 19 and 20 have Thread.ofVirtual() as a preview API, which throws unless the preview
+        // features are enabled.
+        if (Runtime.version().feature() < 21) {
+            return false;
+        }
+        try {
+            Thread.class.getMethod("ofVirtual").invoke(null);
+            return true;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return <tt>Thread.ofVirtual().name(namePrefix, 0).factory()</tt>
+     */
+    static ThreadFactory newVirtualThreadFactory(String namePrefix) {
+        if (!isSupported()) {
+            throw new UnsupportedOperationException("Virtual threads require Java 21 or later, running on "
+                                                    + System.getProperty("java.version"));
+        }
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> ofVirtual = Class.forName("java.lang.Thread$Builder$OfVirtual");
+            builder = ofVirtual.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 0L);
+            return (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException("Could not create the virtual thread factory", e.getCause());
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not create the virtual thread factory", e);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package org.cujau.utils.priorityexecutor;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prioritized executor with a fixed number of workers, each taking its tasks from its own priority
+ * heap and stealing from the others when it runs out of work.
+ *
+ * The tasks submitted from a running task stay with the worker that submitted them, the other tasks
+ * are spread over the workers. See {@link WorkStealingPriorityBlockingQueue} for how the priority
+ * order is kept across the workers.
+ */
+public class PriorityWorkStealingExecutor extends PriorityThreadPoolExecutor {
+
+    /**
+     * Create an executor with one worker per available processor.
+     */
+    public PriorityWorkStealingExecutor() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param parallelism
+     *         The number of workers.
+     */
+    public PriorityWorkStealingExecutor(int parallelism) {
+        this(parallelism, Executors.defaultThreadFactory());
+    }
+
+    /**
+     * @param parallelism
+     *         The number of workers.
+     * @param threadFactory
+     *         The factory of the worker threads.
+     */
+    public PriorityWorkStealingExecutor(int parallelism, ThreadFactory threadFactory) {
+        super(parallelism, parallelism, 0, TimeUnit.MILLISECONDS, new WorkStealingPriorityBlockingQueue(parallelism),
+              threadFactory);
+    }
+}
@@ -0,0 +1,267 @@
+package org.cujau.utils.priorityexecutor;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Hashed timing wheel that hands tasks to a consumer when their time has come.
+ * <p>
+ * The wheel is an array of buckets, one per tick. A task due in <tt>n</tt> ticks goes to the bucket
+ * <tt>n</tt> places ahead of the current one, with the number of full turns the wheel has to make
+ * before the task is due. A single thread advances the wheel once per tick and hands the due tasks
+ * of the current bucket to the consumer, so scheduling and expiring a task cost O(1) whatever the
+ * number of scheduled tasks. Tasks are never handed over early, and at most about one tick late.
+ * </p>
+ * <p>
+ * Scheduling threads only append to a lock-free queue, which the wheel thread moves into the buckets
+ * at every tick, so the buckets are only accessed by the wheel thread. A scheduled task can be
+ * cancelled with {@link Entry#cancel()}: the wheel lets go of the task at once and drops its entry
+ * at the next tick, so cancelled tasks do not pile up until their due time.
+ * </p>
+ */
+final class TimingWheel {
+
+    private final long tickNanos;
+    private final int mask;
+    private final Bucket[] buckets;
+    private final ConcurrentLinkedQueue<Entry> incoming = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Entry> cancelled = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final Consumer<Runnable> dueTasks;
+    private final ThreadFactory threadFactory;
+    private volatile Thread thread;
+    private long startNanos;
+    private volatile boolean stopped;
+
+    /**
+     * @param tickNanos
+     *         The duration of a tick.
+     * @param wheelSize
+     *         The number of buckets, rounded up to a power of two.
+     * @param dueTasks
+     *         Receives the due tasks, on the wheel thread.
+     * @param threadFactory
+     *         Creates the wheel thread.
+     */
+    TimingWheel(long tickNanos, int wheelSize, Consumer<Runnable> dueTasks, ThreadFactory threadFactory) {
+        if (tickNanos <= 0) {
+            throw new IllegalArgumentException("tick duration must be > 0");
+        }
+        if (wheelSize < 1 || wheelSize > 1 << 30) {
+            throw new IllegalArgumentException("Invalid wheel size " + wheelSize);
+        }
+        int size = Integer.highestOneBit(wheelSize);
+        if (size < wheelSize) {
+            size <<= 1;
+        }
+        this.tickNanos = tickNanos;
+        this.mask = size - 1;
+        this.buckets = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            buckets[i] = new Bucket();
+        }
+        this.dueTasks = dueTasks;
+        this.threadFactory = threadFactory;
+    }
+
+    /**
+     * Schedule the given task, starting the wheel thread if needed.
+     *
+     * @param time
+     *         The {@link System#nanoTime()} at which the task is due.
+     * @return The entry of the task, to cancel it, or <tt>null</tt> if the wheel has been stopped.
+     */
+    Entry schedule(long time, Runnable task) {
+        if (thread == null) {
+            start();
+        }
+        Entry entry = new Entry(this, time, task);
+        size.incrementAndGet();
+        incoming.add(entry);
+        if (stopped && incoming.remove(entry)) {
+            size.decrementAndGet();
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * @return The number of scheduled tasks, including the cancelled ones that the wheel thread has
+     *         not dropped yet.
+     */
+    int size() {
+        return size.get();
+    }
+
+    private synchronized void start() {
+        if (thread == null && !stopped) {
+            startNanos = System.nanoTime();
+            thread = threadFactory.newThread(this::run);
+            thread.start();
+        }
+    }
+
+    /**
+     * Stop the wheel. The tasks that are still scheduled are cancelled if they are Futures.
+     */
+    synchronized void stop() {
+        stopped = true;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        } else {
+            cancelAll();
+        }
+    }
+
+    private void run() {
+        long tick = 0;
+        while (!stopped) {
+            long deadline = startNanos + (tick + 1) * tickNanos;
+            long sleep;
+            while (!stopped && (sleep = deadline - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(this, sleep);
+            }
+            if (stopped) {
+                break;
+            }
+            transferIncoming(tick);
+            removeCancelled();
+            expire(buckets[(int) (tick & mask)]);
+            tick++;
+        }
+        cancelAll();
+    }
+
+    private void transferIncoming(long tick) {
+        Entry entry;
+        while ((entry = incoming.poll()) != null) {
+            if (entry.task == null) {
+                size.decrementAndGet();
+                continue;
+            }
+            long due = Math.floorDiv(entry.time - startNanos, tickNanos);
+            entry.rounds = Math.max(0, (due - tick) / buckets.length);
+            buckets[(int) (Math.max(due, tick) & mask)].add(entry);
+        }
+    }
+
+    private void removeCancelled() {
+        Entry entry;
+        while ((entry = cancelled.poll()) != null) {
+            // Still in incoming if it was scheduled after the last transfer, then the transfer drops it.
+            if (entry.bucket != null) {
+                entry.bucket.remove(entry);
+                size.decrementAndGet();
+            }
+        }
+    }
+
+    private void expire(Bucket bucket) {
+        Entry next;
+        for (Entry entry = bucket.head; entry != null; entry = next) {
+            next = entry.next;
+            Runnable task = entry.task;
+            if (task != null && entry.rounds > 0) {
+                entry.rounds--;
+                continue;
+            }
+            bucket.remove(entry);
+            size.decrementAndGet();
+            if (task != null && !(task instanceof Future && ((Future<?>) task).isDone())) {
+                dueTasks.accept(task);
+            }
+        }
+    }
+
+    private void cancelAll() {
+        Entry entry;
+        while ((entry = incoming.poll()) != null) {
+            cancel(entry.task);
+        }
+        for (Bucket bucket : buckets) {
+            while ((entry = bucket.head) != null) {
+                bucket.remove(entry);
+                cancel(entry.task);
+            }
+        }
+        cancelled.clear();
+        size.set(0);
+    }
+
+    private static void cancel(Runnable task) {
+        if (task instanceof Future) {
+            ((Future<?>) task).cancel(false);
+        }
+    }
+
+    /**
+     * A scheduled task. The links are only used by the wheel thread.
+     */
+    static final class Entry {
+
+        private final TimingWheel wheel;
+        final long time;
+        volatile Runnable task;
+        long rounds;
+        Bucket bucket;
+        Entry prev;
+        Entry next;
+
+        Entry(TimingWheel wheel, long time, Runnable task) {
+            this.wheel = wheel;
+            this.time = time;
+            this.task = task;
+        }
+
+        /**
+         * Unschedule the task. The wheel forgets the task at once, and the entry at the next tick.
+         */
+        void cancel() {
+            if (task != null) {
+                task = null;
+                wheel.cancelled.add(this);
+            }
+        }
+    }
+
+    /**
+     * The entries due in the same tick of a turn, as a doubly linked list so that a cancelled entry is
+     * removed in constant time.
+     */
+    private static final class Bucket {
+
+        Entry head;
+        Entry tail;
+
+        void add(Entry entry) {
+            entry.bucket = this;
+            entry.prev = tail;
+            if (tail == null) {
+                head = entry;
+            } else {
+                tail.next = entry;
+            }
+            tail = entry;
+        }
+
+        void remove(Entry entry) {
+            if (entry.prev == null) {
+                head = entry.next;
+            } else {
+                entry.prev.next = entry.next;
+            }
+            if (entry.next == null) {
+                tail = entry.prev;
+            } else {
+                entry.next.prev = entry.prev;
+            }
+            entry.prev = null;
+            entry.next = null;
+            entry.bucket = null;
+        }
+    }
+}
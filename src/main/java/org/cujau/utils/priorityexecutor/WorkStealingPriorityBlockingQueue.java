@@ -0,0 +1,354 @@
+package org.cujau.utils.priorityexecutor;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Work queue for {@link PriorityThreadPoolExecutor} split into one priority heap per worker, with
+ * work stealing between the heaps.
+ * <p>
+ * A thread that takes from this queue is given a home heap. Tasks offered by such a thread, i.e.
+ * tasks submitted by a running task, go to its home heap; tasks offered by any other thread are
+ * spread over the heaps round robin. Each heap has its own lock, so the workers do not all contend
+ * on the lock and the cache lines of a single heap.
+ * </p>
+ * <p>
+ * A taking thread compares the first task of its home heap with the first task of a randomly chosen
+ * other heap and takes the one that runs first, so a high priority task offered to a busy heap is
+ * picked up by the other workers quickly. When its home heap is empty, it steals the first task of
+ * the heap whose first task runs first. The priority order is therefore approximate across the heaps
+ * and exact within a heap.
+ * </p>
+ * <p>
+ * As in {@link BandedPriorityBlockingQueue}, a {@link Semaphore} counts the tasks: a taking thread
+ * acquires a permit, which reserves one task, before it looks for a task in the heaps.
+ * </p>
+ */
+public class WorkStealingPriorityBlockingQueue extends AbstractQueue<Runnable> implements BlockingQueue<Runnable> {
+
+    private final Comparator<Runnable> comparator;
+    private final Heap[] heaps;
+    private final Semaphore available = new Semaphore(0);
+    private final AtomicInteger nextHeap = new AtomicInteger();
+    private final AtomicInteger nextHome = new AtomicInteger();
+    private final ThreadLocal<Heap> home = new ThreadLocal<>();
+
+    /**
+     * @param heapCount
+     *         The number of heaps, usually the number of worker threads.
+     */
+    public WorkStealingPriorityBlockingQueue(int heapCount) {
+        this(heapCount, new PriorityFutureComparator());
+    }
+
+    /**
+     * @param heapCount
+     *         The number of heaps, usually the number of worker threads.
+     * @param comparator
+     *         The order of the tasks.
+     */
+    public WorkStealingPriorityBlockingQueue(int heapCount, Comparator<Runnable> comparator) {
+        if (heapCount < 1) {
+            throw new IllegalArgumentException("heapCount must be > 0");
+        }
+        this.comparator = comparator;
+        this.heaps = new Heap[heapCount];
+        for (int i = 0; i < heapCount; i++) {
+            heaps[i] = new Heap(i, comparator);
+        }
+    }
+
+    public int getHeapCount() {
+        return heaps.length;
+    }
+
+    @Override
+    public boolean offer(Runnable r) {
+        if (r == null) {
+            throw new NullPointerException();
+        }
+        Heap heap = home.get();
+        if (heap == null) {
+            heap = heaps[Math.floorMod(nextHeap.getAndIncrement(), heaps.length)];
+        }
+        heap.add(r);
+        available.release();
+        return true;
+    }
+
+    @Override
+    public void put(Runnable r) {
+        offer(r);
+    }
+
+    @Override
+    public boolean offer(Runnable r, long timeout, TimeUnit unit) {
+        return offer(r);
+    }
+
+    @Override
+    public Runnable take()
+            throws InterruptedException {
+        Heap own = homeHeap();
+        available.acquire();
+        return claim(own);
+    }
+
+    @Override
+    public Runnable poll(long timeout, TimeUnit unit)
+            throws InterruptedException {
+        Heap own = homeHeap();
+        if (!available.tryAcquire(timeout, unit)) {
+            return null;
+        }
+        return claim(own);
+    }
+
+    @Override
+    public Runnable poll() {
+        if (!available.tryAcquire()) {
+            return null;
+        }
+        return claim(home.get());
+    }
+
+    @Override
+    public Runnable peek() {
+        Heap best = bestHeap();
+        return best == null ? null : best.peek();
+    }
+
+    /**
+     * Remove the given task if it has not been reserved by a taking thread yet.
+     */
+    @Override
+    public boolean remove(Object o) {
+        if (!(o instanceof Runnable) || !available.tryAcquire()) {
+            return false;
+        }
+        for (Heap heap : heaps) {
+            if (heap.remove(o)) {
+                return true;
+            }
+        }
+        available.release();
+        return false;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        for (Heap heap : heaps) {
+            if (heap.contains(o)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return The number of tasks that have not been reserved by a taking thread.
+     */
+    @Override
+    public int size() {
+        return available.availablePermits();
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> c, int maxElements) {
+        if (c == this) {
+            throw new IllegalArgumentException();
+        }
+        int n = 0;
+        Runnable r;
+        while (n < maxElements && (r = poll()) != null) {
+            c.add(r);
+            n++;
+        }
+        return n;
+    }
+
+    /**
+     * @return An iterator over a snapshot of the tasks, in priority order. Its <tt>remove()</tt>
+     *         removes the task from this queue.
+     */
+    @Override
+    public Iterator<Runnable> iterator() {
+        List<Runnable> snapshot = new ArrayList<>();
+        for (Heap heap : heaps) {
+            heap.copyTo(snapshot);
+        }
+        snapshot.sort(comparator);
+        return new Iterator<Runnable>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < snapshot.size();
+            }
+
+            @Override
+            public Runnable next() {
+                if (next >= snapshot.size()) {
+                    throw new NoSuchElementException();
+                }
+                return snapshot.get(next++);
+            }
+
+            @Override
+            public void remove() {
+                if (next == 0) {
+                    throw new IllegalStateException();
+                }
+                WorkStealingPriorityBlockingQueue.this.remove(snapshot.get(next - 1));
+            }
+        };
+    }
+
+    private Heap homeHeap() {
+        Heap heap = home.get();
+        if (heap == null) {
+            heap = heaps[Math.floorMod(nextHome.getAndIncrement(), heaps.length)];
+            home.set(heap);
+        }
+        return heap;
+    }
+
+    /**
+     * Remove a task, preferring the home heap. The caller holds a permit.
+     */
+    private Runnable claim(Heap own) {
+        for (;;) {
+            Runnable r = null;
+            if (own != null && heaps.length > 1) {
+                Heap peer = heaps[(own.index + 1 + ThreadLocalRandom.current().nextInt(heaps.length - 1))
+                                  % heaps.length];
+                Runnable mine = own.peek();
+                Runnable theirs = peer.peek();
+                if (theirs != null && (mine == null || comparator.compare(theirs, mine) < 0)) {
+                    r = peer.poll();
+                }
+                if (r == null) {
+                    r = own.poll();
+                }
+            } else if (own != null) {
+                r = own.poll();
+            }
+            if (r == null) {
+                // Steal the best task of all heaps.
+                Heap best = bestHeap();
+                if (best != null) {
+                    r = best.poll();
+                }
+            }
+            if (r != null) {
+                return r;
+            }
+            // The reserved task is being added to a heap.
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * @return The heap whose first task runs first, or <tt>null</tt> if all heaps are empty.
+     */
+    private Heap bestHeap() {
+        Heap best = null;
+        Runnable bestTask = null;
+        for (Heap heap : heaps) {
+            Runnable r = heap.peek();
+            if (r != null && (bestTask == null || comparator.compare(r, bestTask) < 0)) {
+                best = heap;
+                bestTask = r;
+            }
+        }
+        return best;
+    }
+
+    private static final class Heap {
+
+        final int index;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final PriorityQueue<Runnable> tasks;
+
+        Heap(int index, Comparator<Runnable> comparator) {
+            this.index = index;
+            this.tasks = new PriorityQueue<>(comparator);
+        }
+
+        void add(Runnable r) {
+            lock.lock();
+            try {
+                tasks.add(r);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        Runnable peek() {
+            lock.lock();
+            try {
+                return tasks.peek();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        Runnable poll() {
+            lock.lock();
+            try {
+                return tasks.poll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        boolean remove(Object o) {
+            lock.lock();
+            try {
+                return tasks.remove(o);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        boolean contains(Object o) {
+            lock.lock();
+            try {
+                return tasks.contains(o);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void copyTo(List<Runnable> list) {
+            lock.lock();
+            try {
+                list.addAll(tasks);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package org.cujau.utils.converters;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.math.BigDecimal;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.NumberFormat;
+import java.text.ParseException;
+import java.util.Locale;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+/**
+ * Compares the scanner with the regex and NumberFormat based parsing it replaces.
+ */
+public class NumberScannerTest {
+
+    private static final Pattern FLOAT_JUNK = Pattern.compile( "[^0-9\\.\\-\\'\\,]" );
+    private static final Pattern INT_JUNK = Pattern.compile( "[^0-9\\-]" );
+    private static final String ALPHABET = "0123456789012345678901234567890123456789.,'- $CHF€";
+    private static final String[] AFFIXES = { "", "", "$", "CHF", "CHF ", "€", " €", " EUR", "US$" };
+
+    // NumberFormat wraps exponents that do not fit in an int around.
+    private static final Pattern HUGE_EXPONENT = Pattern.compile( "E-?[0-9]{10}" );
+    private static final String[] TOKENS = { "0", "1", "2", "3", "4", "5", "6", "7", "8", "9", "0", "1", "5", "9",
+            ".", ",", "-", "E", "E", " ", "x", "NaN", "\u221e" };
+
+    private static String randomValue( Random random ) {
+        StringBuilder sb = new StringBuilder();
+        int n = random.nextInt( 30 );
+        for ( int i = 0; i < n; i++ ) {
+            sb.append( ALPHABET.charAt( random.nextInt( ALPHABET.length() ) ) );
+        }
+        return sb.toString();
+    }
+
+    @Test
+    public void testSimpleValuesMatchJdk() {
+        Random random = new Random( 42 );
+        NumberScanner scanner = new NumberScanner();
+        for ( int i = 0; i < 100000; i++ ) {
+            String s = randomValue( random );
+            String floatStr = FLOAT_JUNK.matcher( s ).replaceAll( "" );
+            Double expectedDouble;
+            try {
+                expectedDouble = Double.parseDouble( floatStr );
+            } catch ( NumberFormatException e ) {
+                expectedDouble = null;
+            }
+            try {
+                double d = scanner.parseSimpleDouble( s );
+                assertEquals( s, expectedDouble, Double.valueOf( d ) );
+                assertEquals( s, Float.valueOf( Float.parseFloat( floatStr ) ),
+                              Float.valueOf( scanner.parseSimpleFloat( s ) ) );
+            } catch ( NumberFormatException e ) {
+                assertEquals( s, null, expectedDouble );
+            }
+
+            String intStr = INT_JUNK.matcher( s ).replaceAll( "" );
+            Integer expectedInt;
+            try {
+                expectedInt = Integer.parseInt( intStr );
+            } catch ( NumberFormatException e ) {
+                expectedInt = null;
+            }
+            try {
+                assertEquals( s, expectedInt, Integer.valueOf( scanner.parseSimpleInt( s ) ) );
+            } catch ( NumberFormatException e ) {
+                assertEquals( s, null, expectedInt );
+            }
+        }
+    }
+
+    @Test
+    public void testPrefixMatchesNumberFormat() {
+        Random random = new Random( 42 );
+        NumberScanner scanner = new NumberScanner();
+        for ( Locale loc : new Locale[] { Locale.US, Locale.GERMANY } ) {
+            NumberSymbols sym = NumberSymbols.of( loc );
+            NumberFormat fmt = NumberFormat.getInstance( loc );
+            for ( int i = 0; i < 100000; i++ ) {
+                StringBuilder sb = new StringBuilder();
+                int n = random.nextInt( 25 );
+                for ( int j = 0; j < n; j++ ) {
+                    sb.append( TOKENS[random.nextInt( TOKENS.length )] );
+                }
+                String s = sb.toString();
+                if ( HUGE_EXPONENT.matcher( s ).find() ) {
+                    continue;
+                }
+                Number expected;
+                try {
+                    expected = fmt.parse( s );
+                } catch ( ParseException e ) {
+                    expected = null;
+                }
+                if ( !scanner.scanPrefix( s, sym ) ) {
+                    assertEquals( s, null, expected );
+                    continue;
+                }
+                assertEquals( s, Double.valueOf( expected.doubleValue() ), Double.valueOf( scanner.doubleValue() ) );
+                assertEquals( s, expected.intValue(), scanner.intValue() );
+            }
+        }
+    }
+
+    @Test
+    public void testSymbolsAreCached() {
+        Locale swiss = new Locale( "de", "CH" );
+        assertSame( NumberSymbols.of( swiss ), NumberSymbols.of( new Locale( "de", "CH" ) ) );
+        assertSame( NumberScanner.get(), NumberScanner.get() );
+    }
+
+    @Test
+    public void testGroupingSeparator() {
+        assertTrue( NumberSymbols.isGroupingSeparator( ',', ',' ) );
+        assertFalse( NumberSymbols.isGroupingSeparator( ' ', ',' ) );
+        assertTrue( NumberSymbols.isGroupingSeparator( ' ', '\u00a0' ) );
+        assertTrue( NumberSymbols.isGroupingSeparator( '\u202f', ' ' ) );
+        assertTrue( NumberSymbols.isGroupingSeparator( '\u2019', '\'' ) );
+        assertFalse( NumberSymbols.isGroupingSeparator( '\'', '.' ) );
+        NumberSymbols french = NumberSymbols.of( Locale.FRANCE );
+        assertTrue( french.isGrouping( ' ' ) );
+        assertFalse( french.isGrouping( ',' ) );
+    }
+
+    @Test
+    public void testFormattedValuesMatchDecimalFormat()
+            throws ParseException {
+        Random random = new Random( 42 );
+        NumberScanner scanner = new NumberScanner();
+        for ( String tag : new String[] { "en-US", "de-DE", "de-CH", "fr-FR", "it-CH" } ) {
+            Locale loc = Locale.forLanguageTag( tag );
+            NumberSymbols sym = NumberSymbols.of( loc );
+            char decimal = DecimalFormatSymbols.getInstance( loc ).getDecimalSeparator();
+            NumberFormat fmt = NumberFormat.getInstance( loc );
+            DecimalFormat parser = (DecimalFormat) NumberFormat.getInstance( loc );
+            parser.setParseBigDecimal( true );
+            for ( int i = 0; i < 20000; i++ ) {
+                fmt.setMinimumFractionDigits( random.nextInt( 4 ) );
+                fmt.setMaximumFractionDigits( 4 );
+                double v = ( random.nextDouble() - 0.5 ) * Math.pow( 10, random.nextInt( 24 ) );
+                String s = AFFIXES[random.nextInt( AFFIXES.length )] + fmt.format( v )
+                           + AFFIXES[random.nextInt( AFFIXES.length )];
+                // What the scanner does, with the JDK: remove the junk, then parse.
+                StringBuilder stripped = new StringBuilder();
+                for ( char c : s.toCharArray() ) {
+                    if ( ( c >= '0' && c <= '9' ) || c == '-' || c == decimal ) {
+                        stripped.append( c );
+                    }
+                }
+                BigDecimal expected = (BigDecimal) parser.parse( stripped.toString() );
+                assertEquals( s, expected, scanner.parseBigDecimal( s, sym ) );
+            }
+        }
+    }
+
+    @Test
+    public void testBigDecimal()
+            throws ParseException {
+        NumberScanner scanner = new NumberScanner();
+        NumberSymbols us = NumberSymbols.of( Locale.US );
+        NumberSymbols swiss = NumberSymbols.of( new Locale( "de", "CH" ) );
+        NumberSymbols french = NumberSymbols.of( Locale.FRANCE );
+        assertEquals( new BigDecimal( "1200" ), scanner.parseBigDecimal( "1,200", us ) );
+        assertEquals( new BigDecimal( "0.050" ), scanner.parseBigDecimal( "$.050", us ) );
+        assertEquals( new BigDecimal( "-1234567890123456789012.345" ),
+                      scanner.parseBigDecimal( "-1,234,567,890,123,456,789,012.345 USD", us ) );
+        assertEquals( new BigDecimal( "1234.5" ), scanner.parseBigDecimal( "1'234.5", swiss ) );
+        assertEquals( new BigDecimal( "1234.5" ), scanner.parseBigDecimal( "1’234.5", swiss ) );
+        assertEquals( new BigDecimal( "-1234.5" ), scanner.parseBigDecimal( "-1 234,5 €", french ) );
+        assertEquals( new BigDecimal( "1234.5" ), scanner.parseBigDecimal( "1 234,5", french ) );
+        assertEquals( new BigDecimal( "1" ), scanner.parseBigDecimal( "1-23.45", us ) );
+        assertEquals( new BigDecimal( "1" ), scanner.parseBigDecimal( "1.2", french ) );
+        try {
+            scanner.parseBigDecimal( "CHF -.", swiss );
+            fail( "no digits" );
+        } catch ( ParseException e ) {
+            // expected
+        }
+    }
+}
@@ -2,6 +2,7 @@ package org.cujau.utils.converters;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
 
 import java.util.Calendar;
 import java.util.Date;
@@ -24,6 +25,32 @@ public class StringConverterFactoryImplTest {
         assertNull( impl.getConverter( Calendar.class ) );
     }
 
+    @Test
+    public void testConvertWithDefault() {
+        StringConverterFactoryImpl impl = new StringConverterFactoryImpl();
+        assertEquals( Integer.valueOf( 1234 ), impl.convert( "1,234", Integer.class, -1 ) );
+        assertEquals( Integer.valueOf( -1 ), impl.convert( "n/a", Integer.class, -1 ) );
+        assertNull( impl.convert( null, Integer.class, null ) );
+        assertEquals( Float.valueOf( 12.5f ), impl.convert( "$12.50", Float.class, null ) );
+        assertNull( impl.convert( "abc", Float.class, null ) );
+        assertEquals( Boolean.FALSE, impl.convert( "no", Boolean.class, Boolean.TRUE ) );
+        assertNull( impl.convert( "maybe", Boolean.class, null ) );
+        assertEquals( "Hi", impl.convert( "Hi", String.class, "" ) );
+
+        try {
+            new StringIntegerConverter().convert( "abc" );
+            fail( "invalid int" );
+        } catch ( NumberFormatException e ) {
+            // expected
+        }
+        try {
+            impl.convert( "1", Date.class, null );
+            fail( "no converter" );
+        } catch ( IllegalArgumentException e ) {
+            // expected
+        }
+    }
+
     @Test
     public void testToString() {
         StringConverterFactoryImpl impl = new StringConverterFactoryImpl();
@@ -111,6 +111,23 @@ public class StringConverterHelperTest {
         Locale.setDefault( def );
     }
 
+    @Test
+    public void testDefaultLocale() {
+        Locale def = Locale.getDefault( Locale.Category.FORMAT );
+        try {
+            Locale.setDefault( Locale.Category.FORMAT, Locale.FRANCE );
+            assertEquals( 1234.5, StringConverterHelper.doubleValueOf( "1 234,5" ), DELTA );
+            assertEquals( -1234.5, StringConverterHelper.doubleValueOf( "EUR -1 234,5" ), DELTA );
+            assertEquals( 1234, StringConverterHelper.intValueOf( "1 234 \u20ac" ) );
+            Locale.setDefault( Locale.Category.FORMAT, new Locale( "de", "CH" ) );
+            assertEquals( 1234.5f, StringConverterHelper.floatValueOf( "1'234.50" ), DELTA );
+            assertEquals( 1234.5f, StringConverterHelper.floatValueOf( "CHF 1\u2019234.50" ), DELTA );
+            assertEquals( 1500, StringConverterHelper.intValueOf( "1.5E3" ) );
+        } finally {
+            Locale.setDefault( Locale.Category.FORMAT, def );
+        }
+    }
+
     @Test
     public void testIntValueOf() {
         assertTrue( 1234 == StringConverterHelper.intValueOf( "1234" ) );
@@ -120,6 +137,47 @@ public class StringConverterHelperTest {
         assertTrue( 1234567 == StringConverterHelper.intValueOf( "\u20A41,234,567\u20A4" ) );
     }
 
+    @Test
+    public void testTryValueOf() {
+        ParsedValue result = new ParsedValue();
+        assertTrue( StringConverterHelper.tryIntValueOf( "$1,234$", result ) );
+        assertEquals( 1234, result.getInt() );
+        assertTrue( StringConverterHelper.tryFloatValueOf( "AU$1234.5007\u20AC", result ) );
+        assertEquals( 1234.5007f, result.getFloat(), DELTA );
+        assertTrue( StringConverterHelper.tryDoubleValueOf( "-1,234,567.89", result ) );
+        assertEquals( -1234567.89, result.getDouble(), DELTA );
+        assertTrue( StringConverterHelper.tryBigDecimalValueOf( "2 923,50", Locale.FRANCE, result ) );
+        assertEquals( new BigDecimal( "2923.50" ), result.getBigDecimal() );
+        assertTrue( StringConverterHelper.trySimpleIntValueOf( "-12 CHF", result ) );
+        assertEquals( -12, result.getInt() );
+        assertTrue( StringConverterHelper.trySimpleDoubleValueOf( "$12.5", result ) );
+        assertEquals( 12.5, result.getDouble(), DELTA );
+        assertTrue( StringConverterHelper.trySimpleFloatValueOf( "$12.5", result ) );
+        assertEquals( 12.5f, result.getFloat(), DELTA );
+
+        for ( String invalid : new String[] { null, "", "abc", "--1", "-", "." } ) {
+            assertFalse( invalid, StringConverterHelper.tryIntValueOf( invalid, result ) );
+            assertFalse( invalid, StringConverterHelper.tryFloatValueOf( invalid, result ) );
+            assertFalse( invalid, StringConverterHelper.tryDoubleValueOf( invalid, result ) );
+            assertFalse( invalid, StringConverterHelper.tryBigDecimalValueOf( invalid, result ) );
+            assertFalse( invalid, StringConverterHelper.trySimpleIntValueOf( invalid, result ) );
+            assertFalse( invalid, StringConverterHelper.trySimpleDoubleValueOf( invalid, result ) );
+        }
+        assertFalse( StringConverterHelper.trySimpleIntValueOf( "3,000,000,000", result ) );
+        assertFalse( StringConverterHelper.trySimpleDoubleValueOf( "1,234.5", result ) );
+        // The failed conversions leave the last result alone.
+        assertEquals( -12, result.getInt() );
+
+        assertTrue( StringConverterHelper.tryBooleanValueOf( "Yes", result ) );
+        assertTrue( result.getBoolean() );
+        assertTrue( StringConverterHelper.tryBooleanValueOf( "0", result ) );
+        assertFalse( result.getBoolean() );
+        assertTrue( StringConverterHelper.tryBooleanValueOf( "TRUE", result ) );
+        assertTrue( result.getBoolean() );
+        assertFalse( StringConverterHelper.tryBooleanValueOf( "ok", result ) );
+        assertFalse( StringConverterHelper.tryBooleanValueOf( null, result ) );
+    }
+
     @Test
     public void testCurrencyFormat() {
         float val = 12345.34f;
@@ -0,0 +1,121 @@
+package org.cujau.utils.csv;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.Locale;
+
+import org.cujau.utils.ReflectionException;
+import org.junit.Test;
+
+public class CSVBeanExporterTest {
+
+    public static class Trade {
+        public String note;
+
+        private final int quantity;
+        private final long id;
+        private final double price;
+        private final boolean open;
+        private final Date date;
+
+        public Trade( long id, int quantity, double price, boolean open, Date date, String note ) {
+            this.id = id;
+            this.quantity = quantity;
+            this.price = price;
+            this.open = open;
+            this.date = date;
+            this.note = note;
+        }
+
+        public int getQuantity() {
+            return quantity;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public double getPrice() {
+            return price;
+        }
+
+        public boolean isOpen() {
+            return open;
+        }
+
+        public Date getDate() {
+            return date;
+        }
+    }
+
+    @Test
+    public void testRenderLines()
+            throws IOException, ReflectionException {
+        CSVSymbols symbols = new CSVSymbols( Locale.US );
+        symbols.setLineSeparator( "\n" );
+        symbols.setDateFormat( "yyyy-MM-dd" );
+        StringWriter out = new StringWriter();
+        CSVWriter writer = new CSVWriter( out, symbols, 256 );
+
+        Date date = new GregorianCalendar( 2020, Calendar.MARCH, 4 ).getTime();
+        CSVBeanExporter<Trade> exporter = new CSVBeanExporter<Trade>( Trade.class, "id", "quantity", "price",
+                                                                      "open", "date", "note" );
+        exporter.renderHeader( writer );
+        exporter.renderLines( writer, Arrays.asList( new Trade( Long.MAX_VALUE, -12, 1.25, true, date, "a,b" ),
+                                                     new Trade( -7, 0, -0.5, false, null, null ) ) );
+        writer.flush();
+
+        assertEquals( "id,quantity,price,open,date,note\n"
+                      + "9223372036854775807,-12,1.25,true,2020-03-04,\"a,b\"\n"
+                      + "-7,0,-0.5,false,,\n", out.toString() );
+    }
+
+    public static class Quote {
+        public float bid = 1.1f;
+        public float ask = 1e-5f;
+    }
+
+    @Test
+    public void testFloatColumns()
+            throws IOException, ReflectionException {
+        CSVSymbols symbols = new CSVSymbols( Locale.US );
+        symbols.setLineSeparator( "\n" );
+        StringWriter out = new StringWriter();
+        CSVWriter writer = new CSVWriter( out, symbols, 256 );
+        new CSVBeanExporter<Quote>( Quote.class, "bid", "ask" ).renderLines( writer, Arrays.asList( new Quote() ) );
+        writer.flush();
+        assertEquals( "1.1,1.0E-5\n", out.toString() );
+    }
+
+    static class Hidden {
+        public String name = "a,b";
+
+        public int getSize() {
+            return 3;
+        }
+    }
+
+    @Test
+    public void testNonPublicBean()
+            throws IOException, ReflectionException {
+        CSVSymbols symbols = new CSVSymbols( Locale.US );
+        symbols.setLineSeparator( "\n" );
+        StringWriter out = new StringWriter();
+        CSVWriter writer = new CSVWriter( out, symbols, 256 );
+        new CSVBeanExporter<Hidden>( Hidden.class, "size", "name" ).renderLine( writer, new Hidden() );
+        writer.flush();
+        assertEquals( "3,\"a,b\"\n", out.toString() );
+    }
+
+    @Test( expected = ReflectionException.class )
+    public void testUnknownColumn()
+            throws ReflectionException {
+        new CSVBeanExporter<Trade>( Trade.class, "id", "nope" );
+    }
+}
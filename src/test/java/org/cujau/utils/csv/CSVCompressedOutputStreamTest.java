@@ -0,0 +1,70 @@
+package org.cujau.utils.csv;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.cujau.utils.StreamUtil;
+import org.junit.Test;
+
+public class CSVCompressedOutputStreamTest {
+
+    private static String render( CSVCompressedOutputStream out )
+            throws IOException {
+        CSVSymbols symbols = new CSVSymbols( Locale.US );
+        symbols.setLineSeparator( "\n" );
+        StringBuilder expected = new StringBuilder();
+        try ( CSVWriter writer = out.createCSVWriter( symbols, StandardCharsets.UTF_8 ) ) {
+            for ( int i = 0; i < 5000; i++ ) {
+                writer.renderLine( "line", Integer.toString( i ), "prix en €" );
+                expected.append( "line," ).append( i ).append( ",prix en €\n" );
+            }
+        }
+        return expected.toString();
+    }
+
+    @Test
+    public void testGzip()
+            throws IOException {
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        String expected = render( CSVCompressedOutputStream.gzip( bout, Deflater.BEST_SPEED, 1024 ) );
+        GZIPInputStream in = new GZIPInputStream( new ByteArrayInputStream( bout.toByteArray() ) );
+        assertEquals( expected, StreamUtil.getStreamAsString( in ) );
+    }
+
+    @Test
+    public void testZip()
+            throws IOException {
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        String expected = render( CSVCompressedOutputStream.zip( bout, "data.csv", Deflater.DEFAULT_COMPRESSION,
+                                                                 333 ) );
+        ZipInputStream in = new ZipInputStream( new ByteArrayInputStream( bout.toByteArray() ) );
+        ZipEntry entry = in.getNextEntry();
+        assertEquals( "data.csv", entry.getName() );
+        assertEquals( expected, StreamUtil.getStreamAsString( in ) );
+    }
+
+    @Test( expected = IOException.class )
+    public void testFailure()
+            throws IOException {
+        CSVCompressedOutputStream out = new CSVCompressedOutputStream( new java.io.OutputStream() {
+            @Override
+            public void write( int b )
+                    throws IOException {
+                throw new IOException( "disk full" );
+            }
+        }, 16, 2 );
+        for ( int i = 0; i < 100; i++ ) {
+            out.write( new byte[16] );
+        }
+        out.close();
+    }
+}
@@ -0,0 +1,84 @@
+package org.cujau.utils.csv;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+
+import org.junit.Test;
+
+public class CSVParallelLoaderTest {
+
+    private static List<List<String>> writeTestFile( File file, CSVSymbols symbols )
+            throws IOException {
+        List<List<String>> lines = new ArrayList<List<String>>();
+        for ( int i = 0; i < 500; i++ ) {
+            lines.add( Arrays.asList( Integer.toString( i ), "café " + i, "quoted,\"value\"",
+                                      i % 7 == 0 ? "spans\nseveral\r\nlines" : "single" ) );
+        }
+        // A quoted field longer than a chunk.
+        StringBuilder longField = new StringBuilder();
+        for ( int i = 0; i < 50; i++ ) {
+            longField.append( "line " ).append( i ).append( ",\n" );
+        }
+        lines.add( Arrays.asList( "long", longField.toString() ) );
+        lines.add( Arrays.asList( "last" ) );
+
+        try ( CSVWriter writer = new CSVWriter( new OutputStreamWriter( new FileOutputStream( file ),
+                                                                        StandardCharsets.UTF_8 ), symbols, 1024 ) ) {
+            for ( List<String> line : lines ) {
+                writer.renderLine( line );
+            }
+        }
+        return lines;
+    }
+
+    @Test
+    public void testLoad()
+            throws IOException {
+        CSVSymbols symbols = new CSVSymbols( Locale.US );
+        symbols.setLineSeparator( "\r\n" );
+        File file = File.createTempFile( "parallel", ".csv" );
+        file.deleteOnExit();
+        List<List<String>> lines = writeTestFile( file, symbols );
+
+        CSVParallelLoader loader = new CSVParallelLoader( symbols );
+        loader.setChunkSize( 61 );
+
+        final List<List<String>> ordered = new ArrayList<List<String>>();
+        loader.load( file, new CSVRecordHandler() {
+            @Override
+            public void handleRecord( CSVRecord record ) {
+                ordered.add( toList( record ) );
+            }
+        }, true );
+        assertEquals( lines, ordered );
+
+        final List<List<String>> unordered = Collections.synchronizedList( new ArrayList<List<String>>() );
+        loader.load( file, new CSVRecordHandler() {
+            @Override
+            public void handleRecord( CSVRecord record ) {
+                unordered.add( toList( record ) );
+            }
+        }, false );
+        assertEquals( lines.size(), unordered.size() );
+        assertEquals( new HashSet<List<String>>( lines ), new HashSet<List<String>>( unordered ) );
+    }
+
+    private static List<String> toList( CSVRecord record ) {
+        List<String> ret = new ArrayList<String>();
+        for ( int i = 0; i < record.getFieldCount(); i++ ) {
+            ret.add( record.getField( i ).toString() );
+        }
+        return ret;
+    }
+}
@@ -0,0 +1,125 @@
+package org.cujau.utils.csv;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import org.junit.Test;
+
+public class CSVReaderTest {
+
+    private static CSVSymbols symbols( String lineSep ) {
+        CSVSymbols symbols = new CSVSymbols( Locale.US );
+        symbols.setLineSeparator( lineSep );
+        return symbols;
+    }
+
+    private static List<List<String>> readAll( CSVReader reader )
+            throws IOException {
+        List<List<String>> ret = new ArrayList<List<String>>();
+        List<String> rec;
+        while ( ( rec = reader.readRecord() ) != null ) {
+            ret.add( rec );
+        }
+        return ret;
+    }
+
+    @Test
+    public void testSimple()
+            throws IOException {
+        CSVReader reader = new CSVReader( new StringReader( "a,b,c\n1,,3\n" ), symbols( "\n" ) );
+        assertEquals( Arrays.asList( "a", "b", "c" ), reader.readRecord() );
+        assertEquals( Arrays.asList( "1", "", "3" ), reader.readRecord() );
+        assertNull( reader.readRecord() );
+        assertEquals( 2, reader.getRecordNumber() );
+    }
+
+    @Test
+    public void testLineEndings()
+            throws IOException {
+        CSVReader reader = new CSVReader( new StringReader( "a,b\r\nc,d\re,f\n\ng,\r\n" ), symbols( "\n" ) );
+        List<List<String>> recs = readAll( reader );
+        assertEquals( 5, recs.size() );
+        assertEquals( Arrays.asList( "a", "b" ), recs.get( 0 ) );
+        assertEquals( Arrays.asList( "c", "d" ), recs.get( 1 ) );
+        assertEquals( Arrays.asList( "e", "f" ), recs.get( 2 ) );
+        assertTrue( recs.get( 3 ).isEmpty() );
+        assertEquals( Arrays.asList( "g", "" ), recs.get( 4 ) );
+    }
+
+    @Test
+    public void testQuoted()
+            throws IOException {
+        CSVReader reader = new CSVReader( new StringReader( "\"a,b\",\"c\"\"d\",\"e\r\nf\",\"\"\n\"unterminated" ),
+                                          symbols( "\n" ) );
+        assertTrue( reader.nextRecord() );
+        assertEquals( 4, reader.getFieldCount() );
+        assertEquals( "a,b", reader.getField( 0 ).toString() );
+        assertEquals( "c\"d", reader.getString( 1 ) );
+        assertEquals( "e\r\nf", reader.getString( 2 ) );
+        assertEquals( 0, reader.getField( 3 ).length() );
+        assertEquals( Arrays.asList( "unterminated" ), reader.readRecord() );
+        assertFalse( reader.nextRecord() );
+    }
+
+    @Test
+    public void testSemicolonSeparator()
+            throws IOException {
+        CSVSymbols symbols = new CSVSymbols( Locale.GERMANY );
+        assertEquals( ';', symbols.getRecordSeparator() );
+        CSVReader reader = new CSVReader( new StringReader( "1,5;2,5\n" ), symbols );
+        assertEquals( Arrays.asList( "1,5", "2,5" ), reader.readRecord() );
+    }
+
+    @Test
+    public void testRoundTripSmallBuffer()
+            throws IOException {
+        CSVSymbols symbols = symbols( "\r\n" );
+        // MINIMAL leaves fields with quotes unquoted, which cannot be read back.
+        symbols.setQuotePolicy( CSVQuotePolicy.STRICT );
+        List<List<String>> lines = new ArrayList<List<String>>();
+        for ( int i = 0; i < 200; i++ ) {
+            lines.add( Arrays.asList( "r" + i, "a \"quoted\" value", "x,y", "multi\nline " + i, "", "plain" ) );
+        }
+        StringWriter out = new StringWriter();
+        CSVWriter writer = new CSVWriter( out, symbols, 64 );
+        for ( List<String> line : lines ) {
+            writer.renderLine( line );
+        }
+        writer.flush();
+
+        // A tiny buffer forces records to straddle buffer refills and the buffer to grow.
+        CSVReader reader = new CSVReader( new StringReader( out.toString() ), symbols, 7 );
+        assertEquals( lines, readAll( reader ) );
+
+        reader = new CSVReader( Channels.newChannel( new ByteArrayInputStream( out.toString().getBytes(
+                StandardCharsets.UTF_8 ) ) ), StandardCharsets.UTF_8, symbols, 16 );
+        assertEquals( lines, readAll( reader ) );
+    }
+
+    @Test
+    public void testQuoteAndEscapeChars()
+            throws IOException {
+        CSVSymbols symbols = symbols( "\n" );
+        symbols.setQuoteChar( '\'' );
+        symbols.setEscapeChar( '\\' );
+        symbols.setQuotePolicy( CSVQuotePolicy.ALL );
+        List<String> line = Arrays.asList( "it's", "a\\b", "say \"hi\"", "x,y" );
+        StringWriter out = new StringWriter();
+        new CSVWriter( out, symbols ).renderLine( line );
+        CSVReader reader = new CSVReader( new StringReader( out.toString() ), symbols );
+        assertEquals( line, reader.readRecord() );
+    }
+}
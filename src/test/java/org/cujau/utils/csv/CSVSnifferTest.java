@@ -0,0 +1,171 @@
+package org.cujau.utils.csv;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Locale;
+
+import org.junit.Test;
+
+public class CSVSnifferTest {
+
+    @Test
+    public void testHeaderAndTypes()
+            throws IOException {
+        String data = "id,name,price,active,code\r\n"
+                      + "1,Alice,3.50,true,AB1\r\n"
+                      + "2,\"Bob, Jr.\",\"1,234.50\",no,CD2\r\n"
+                      + "3,Carol,,yes,EF3\r\n";
+        CSVSchema schema = new CSVSniffer( Locale.US ).sniff( new StringReader( data ) );
+        assertEquals( ',', schema.getCSVSymbols().getRecordSeparator() );
+        assertEquals( "\r\n", schema.getCSVSymbols().getLineSeparator() );
+        assertTrue( schema.hasHeader() );
+        assertEquals( Arrays.asList( "id", "name", "price", "active", "code" ), schema.getColumnNames() );
+        assertEquals( Arrays.asList( CSVColumnType.INT, CSVColumnType.STRING, CSVColumnType.DOUBLE,
+                                     CSVColumnType.BOOLEAN, CSVColumnType.STRING ), schema.getColumnTypes() );
+
+        CSVReader reader = schema.createReader( new StringReader( data ) );
+        assertTrue( reader.nextRecord() );
+        assertEquals( 1, schema.getInt( reader, 0 ) );
+        assertEquals( 3.5, schema.getDouble( reader, 2 ), 0.0 );
+        assertTrue( schema.getBoolean( reader, 3 ) );
+        assertTrue( reader.nextRecord() );
+        assertEquals( 1234.5, schema.getDouble( reader, 2 ), 0.0 );
+        assertFalse( schema.getBoolean( reader, 3 ) );
+        assertTrue( reader.nextRecord() );
+        assertTrue( schema.isEmpty( reader, 2 ) );
+        assertFalse( reader.nextRecord() );
+    }
+
+    @Test
+    public void testLocaleSeparators()
+            throws IOException {
+        String data = "1,5;2;x\n2,5;3.000;y\n-0,25;4;z\n";
+        CSVSchema schema = new CSVSniffer( Locale.GERMANY ).sniff( new StringReader( data ) );
+        assertEquals( ';', schema.getCSVSymbols().getRecordSeparator() );
+        assertEquals( "\n", schema.getCSVSymbols().getLineSeparator() );
+        assertFalse( schema.hasHeader() );
+        assertEquals( Arrays.asList( "column1", "column2", "column3" ), schema.getColumnNames() );
+        assertEquals( Arrays.asList( CSVColumnType.DOUBLE, CSVColumnType.INT, CSVColumnType.STRING ),
+                      schema.getColumnTypes() );
+
+        CSVReader reader = schema.createReader( new StringReader( data ) );
+        assertTrue( reader.nextRecord() );
+        assertEquals( 1.5, schema.getDouble( reader, 0 ), 0.0 );
+        assertTrue( reader.nextRecord() );
+        assertEquals( 3000, schema.getInt( reader, 1 ) );
+    }
+
+    @Test
+    public void testDoubledQuotes()
+            throws IOException {
+        String data = "name;note;qty\n"
+                      + "\"a\"\"b\";\"x\"\"y\"\"z\";1\n"
+                      + "\"c\"\"d\";\"u\"\"v\";2\n"
+                      + "e;\"w\"\"\";3\n";
+        CSVSchema schema = new CSVSniffer( Locale.US ).sniff( new StringReader( data ) );
+        assertEquals( ';', schema.getCSVSymbols().getRecordSeparator() );
+        assertTrue( schema.hasHeader() );
+        assertEquals( Arrays.asList( "name", "note", "qty" ), schema.getColumnNames() );
+        assertEquals( Arrays.asList( CSVColumnType.STRING, CSVColumnType.STRING, CSVColumnType.INT ),
+                      schema.getColumnTypes() );
+    }
+
+    @Test
+    public void testTabsAndPipes()
+            throws IOException {
+        CSVSchema schema = new CSVSniffer( Locale.US ).sniff(
+                new StringReader( "a\tb\n12345678901\tx,y\n-5\tz,w\n" ) );
+        assertEquals( '\t', schema.getCSVSymbols().getRecordSeparator() );
+        assertTrue( schema.hasHeader() );
+        assertEquals( CSVColumnType.LONG, schema.getColumnType( 0 ) );
+
+        schema = new CSVSniffer( Locale.US ).sniff( new StringReader( "AAA|1\nBBB|2\nCCC|3" ) );
+        assertEquals( '|', schema.getCSVSymbols().getRecordSeparator() );
+        assertFalse( schema.hasHeader() );
+        assertEquals( Arrays.asList( CSVColumnType.STRING, CSVColumnType.INT ), schema.getColumnTypes() );
+
+        // A text header over fixed-length codes.
+        schema = new CSVSniffer( Locale.US ).sniff( new StringReader( "country,currency\nCH,CHF\nDE,EUR\n" ) );
+        assertTrue( schema.hasHeader() );
+    }
+
+    @Test
+    public void testTruncatedSample()
+            throws IOException {
+        CSVSniffer sniffer = new CSVSniffer( Locale.US );
+        sniffer.setSampleSize( 20 );
+        // The sample ends in the middle of "1.5", which must not make the column an INT column.
+        CSVSchema schema = sniffer.sniff( new StringReader( "a,b\n1,xx\n2,yy\n3,zz\n1.5,w\n" ) );
+        assertEquals( 2, schema.getColumnCount() );
+        assertEquals( CSVColumnType.INT, schema.getColumnType( 0 ) );
+    }
+
+    @Test
+    public void testRandomSamples()
+            throws IOException {
+        File file = File.createTempFile( "sniff", ".csv" );
+        file.deleteOnExit();
+        StringBuilder sb = new StringBuilder( "\ufeffkey;value\n" );
+        for ( int i = 0; i < 20000; i++ ) {
+            sb.append( "k" ).append( i ).append( ';' ).append( i < 10000 ? Integer.toString( i ) : i + ".5" )
+              .append( '\n' );
+        }
+        Files.write( file.toPath(), sb.toString().getBytes( StandardCharsets.UTF_8 ) );
+
+        CSVSniffer sniffer = new CSVSniffer( Locale.US );
+        sniffer.setSampleSize( 4096 );
+        CSVSchema schema = sniffer.sniff( file );
+        assertEquals( ';', schema.getCSVSymbols().getRecordSeparator() );
+        assertTrue( schema.hasHeader() );
+        assertEquals( "key", schema.getColumnName( 0 ) );
+        assertEquals( CSVColumnType.INT, schema.getColumnType( 1 ) );
+
+        sniffer.setRandomSamples( 16 );
+        schema = sniffer.sniff( file );
+        assertEquals( CSVColumnType.DOUBLE, schema.getColumnType( 1 ) );
+    }
+
+    @Test
+    public void testNumbers() {
+        assertEquals( CSVColumnType.INT, CSVNumbers.classify( " -2147483648 ", '.', ',' ) );
+        assertEquals( CSVColumnType.LONG, CSVNumbers.classify( "2147483648", '.', ',' ) );
+        assertEquals( CSVColumnType.LONG, CSVNumbers.classify( "-9223372036854775808", '.', ',' ) );
+        assertEquals( CSVColumnType.DOUBLE, CSVNumbers.classify( "9223372036854775808", '.', ',' ) );
+        assertEquals( CSVColumnType.DOUBLE, CSVNumbers.classify( "1.5e-3", '.', ',' ) );
+        assertEquals( CSVColumnType.INT, CSVNumbers.classify( "1'234", '.', '\u2019' ) );
+        assertEquals( CSVColumnType.DOUBLE, CSVNumbers.classify( "1 234,5", ',', ' ' ) );
+        assertNull( CSVNumbers.classify( "$12", '.', ',' ) );
+        assertNull( CSVNumbers.classify( ",12", '.', ',' ) );
+        assertNull( CSVNumbers.classify( "1.2.3", '.', ',' ) );
+        assertNull( CSVNumbers.classify( "-", '.', ',' ) );
+        assertNull( CSVNumbers.classify( "12e", '.', ',' ) );
+
+        assertEquals( -1234567, CSVNumbers.parseInt( "-1,234,567", ',' ) );
+        assertEquals( Long.MIN_VALUE, CSVNumbers.parseLong( "-9223372036854775808", ',' ) );
+        assertEquals( 0.1, CSVNumbers.parseDouble( "0.1", '.', ',' ), 0.0 );
+        assertEquals( -1234.0625, CSVNumbers.parseDouble( "-1.234,0625", ',', '.' ), 0.0 );
+        assertEquals( 1.5e-3, CSVNumbers.parseDouble( "1.5E-3", '.', ',' ), 0.0 );
+        for ( String s : new String[] { "3.141592653589793238462643", "1e300", "4.9e-324", "123456789012345678901234",
+                                        "0.000000000000000000000000001", "9007199254740993" } ) {
+            assertEquals( s, Double.parseDouble( s ), CSVNumbers.parseDouble( s, '.', ',' ), 0.0 );
+        }
+        for ( String s : new String[] { "", "1.5", "9223372036854775808", "x" } ) {
+            try {
+                CSVNumbers.parseLong( s, ',' );
+                fail( s );
+            } catch ( NumberFormatException e ) {
+                // Expected.
+            }
+        }
+    }
+}
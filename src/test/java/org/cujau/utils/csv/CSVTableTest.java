@@ -0,0 +1,208 @@
+package org.cujau.utils.csv;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Locale;
+
+import org.junit.Test;
+
+public class CSVTableTest {
+
+    private static CSVSchema schema( boolean header, CSVColumnType... types ) {
+        String[] names = new String[types.length];
+        for ( int i = 0; i < names.length; i++ ) {
+            names[i] = "c" + i;
+        }
+        CSVSymbols symbols = new CSVSymbols( Locale.US );
+        symbols.setLineSeparator( "\n" );
+        return new CSVSchema( symbols, header, Arrays.asList( names ), Arrays.asList( types ) );
+    }
+
+    @Test
+    public void testTypedColumns()
+            throws IOException {
+        String data = "id,name,amount,big,flag\n"
+                      + "1,red,\"1,234.5\",12345678901,yes\n"
+                      + "2,,-0.5,,false\n"
+                      + "\n"
+                      + "3,red,7,1,TRUE\n";
+        CSVSchema schema = new CSVSniffer( Locale.US ).sniff( new StringReader( data ) );
+        CSVTable table = CSVTable.read( schema, new StringReader( data ) );
+        assertEquals( 3, table.getRowCount() );
+        assertEquals( 5, table.getColumnCount() );
+        assertEquals( CSVColumnType.INT, table.getColumnType( 0 ) );
+        assertEquals( CSVColumnType.STRING, table.getColumnType( 1 ) );
+        assertEquals( CSVColumnType.DOUBLE, table.getColumnType( 2 ) );
+        assertEquals( CSVColumnType.LONG, table.getColumnType( 3 ) );
+        assertEquals( CSVColumnType.BOOLEAN, table.getColumnType( 4 ) );
+
+        assertEquals( 2, table.getInt( 1, 0 ) );
+        assertEquals( 3L, table.getLong( 2, 0 ) );
+        assertEquals( "red", table.getString( 0, 1 ) );
+        assertSame( table.getString( 0, 1 ), table.getString( 2, 1 ) );
+        assertTrue( table.isNull( 1, 1 ) );
+        assertNull( table.getString( 1, 1 ) );
+        assertEquals( 1234.5, table.getDouble( 0, 2 ), 0.0 );
+        assertEquals( -0.5, table.getDouble( 1, 2 ), 0.0 );
+        assertEquals( 12345678901L, table.getLong( 0, 3 ) );
+        assertTrue( table.isNull( 1, 3 ) );
+        assertFalse( table.isNull( 2, 3 ) );
+        assertTrue( table.getBoolean( 0, 4 ) );
+        assertFalse( table.getBoolean( 1, 4 ) );
+        assertTrue( table.getBoolean( 2, 4 ) );
+        assertEquals( "7.0", table.getString( 2, 2 ) );
+    }
+
+    @Test
+    public void testWidening()
+            throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for ( int i = 0; i < 3000; i++ ) {
+            sb.append( i ).append( ',' ).append( i ).append( ',' ).append( i % 2 == 0 ).append( '\n' );
+        }
+        sb.append( "9999999999,1.5,maybe\n" );
+        sb.append( "x,2,\n" );
+        CSVTable table = CSVTable.read( schema( false, CSVColumnType.INT, CSVColumnType.INT, CSVColumnType.BOOLEAN ),
+                                        new StringReader( sb.toString() ) );
+        assertEquals( 3002, table.getRowCount() );
+        assertEquals( CSVColumnType.STRING, table.getColumnType( 0 ) );
+        assertEquals( "2999", table.getString( 2999, 0 ) );
+        assertEquals( "9999999999", table.getString( 3000, 0 ) );
+        assertEquals( "x", table.getString( 3001, 0 ) );
+        assertEquals( CSVColumnType.DOUBLE, table.getColumnType( 1 ) );
+        assertEquals( 2999.0, table.getDouble( 2999, 1 ), 0.0 );
+        assertEquals( 1.5, table.getDouble( 3000, 1 ), 0.0 );
+        assertEquals( CSVColumnType.STRING, table.getColumnType( 2 ) );
+        assertEquals( "true", table.getString( 0, 2 ) );
+        assertEquals( "maybe", table.getString( 3000, 2 ) );
+        assertTrue( table.isNull( 3001, 2 ) );
+    }
+
+    @Test
+    public void testWideningKeepsOriginalText()
+            throws IOException {
+        String data = "100,+5,yes,5\n"
+                      + "1e3,\"1,234\",no,-0\n"
+                      + "007,007,TRUE,1.50\n"
+                      + "abc,x,maybe,\n"
+                      + ",,,zz\n";
+        CSVTable table = new CSVTable( schema( false, CSVColumnType.DOUBLE, CSVColumnType.INT, CSVColumnType.BOOLEAN,
+                                               CSVColumnType.INT ) );
+        table.setKeepOriginalText( true );
+        CSVReader reader = new CSVReader( new StringReader( data ), table.getSchema().getCSVSymbols() );
+        while ( reader.nextRecord() ) {
+            table.handleRecord( reader );
+        }
+        table.trimToSize();
+        String[][] expected = { { "100", "1e3", "007", "abc" }, { "+5", "1,234", "007", "x" },
+                { "yes", "no", "TRUE", "maybe" } };
+        for ( int c = 0; c < expected.length; c++ ) {
+            assertEquals( CSVColumnType.STRING, table.getColumnType( c ) );
+            for ( int r = 0; r < expected[c].length; r++ ) {
+                assertEquals( expected[c][r], table.getString( r, c ) );
+            }
+        }
+        // Widened from INT to DOUBLE, then to STRING.
+        assertEquals( CSVColumnType.STRING, table.getColumnType( 3 ) );
+        assertEquals( "5", table.getString( 0, 3 ) );
+        assertEquals( "-0", table.getString( 1, 3 ) );
+        assertEquals( "1.50", table.getString( 2, 3 ) );
+        assertTrue( table.isNull( 3, 3 ) );
+        assertEquals( "zz", table.getString( 4, 3 ) );
+        assertTrue( table.isNull( 4, 0 ) );
+
+        // By default, the rows before the widening hold the text of their values.
+        table = CSVTable.read( table.getSchema(), new StringReader( data ) );
+        expected = new String[][] { { "100.0", "1000.0", "7.0", "abc" }, { "5", "1234", "7", "x" },
+                { "true", "false", "true", "maybe" } };
+        for ( int c = 0; c < expected.length; c++ ) {
+            assertEquals( CSVColumnType.STRING, table.getColumnType( c ) );
+            for ( int r = 0; r < expected[c].length; r++ ) {
+                assertEquals( expected[c][r], table.getString( r, c ) );
+            }
+        }
+        assertEquals( "0.0", table.getString( 1, 3 ) );
+        assertEquals( "1.5", table.getString( 2, 3 ) );
+    }
+
+    @Test
+    public void testCanonicalText() {
+        CSVTable table = new CSVTable( schema( false, CSVColumnType.DOUBLE ) );
+        CSVTable.DoubleColumn doubles = new CSVTable.DoubleColumn();
+        doubles.append( 0, "1.5", table );
+        doubles.append( 1, "12.50", table );
+        doubles.append( 2, "100", table );
+        doubles.append( 3, "1e3", table );
+        doubles.append( 4, "1000.0", table );
+        assertTrue( doubles.isCanonical( 0, "1.5" ) );
+        assertFalse( doubles.isCanonical( 1, "12.50" ) );
+        assertFalse( doubles.isCanonical( 2, "100" ) );
+        assertFalse( doubles.isCanonical( 3, "1e3" ) );
+        assertTrue( doubles.isCanonical( 4, "1000.0" ) );
+        CSVTable.BooleanColumn booleans = new CSVTable.BooleanColumn();
+        booleans.append( 0, "true", table );
+        booleans.append( 1, "yes", table );
+        booleans.append( 2, "FALSE", table );
+        assertTrue( booleans.isCanonical( 0, "true" ) );
+        assertFalse( booleans.isCanonical( 1, "yes" ) );
+        assertFalse( booleans.isCanonical( 2, "FALSE" ) );
+    }
+
+    @Test
+    public void testDictionaryOverflow()
+            throws IOException {
+        StringBuilder sb = new StringBuilder( "i,name\n" );
+        for ( int i = 0; i < 5000; i++ ) {
+            String name = i % 3 == 0 ? "" : "v" + ( i % 200 ) + ( i >= 2500 ? "-" + i : "" );
+            sb.append( i ).append( ',' ).append( name ).append( '\n' );
+        }
+        CSVTable table = new CSVTable( schema( true, CSVColumnType.INT, CSVColumnType.STRING ) );
+        table.setMaxDictionarySize( 1000 );
+        CSVReader reader = new CSVReader( new StringReader( sb.toString() ), table.getSchema().getCSVSymbols() );
+        while ( reader.nextRecord() ) {
+            table.handleRecord( reader );
+        }
+        table.trimToSize();
+        assertEquals( 5000, table.getRowCount() );
+        for ( int i = 0; i < 5000; i++ ) {
+            if ( i % 3 == 0 ) {
+                assertTrue( table.isNull( i, 1 ) );
+            } else {
+                assertEquals( "v" + ( i % 200 ) + ( i >= 2500 ? "-" + i : "" ), table.getString( i, 1 ) );
+            }
+        }
+    }
+
+    @Test
+    public void testParallelLoad()
+            throws IOException {
+        File file = File.createTempFile( "table", ".csv" );
+        file.deleteOnExit();
+        StringBuilder sb = new StringBuilder( "k,v\n" );
+        for ( int i = 0; i < 10000; i++ ) {
+            sb.append( "key" ).append( i % 7 ).append( ',' ).append( i ).append( '\n' );
+        }
+        Files.write( file.toPath(), sb.toString().getBytes( StandardCharsets.UTF_8 ) );
+
+        CSVSchema schema = new CSVSniffer( Locale.US ).sniff( file );
+        CSVParallelLoader loader = new CSVParallelLoader( schema.getCSVSymbols() );
+        loader.setChunkSize( 4096 );
+        CSVTable table = new CSVTable( schema );
+        loader.load( file, table, true );
+        assertEquals( 10000, table.getRowCount() );
+        for ( int i = 0; i < 10000; i++ ) {
+            assertEquals( "key" + ( i % 7 ), table.getString( i, 0 ) );
+            assertEquals( i, table.getInt( i, 1 ) );
+        }
+    }
+}
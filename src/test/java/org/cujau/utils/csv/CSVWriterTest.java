@@ -3,6 +3,15 @@ package org.cujau.utils.csv;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 import org.junit.Before;
 import org.junit.Test;
 
@@ -37,5 +46,161 @@ public class CSVWriterTest {
         assertEquals( "\""+s+"\"", writer.quoteIfNecessary( s ) );
         s = "abcd\rabcd";
         assertEquals( "\""+s+"\"", writer.quoteIfNecessary( s ) );
+        s = "ab\"\"cd";
+        assertEquals( s, writer.quoteIfNecessary( s ) );
+        s = "abcd";
+        assertEquals( s, writer.quoteIfNecessary( s ) );
+    }
+
+    @Test
+    public void testRenderLine()
+            throws IOException {
+        StringWriter out = new StringWriter();
+        CSVSymbols symbols = new CSVSymbols( Locale.US );
+        symbols.setLineSeparator( "\n" );
+        CSVWriter w = new CSVWriter( out, symbols );
+        w.renderLine( "a", "b,c", "d\"e", "f\ng", "" );
+        assertEquals( "a,\"b,c\",d\"\"e,\"f\ng\",\n", out.toString() );
+        w.renderLine( "x" );
+        assertEquals( "a,\"b,c\",d\"\"e,\"f\ng\",\nx\n", out.toString() );
+    }
+
+    @Test
+    public void testRenderLineBuffered()
+            throws IOException {
+        StringWriter out = new StringWriter();
+        CSVSymbols symbols = new CSVSymbols( Locale.US );
+        symbols.setLineSeparator( "\r\n" );
+        // A tiny buffer forces both block flushes and the direct write of oversized records.
+        CSVWriter w = new CSVWriter( out, symbols, 8 );
+        StringBuilder expected = new StringBuilder();
+        for ( int i = 0; i < 50; i++ ) {
+            w.renderLine( "r" + i, "a\"b", "12,5", "a much longer record than the buffer" );
+            expected.append( "r" ).append( i )
+                    .append( ",a\"\"b,\"12,5\",a much longer record than the buffer\r\n" );
+        }
+        w.flush();
+        assertEquals( expected.toString(), out.toString() );
+    }
+
+    @Test
+    public void testRenderLines()
+            throws IOException {
+        CSVSymbols symbols = new CSVSymbols( Locale.US );
+        symbols.setLineSeparator( "\n" );
+        List<List<Integer>> lines = new ArrayList<List<Integer>>();
+        StringBuilder expected = new StringBuilder();
+        for ( int i = 0; i < 1000; i++ ) {
+            lines.add( Arrays.asList( i, -i, i * 1000 ) );
+            expected.append( "#" ).append( i ).append( ",#" ).append( -i ).append( ",#" ).append( i * 1000 )
+                    .append( "\n" );
+        }
+        CSVTypedRenderer<Integer> renderer = new CSVTypedRenderer<Integer>() {
+            @Override
+            public String renderRecord( Integer value, Object... accessoryData ) {
+                return accessoryData[0] + value.toString();
+            }
+        };
+
+        StringWriter out = new StringWriter();
+        new CSVWriter( out, symbols ).renderLines( renderer, lines, "#" );
+        assertEquals( expected.toString(), out.toString() );
+
+        out = new StringWriter();
+        new CSVWriter( out, symbols ).renderLines( renderer, lines.stream(), "#" );
+        assertEquals( expected.toString(), out.toString() );
+
+        ExecutorService executor = Executors.newFixedThreadPool( 4 );
+        try {
+            out = new StringWriter();
+            CSVWriter w = new CSVWriter( out, symbols, 64 );
+            w.renderLine( "header" );
+            w.renderLinesParallel( renderer, lines, executor, 7, "#" );
+            w.flush();
+            assertEquals( "header\n" + expected, out.toString() );
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testQuotePolicies()
+            throws IOException {
+        CSVSymbols symbols = new CSVSymbols( Locale.US );
+        symbols.setLineSeparator( "\n" );
+        StringWriter out = new StringWriter();
+        CSVWriter w = new CSVWriter( out, symbols, 256 );
+
+        symbols.setQuotePolicy( CSVQuotePolicy.ALL );
+        w.renderLine( "a", "1.5", "" );
+        w.writeField( 42 );
+        w.writeField( "b" );
+        w.endLine();
+
+        symbols.setQuotePolicy( CSVQuotePolicy.NON_NUMERIC );
+        w.renderLine( "a", "-1.5e3", "", "12a" );
+        w.writeField( 42 );
+        w.writeField( 0.5 );
+        w.endLine();
+
+        symbols.setQuotePolicy( CSVQuotePolicy.STRICT );
+        symbols.setQuoteChar( '\'' );
+        symbols.setEscapeChar( '\\' );
+        w.renderLine( "it's", "a\\b", "say \"hi\"" );
+
+        symbols.setQuotePolicy( CSVQuotePolicy.MINIMAL );
+        w.renderLine( "it's", "a\\b", "a,b" );
+        w.flush();
+
+        assertEquals( "\"a\",\"1.5\",\"\"\n"
+                      + "\"42\",\"b\"\n"
+                      + "\"a\",-1.5e3,\"\",\"12a\"\n"
+                      + "42,0.5\n"
+                      + "'it\\'s','a\\\\b',say \"hi\"\n"
+                      + "it\\'s,a\\\\b,'a,b'\n", out.toString() );
+    }
+
+    @Test
+    public void testNonNumericQuotesWholeFields()
+            throws IOException {
+        CSVSymbols symbols = new CSVSymbols( Locale.US );
+        symbols.setLineSeparator( "\n" );
+        symbols.setQuotePolicy( CSVQuotePolicy.NON_NUMERIC );
+        StringWriter out = new StringWriter();
+        CSVWriter w = new CSVWriter( out, symbols );
+        w.renderLine( "2024-01-01", "e", "-", "1-2", "abc", "1e", " 5", "+5", "-0.5", "1.5E-3", ".5" );
+        assertEquals( "\"2024-01-01\",\"e\",\"-\",\"1-2\",\"abc\",\"1e\",\" 5\",+5,-0.5,1.5E-3,.5\n",
+                      out.toString() );
+        assertEquals( "\"1-2\"", w.quoteIfNecessary( "1-2" ) );
+        assertEquals( "-12", w.quoteIfNecessary( "-12" ) );
+
+        // The decimal and grouping separators of the locale, and the format of Double.toString().
+        symbols = new CSVSymbols( Locale.GERMANY );
+        symbols.setLineSeparator( "\n" );
+        symbols.setQuotePolicy( CSVQuotePolicy.NON_NUMERIC );
+        out = new StringWriter();
+        w = new CSVWriter( out, symbols );
+        w.renderLine( "1.234,5", "-0,5", "2.5", "1,2,3", "1.2.3,4,5" );
+        w.writeField( 1e-5 );
+        w.endLine();
+        assertEquals( "1.234,5;-0,5;2.5;\"1,2,3\";\"1.2.3,4,5\"\n1.0E-5\n", out.toString() );
+    }
+
+    @Test
+    public void testLongFieldWithSmallBuffer()
+            throws IOException {
+        CSVSymbols symbols = new CSVSymbols( Locale.US );
+        symbols.setLineSeparator( "\n" );
+        StringWriter out = new StringWriter();
+        CSVWriter w = new CSVWriter( out, symbols, 8 );
+        w.writeField( 1234567890123L );
+        w.writeField( Long.MIN_VALUE );
+        w.writeField( -42 );
+        w.endLine();
+        symbols.setQuotePolicy( CSVQuotePolicy.ALL );
+        w.writeField( 1234567890123L );
+        w.endLine();
+        w.flush();
+        assertEquals( "1234567890123,-9223372036854775808,-42\n\"1234567890123\"\n", out.toString() );
     }
 }
@@ -0,0 +1,172 @@
+package org.cujau.utils.priorityexecutor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class BandedPriorityBlockingQueueTest {
+
+    private static PriorityFuture<Object> task(int priority) {
+        return new PriorityFuture<>(new FutureTask<>(() -> null), priority);
+    }
+
+    @Test
+    public void testOrdering()
+            throws InterruptedException {
+        BandedPriorityBlockingQueue queue = new BandedPriorityBlockingQueue(0, 9);
+        List<PriorityFuture<Object>> tasks = new ArrayList<>();
+        int[] priorities = { 5, 1, 9, 1, -3, 42, 5, 0 };
+        for (int p : priorities) {
+            PriorityFuture<Object> t = task(p);
+            tasks.add(t);
+            queue.offer(t);
+        }
+        assertEquals(8, queue.size());
+        // Out of range priorities are clamped, equal priorities are FIFO.
+        assertSame(tasks.get(4), queue.take());
+        assertSame(tasks.get(7), queue.take());
+        assertSame(tasks.get(1), queue.peek());
+        assertSame(tasks.get(1), queue.poll());
+        assertSame(tasks.get(3), queue.poll());
+        assertSame(tasks.get(0), queue.poll(1, TimeUnit.SECONDS));
+        assertSame(tasks.get(6), queue.poll());
+        assertSame(tasks.get(2), queue.poll());
+        assertSame(tasks.get(5), queue.poll());
+        assertNull(queue.poll());
+        assertNull(queue.poll(10, TimeUnit.MILLISECONDS));
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void testWideRange()
+            throws InterruptedException {
+        BandedPriorityBlockingQueue queue = new BandedPriorityBlockingQueue(0, 65535);
+        int[] priorities = { 65535, 64, 63, 4000, 0, 64 };
+        for (int round = 0; round < 3; round++) {
+            List<PriorityFuture<Object>> tasks = new ArrayList<>();
+            for (int p : priorities) {
+                PriorityFuture<Object> t = task(p + round);
+                tasks.add(t);
+                queue.offer(t);
+            }
+            assertSame(tasks.get(4), queue.peek());
+            assertSame(tasks.get(4), queue.take());
+            assertSame(tasks.get(2), queue.take());
+            assertSame(tasks.get(1), queue.take());
+            assertSame(tasks.get(5), queue.take());
+            assertSame(tasks.get(3), queue.take());
+            assertSame(tasks.get(0), queue.take());
+            assertNull(queue.peek());
+            assertNull(queue.poll());
+        }
+    }
+
+    @Test
+    public void testRemoveAndDrain() {
+        BandedPriorityBlockingQueue queue = new BandedPriorityBlockingQueue(1, 3);
+        PriorityFuture<Object> a = task(1);
+        PriorityFuture<Object> b = task(2);
+        PriorityFuture<Object> c = task(3);
+        queue.add(c);
+        queue.add(b);
+        queue.add(a);
+        assertTrue(queue.contains(b));
+        assertTrue(queue.remove(b));
+        assertFalse(queue.remove(b));
+        assertFalse(queue.contains(b));
+        assertEquals(2, queue.size());
+
+        List<Runnable> drained = new ArrayList<>();
+        assertEquals(2, queue.drainTo(drained));
+        assertEquals(List.of(a, c), drained);
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void testConcurrentProducersAndConsumers()
+            throws InterruptedException {
+        final BandedPriorityBlockingQueue queue = new BandedPriorityBlockingQueue(0, 7);
+        final int producers = 4;
+        final int perProducer = 20000;
+        final AtomicInteger taken = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(producers * 2);
+        CountDownLatch done = new CountDownLatch(producers);
+        for (int i = 0; i < producers; i++) {
+            pool.execute(() -> {
+                for (int j = 0; j < perProducer; j++) {
+                    queue.offer(task(j % 8));
+                }
+            });
+            pool.execute(() -> {
+                try {
+                    for (int j = 0; j < perProducer; j++) {
+                        queue.take();
+                        taken.incrementAndGet();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                done.countDown();
+            });
+        }
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        pool.shutdown();
+        assertEquals(producers * perProducer, taken.get());
+        assertTrue(queue.isEmpty());
+        assertNull(queue.peek());
+    }
+
+    @Test
+    public void testExecutor()
+            throws Exception {
+        PriorityThreadPoolExecutor executor =
+                new PriorityThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new BandedPriorityBlockingQueue(0, 9));
+        final CountDownLatch blocker = new CountDownLatch(1);
+        final List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        executor.submit(new PriorityCallable<Object>() {
+            @Override
+            public int getPriority() {
+                return 0;
+            }
+
+            @Override
+            public Object call()
+                    throws Exception {
+                blocker.await();
+                return null;
+            }
+        });
+        for (final int p : new int[] { 7, 3, 9, 0, 3 }) {
+            executor.submit(new PriorityCallable<Object>() {
+                @Override
+                public int getPriority() {
+                    return p;
+                }
+
+                @Override
+                public Object call() {
+                    order.add(p);
+                    return null;
+                }
+            });
+        }
+        blocker.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(List.of(0, 3, 3, 7, 9), order);
+    }
+}
@@ -0,0 +1,115 @@
+package org.cujau.utils.priorityexecutor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class BoundedPriorityBlockingQueueTest {
+
+    private static PriorityFuture<Object> task(int priority) {
+        return new PriorityFuture<>(new FutureTask<>(() -> null), priority);
+    }
+
+    private static PriorityCallable<Object> callable(final int priority, final List<Integer> order) {
+        return new PriorityCallable<Object>() {
+            @Override
+            public int getPriority() {
+                return priority;
+            }
+
+            @Override
+            public Object call() {
+                order.add(priority);
+                return null;
+            }
+        };
+    }
+
+    @Test
+    public void testEviction()
+            throws InterruptedException {
+        BoundedPriorityBlockingQueue queue = new BoundedPriorityBlockingQueue(3);
+        PriorityFuture<Object> a = task(5);
+        PriorityFuture<Object> b = task(1);
+        PriorityFuture<Object> c = task(5);
+        assertTrue(queue.offer(a));
+        assertTrue(queue.offer(b));
+        assertTrue(queue.offer(c));
+        assertEquals(0, queue.remainingCapacity());
+
+        // Same priority as the last task: it would run after it, so it is refused.
+        PriorityFuture<Object> d = task(5);
+        assertFalse(queue.offer(d));
+        assertFalse(d.isDone());
+
+        // Higher priority: the last task, c, is evicted.
+        PriorityFuture<Object> e = task(2);
+        assertTrue(queue.offer(e));
+        assertEquals(3, queue.size());
+        assertFalse(queue.contains(c));
+        assertTrue(c.isDone());
+        assertFalse(c.isCancelled());
+        try {
+            c.get();
+            fail("Expected the evicted task to fail");
+        } catch (ExecutionException ex) {
+            assertTrue(ex.getCause() instanceof RejectedExecutionException);
+        }
+
+        assertSame(b, queue.take());
+        assertSame(e, queue.poll());
+        assertSame(a, queue.poll(1, TimeUnit.SECONDS));
+        assertNull(queue.poll());
+        assertFalse(a.isDone());
+    }
+
+    @Test
+    public void testExecutor()
+            throws Exception {
+        PriorityThreadPoolExecutor executor =
+                new PriorityThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new BoundedPriorityBlockingQueue(2));
+        PriorityExecutorMetrics metrics = new PriorityExecutorMetrics();
+        executor.setMetrics(metrics);
+        final CountDownLatch blocker = new CountDownLatch(1);
+        executor.execute(() -> {
+            try {
+                blocker.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        final List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        Future<Object> low = executor.submit(callable(8, order));
+        executor.submit(callable(4, order));
+        try {
+            executor.submit(callable(9, order));
+            fail("Expected the low priority task to be rejected");
+        } catch (RejectedExecutionException e) {
+            // Expected.
+        }
+        executor.submit(callable(1, order));
+        assertTrue(low.isDone());
+
+        blocker.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(List.of(1, 4), order);
+        assertEquals(2, metrics.getRejectedCount());
+        assertEquals(0, metrics.getQueuedCount());
+    }
+}
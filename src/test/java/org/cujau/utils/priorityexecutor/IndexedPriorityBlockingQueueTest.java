@@ -0,0 +1,161 @@
+package org.cujau.utils.priorityexecutor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class IndexedPriorityBlockingQueueTest {
+
+    private static PriorityFuture<Object> task(int priority) {
+        return new PriorityFuture<>(new FutureTask<>(() -> null), priority);
+    }
+
+    private static PriorityCallable<Object> callable(final int priority, final List<Integer> order) {
+        return new PriorityCallable<Object>() {
+            @Override
+            public int getPriority() {
+                return priority;
+            }
+
+            @Override
+            public Object call() {
+                order.add(priority);
+                return null;
+            }
+        };
+    }
+
+    @Test
+    public void testRandomUpdates() {
+        IndexedPriorityBlockingQueue queue = new IndexedPriorityBlockingQueue(4, new PriorityFutureComparator());
+        Random random = new Random(42);
+        List<PriorityFuture<Object>> tasks = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            PriorityFuture<Object> t = task(random.nextInt(100));
+            tasks.add(t);
+            queue.add(t);
+        }
+        for (int i = 0; i < 2000; i++) {
+            PriorityFuture<Object> t = tasks.get(random.nextInt(tasks.size()));
+            if (i % 10 == 0) {
+                assertTrue(queue.remove(t));
+                assertFalse(queue.contains(t));
+                tasks.remove(t);
+            } else {
+                assertTrue(queue.reprioritize(t, random.nextInt(100)));
+            }
+        }
+        assertEquals(tasks.size(), queue.size());
+        tasks.sort(new PriorityFutureComparator());
+        for (PriorityFuture<Object> t : tasks) {
+            assertSame(t, queue.poll());
+        }
+        assertNull(queue.poll());
+        // A task that left the queue is not reprioritized.
+        assertFalse(queue.reprioritize(tasks.get(0), 1));
+    }
+
+    @Test
+    public void testExecutorReprioritize()
+            throws Exception {
+        PriorityThreadPoolExecutor executor =
+                new PriorityThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new IndexedPriorityBlockingQueue());
+        PriorityExecutorMetrics metrics = new PriorityExecutorMetrics(0, 9);
+        executor.setMetrics(metrics);
+        final CountDownLatch blocker = new CountDownLatch(1);
+        Future<?> blocking = executor.submit(() -> {
+            blocker.await();
+            return null;
+        });
+        final List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        executor.submit(callable(3, order));
+        Future<?> escalated = executor.submit(callable(9, order));
+        executor.submit(callable(5, order));
+
+        assertTrue(executor.reprioritize(escalated, 1));
+        assertFalse(executor.reprioritize(blocking, 1));
+        assertEquals(1, metrics.getQueuedCountByBand()[1]);
+        assertEquals(0, metrics.getQueuedCountByBand()[9]);
+
+        blocker.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        // The escalated task keeps its original value in the list but runs first.
+        assertEquals(List.of(9, 3, 5), order);
+        assertEquals(1, ((PriorityFuture<?>) escalated).getPriority());
+        assertEquals(0, metrics.getQueuedCount());
+    }
+
+    @Test
+    public void testExecutorReprioritizeWithOtherQueue()
+            throws Exception {
+        PriorityThreadPoolExecutor executor = new PriorityThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, 16);
+        final CountDownLatch blocker = new CountDownLatch(1);
+        executor.submit(() -> {
+            blocker.await();
+            return null;
+        });
+        final List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        executor.submit(callable(3, order));
+        Future<?> demoted = executor.submit(callable(1, order));
+        assertTrue(executor.reprioritize(demoted, 7));
+
+        blocker.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(List.of(3, 1), order);
+    }
+
+    @Test
+    public void testOfferAllAddsAllOrNone() {
+        IndexedPriorityBlockingQueue queue = new IndexedPriorityBlockingQueue(4, new PriorityFutureComparator());
+        PriorityFuture<Object> queued = task(5);
+        queue.add(queued);
+        PriorityFuture<Object> a = task(1);
+        PriorityFuture<Object> b = task(9);
+        try {
+            queue.offerAll(Arrays.asList(a, b, queued));
+            fail("Expected an IllegalStateException");
+        } catch (IllegalStateException e) {
+            // Expected.
+        }
+        assertEquals(1, queue.size());
+        assertFalse(queue.contains(a));
+        assertFalse(queue.contains(b));
+        try {
+            queue.offerAll(Arrays.asList(a, b, a));
+            fail("Expected an IllegalStateException");
+        } catch (IllegalStateException e) {
+            // Expected.
+        }
+        assertEquals(1, queue.size());
+        try {
+            queue.offerAll(Arrays.asList(a, null));
+            fail("Expected a NullPointerException");
+        } catch (NullPointerException e) {
+            // Expected.
+        }
+        assertEquals(1, queue.size());
+
+        assertEquals(2, queue.offerAll(Arrays.asList(b, a)));
+        assertSame(a, queue.poll());
+        assertSame(queued, queue.poll());
+        assertSame(b, queue.poll());
+        assertNull(queue.poll());
+    }
+}
@@ -0,0 +1,77 @@
+package org.cujau.utils.priorityexecutor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class PriorityCompletableFutureTest {
+
+    @Test
+    public void testPipelineKeepsPriority()
+            throws Exception {
+        PriorityThreadPoolExecutor executor = new PriorityThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, 16);
+        final CountDownLatch blocker = new CountDownLatch(1);
+        executor.execute(() -> {
+            try {
+                blocker.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        final List<String> order = Collections.synchronizedList(new ArrayList<>());
+        executor.execute(new PriorityCompletableFuture.Task(5, () -> order.add("p5")));
+
+        PriorityCompletableFuture<String> start = executor.completedFuture(1, "x");
+        CompletableFuture<String> high = start.thenApplyAsync(s -> {
+            order.add("p1");
+            return s + "1";
+        });
+        CompletableFuture<String> low = start.withPriority(9).thenApplyAsync(s -> {
+            order.add("p9");
+            return s + "9";
+        });
+        assertTrue(high instanceof PriorityCompletableFuture);
+        assertEquals(1, ((PriorityCompletableFuture<?>) high).getPriority());
+        assertEquals(9, ((PriorityCompletableFuture<?>) low).getPriority());
+
+        blocker.countDown();
+        assertEquals("x1", high.get(10, TimeUnit.SECONDS));
+        assertEquals("x9", low.get(10, TimeUnit.SECONDS));
+        assertEquals(List.of("p1", "p5", "p9"), order);
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testSupplyAsync()
+            throws Exception {
+        final PriorityThreadPoolExecutor executor = new PriorityThreadPoolExecutor(2, 2, 0, TimeUnit.SECONDS, 16);
+        executor.setThreadFactory(r -> new Thread(r, "prio-worker"));
+        CompletableFuture<String> f = executor.supplyAsync(3, () -> "a")
+                                             .thenApplyAsync(s -> s + Thread.currentThread().getName())
+                                             .thenComposeAsync(s -> executor.supplyAsync(0, () -> s + "!"));
+        assertEquals("aprio-worker!", f.get(10, TimeUnit.SECONDS));
+
+        CompletableFuture<Void> failed = executor.runAsync(3, () -> {
+            throw new IllegalStateException("boom");
+        });
+        try {
+            failed.get(10, TimeUnit.SECONDS);
+            fail("Expected a failure");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,180 @@
+package org.cujau.utils.priorityexecutor;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+public class PriorityExecutorMetricsTest {
+
+    private static PriorityCallable<Object> task(final int priority, final boolean fail) {
+        return new PriorityCallable<Object>() {
+            @Override
+            public int getPriority() {
+                return priority;
+            }
+
+            @Override
+            public Object call() {
+                if (fail) {
+                    throw new IllegalStateException("failed");
+                }
+                return null;
+            }
+        };
+    }
+
+    @Test
+    public void testHistogramBuckets() {
+        for (long v : new long[] { 0, 1, 7, 8, 9, 15, 16, 17, 1000, 123456789, Long.MAX_VALUE }) {
+            int bucket = LatencyHistogram.bucketOf(v);
+            assertTrue(v <= LatencyHistogram.highestValueOf(bucket));
+            assertTrue(bucket == 0 || v > LatencyHistogram.highestValueOf(bucket - 1));
+        }
+        LatencyHistogram h = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            h.record(i * 1000L);
+        }
+        LatencyHistogram.Snapshot s = h.snapshot();
+        assertEquals(1000, s.getCount());
+        assertEquals(1000000, s.getMax());
+        assertEquals(1000000, s.getPercentile(100));
+        long p50 = s.getPercentile(50);
+        assertTrue(p50 >= 500000 && p50 <= 500000 * 1.125);
+        long p99 = s.getPercentile(99);
+        assertTrue(p99 >= 990000 && p99 <= 1000000);
+    }
+
+    @Test
+    public void testExecutorMetrics()
+            throws Exception {
+        PriorityThreadPoolExecutor executor = new PriorityThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, 16);
+        PriorityExecutorMetrics metrics = new PriorityExecutorMetrics(0, 3);
+        executor.setMetrics(metrics);
+
+        final CountDownLatch blocker = new CountDownLatch(1);
+        final CountDownLatch blockerStarted = new CountDownLatch(1);
+        executor.execute(() -> {
+            blockerStarted.countDown();
+            try {
+                blocker.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        executor.submit(task(1, false));
+        executor.submit(task(1, true));
+        executor.submit(task(-4, false));
+        executor.submit(task(7, false));
+        Future<Object> cancelled = executor.submit(task(2, false));
+        cancelled.cancel(false);
+        Thread.sleep(20);
+
+        PriorityExecutorMetrics.Snapshot s = metrics.snapshot();
+        assertEquals(6, s.getSubmittedCount());
+        assertEquals(4, s.getBandCount());
+        // The blocking task runs, the one of priority -4 counts in the first band, 7 in the last.
+        assertArrayEquals(new long[] { 1, 2, 1, 1 }, metrics.getQueuedCountByBand());
+
+        blocker.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        try {
+            executor.submit(task(0, false));
+            fail("Expected a rejection");
+        } catch (RejectedExecutionException e) {
+            // Expected.
+        }
+
+        s = metrics.snapshot();
+        assertEquals(0, s.getQueuedCount());
+        assertEquals(4, s.getCompletedCount());
+        assertEquals(1, s.getFailedCount());
+        assertEquals(1, s.getCancelledCount());
+        assertEquals(1, s.getRejectedCount());
+        assertEquals(5, s.getRunTime().getCount());
+        assertEquals(2, s.getWaitTime(1).getCount());
+        assertTrue(s.getWaitTime(1).getMax() >= TimeUnit.MILLISECONDS.toNanos(20));
+        assertEquals(1, s.getPriorityOfBand(1));
+    }
+
+    @Test
+    public void testBatchMetrics()
+            throws Exception {
+        PriorityThreadPoolExecutor executor =
+                new PriorityThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new BoundedPriorityBlockingQueue(2));
+        PriorityExecutorMetrics metrics = new PriorityExecutorMetrics(0, 3);
+        executor.setMetrics(metrics);
+        final CountDownLatch blocker = new CountDownLatch(1);
+        final CountDownLatch blockerStarted = new CountDownLatch(1);
+        executor.execute(() -> {
+            blockerStarted.countDown();
+            try {
+                blocker.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(blockerStarted.await(10, TimeUnit.SECONDS));
+
+        assertEquals(2, executor.submitAll(Arrays.asList(task(0, false), task(1, false))).size());
+        assertArrayEquals(new long[] { 1, 1, 0, 0 }, metrics.getQueuedCountByBand());
+        assertEquals(3, metrics.getSubmittedCount());
+        blocker.countDown();
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (metrics.getCompletedCount() < 3 && System.nanoTime() < end) {
+            Thread.sleep(5);
+        }
+
+        // The queue only takes two of the three tasks, the third is rejected by the executor.
+        final CountDownLatch blocker2 = new CountDownLatch(1);
+        final CountDownLatch blocker2Started = new CountDownLatch(1);
+        executor.execute(() -> {
+            blocker2Started.countDown();
+            try {
+                blocker2.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(blocker2Started.await(10, TimeUnit.SECONDS));
+        try {
+            executor.submitAll(Arrays.asList(task(0, false), task(1, false), task(2, false)));
+            fail("Expected a rejection");
+        } catch (RejectedExecutionException e) {
+            // Expected.
+        }
+        assertEquals(7, metrics.getSubmittedCount());
+        assertEquals(1, metrics.getRejectedCount());
+        assertArrayEquals(new long[] { 1, 1, 0, 0 }, metrics.getQueuedCountByBand());
+        blocker2.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(0, metrics.getQueuedCount());
+    }
+
+    @Test
+    public void testJmx()
+            throws Exception {
+        PriorityExecutorMetrics metrics = new PriorityExecutorMetrics();
+        ObjectName name = metrics.register("test");
+        try {
+            assertEquals(0L, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "SubmittedCount"));
+            assertEquals(10, ((long[]) ManagementFactory.getPlatformMBeanServer()
+                                                       .getAttribute(name, "QueuedCountByBand")).length);
+        } finally {
+            PriorityExecutorMetrics.unregister(name);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package org.cujau.utils.priorityexecutor;
+
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class PriorityFutureComparatorTest {
+
+    private static PriorityFuture<Object> task(int priority) {
+        return new PriorityFuture<>(new FutureTask<>(() -> null), priority);
+    }
+
+    private static PriorityFuture<Object> task(int priority, long createdNanos) {
+        return new PriorityFuture<>(new FutureTask<>(() -> null), priority, PriorityCallable.NO_DEADLINE, createdNanos);
+    }
+
+    @Test
+    public void testFifoWithinPriority() {
+        PriorityBlockingQueue<Runnable> queue = new PriorityBlockingQueue<>(16, new PriorityFutureComparator());
+        List<PriorityFuture<Object>> high = new ArrayList<>();
+        List<PriorityFuture<Object>> low = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            PriorityFuture<Object> t = task(i % 2);
+            (i % 2 == 0 ? high : low).add(t);
+            queue.add(t);
+        }
+        for (PriorityFuture<Object> t : high) {
+            assertSame(t, queue.poll());
+        }
+        for (PriorityFuture<Object> t : low) {
+            assertSame(t, queue.poll());
+        }
+    }
+
+    @Test
+    public void testEarliestDeadlineFirst() {
+        PriorityBlockingQueue<Runnable> queue = new PriorityBlockingQueue<>(16, new PriorityFutureComparator());
+        long now = System.nanoTime();
+        PriorityFuture<Object> none = task(1);
+        PriorityFuture<Object> late = new PriorityFuture<>(new FutureTask<>(() -> null), 1, now + 2000000000L);
+        PriorityFuture<Object> early = new PriorityFuture<>(new FutureTask<>(() -> null), 1, now + 1000000000L);
+        PriorityFuture<Object> urgent = task(0);
+        queue.add(none);
+        queue.add(late);
+        queue.add(early);
+        queue.add(urgent);
+        // The priority comes first, then the deadline.
+        assertSame(urgent, queue.poll());
+        assertSame(early, queue.poll());
+        assertSame(late, queue.poll());
+        assertSame(none, queue.poll());
+    }
+
+    @Test
+    public void testAging() {
+        long now = 1000000000L;
+        PriorityFuture<Object> old = task(3, now);
+        PriorityFuture<Object> young = task(2, now + TimeUnit.MILLISECONDS.toNanos(20));
+
+        // Without aging, or with a long interval, the priority decides.
+        assertTrue(new PriorityFutureComparator().compare(young, old) < 0);
+        assertTrue(new PriorityFutureComparator(1, TimeUnit.HOURS).compare(young, old) < 0);
+        // The old task has waited more than one interval, which makes up for one level.
+        assertTrue(new PriorityFutureComparator(5, TimeUnit.MILLISECONDS).compare(old, young) < 0);
+        // Exactly one interval makes the tasks equal, then the creation order decides.
+        PriorityFuture<Object> later = task(2, now + TimeUnit.MILLISECONDS.toNanos(5));
+        assertTrue(new PriorityFutureComparator(5, TimeUnit.MILLISECONDS).compare(old, later) < 0);
+        assertTrue(new PriorityFutureComparator(5, TimeUnit.MILLISECONDS).compare(later, old) > 0);
+        // But not for ten levels.
+        assertTrue(new PriorityFutureComparator(5, TimeUnit.MILLISECONDS).compare(task(-7, now + 1), old) < 0);
+        // The clock may wrap around, only the difference of the creation times counts.
+        PriorityFuture<Object> wrappedOld = task(3, Long.MAX_VALUE - 1000);
+        PriorityFuture<Object> wrappedYoung = task(2, Long.MIN_VALUE + TimeUnit.MILLISECONDS.toNanos(20));
+        assertTrue(new PriorityFutureComparator(5, TimeUnit.MILLISECONDS).compare(wrappedOld, wrappedYoung) < 0);
+        // Extreme priorities do not overflow.
+        assertTrue(new PriorityFutureComparator(1, TimeUnit.DAYS).compare(task(Integer.MIN_VALUE, now),
+                                                                        task(Integer.MAX_VALUE, now)) < 0);
+    }
+}
@@ -0,0 +1,126 @@
+package org.cujau.utils.priorityexecutor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class PriorityScheduledThreadPoolExecutorTest {
+
+    private static PriorityRunnable runnable(final int priority, final List<Integer> order) {
+        return new PriorityRunnable() {
+            @Override
+            public int getPriority() {
+                return priority;
+            }
+
+            @Override
+            public void run() {
+                order.add(priority);
+            }
+        };
+    }
+
+    @Test
+    public void testDelayedTasksRespectPriority()
+            throws Exception {
+        PriorityScheduledThreadPoolExecutor executor = new PriorityScheduledThreadPoolExecutor(1);
+        final CountDownLatch blocker = new CountDownLatch(1);
+        executor.execute(() -> {
+            try {
+                blocker.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        final List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        long start = System.nanoTime();
+        ScheduledFuture<?> low = executor.schedule(runnable(9, order), 200, TimeUnit.MILLISECONDS);
+        ScheduledFuture<?> high = executor.schedule(runnable(1, order), 300, TimeUnit.MILLISECONDS);
+        ScheduledFuture<String> callable = executor.schedule(() -> "done", 5, TimeUnit.MILLISECONDS);
+        assertTrue(low.getDelay(TimeUnit.MILLISECONDS) > 0);
+        assertTrue(low.compareTo(high) < 0);
+
+        // All are due and queued behind the blocking task, so the priority decides.
+        Thread.sleep(400);
+        assertEquals(3, executor.getQueue().size());
+        blocker.countDown();
+        assertEquals("done", callable.get(10, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(300));
+        high.get(10, TimeUnit.SECONDS);
+        low.get(10, TimeUnit.SECONDS);
+        assertEquals(List.of(1, 9), order);
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testPeriodicTasks()
+            throws Exception {
+        PriorityScheduledThreadPoolExecutor executor =
+                new PriorityScheduledThreadPoolExecutor(2, r -> new Thread(r), 1, TimeUnit.MILLISECONDS, 8);
+        final AtomicInteger rate = new AtomicInteger();
+        final AtomicInteger delay = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(2);
+        ScheduledFuture<?> f1 = executor.scheduleAtFixedRate(() -> {
+            if (rate.incrementAndGet() == 5) {
+                done.countDown();
+            }
+        }, 0, 5, TimeUnit.MILLISECONDS);
+        ScheduledFuture<?> f2 = executor.scheduleWithFixedDelay(() -> {
+            if (delay.incrementAndGet() == 5) {
+                done.countDown();
+            }
+        }, 3, 5, TimeUnit.MILLISECONDS);
+        // Longer than a turn of the 8 tick wheel.
+        ScheduledFuture<?> later = executor.schedule(() -> { }, 50, TimeUnit.MILLISECONDS);
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        f1.cancel(false);
+        f2.cancel(false);
+        later.get(10, TimeUnit.SECONDS);
+
+        ScheduledFuture<?> pending = executor.schedule(() -> { }, 1, TimeUnit.HOURS);
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        Thread.sleep(20);
+        assertTrue(pending.isCancelled());
+    }
+
+    @Test
+    public void testCancelledTasksLeaveTheWheel()
+            throws Exception {
+        PriorityScheduledThreadPoolExecutor executor = new PriorityScheduledThreadPoolExecutor(1);
+        List<ScheduledFuture<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            futures.add(executor.scheduleAtFixedRate(() -> { }, 1, 1, TimeUnit.HOURS));
+        }
+        ScheduledFuture<?> kept = executor.schedule(() -> { }, 1, TimeUnit.HOURS);
+        assertEquals(1001, executor.getScheduledCount());
+        for (ScheduledFuture<?> f : futures) {
+            assertTrue(f.cancel(false));
+        }
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (executor.getScheduledCount() > 1 && System.nanoTime() < end) {
+            Thread.sleep(5);
+        }
+        assertEquals(1, executor.getScheduledCount());
+        assertFalse(kept.isDone());
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        // Cancelled by the wheel thread when it stops.
+        end = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!kept.isDone() && System.nanoTime() < end) {
+            Thread.sleep(5);
+        }
+        assertTrue(kept.isCancelled());
+    }
+}
@@ -0,0 +1,305 @@
+package org.cujau.utils.priorityexecutor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+public class PriorityThreadPoolExecutorTest {
+
+    private static PriorityRunnable runnable(final int priority, final List<Integer> order) {
+        return new PriorityRunnable() {
+            @Override
+            public int getPriority() {
+                return priority;
+            }
+
+            @Override
+            public void run() {
+                order.add(priority);
+            }
+        };
+    }
+
+    private static void block(PriorityThreadPoolExecutor executor, final CountDownLatch blocker) {
+        executor.execute(() -> {
+            try {
+                blocker.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+    }
+
+    @Test
+    public void testRunnables()
+            throws Exception {
+        PriorityThreadPoolExecutor executor = new PriorityThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, 16);
+        executor.setDefaultPriority(5);
+        CountDownLatch blocker = new CountDownLatch(1);
+        block(executor, blocker);
+
+        final List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        executor.execute(runnable(7, order));
+        executor.execute(() -> order.add(-5));
+        Future<String> f = executor.submit(runnable(1, order), "done");
+        executor.submit(() -> order.add(-50));
+        CompletableFuture<Void> cf = CompletableFuture.runAsync(() -> order.add(-500), executor);
+        executor.execute(runnable(3, order));
+
+        blocker.countDown();
+        assertEquals("done", f.get(10, TimeUnit.SECONDS));
+        cf.get(10, TimeUnit.SECONDS);
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        // Plain tasks run with priority 5, in submission order.
+        assertEquals(List.of(1, 3, -5, -50, -500, 7), order);
+    }
+
+    @Test
+    public void testExecuteFailureReachesAfterExecute()
+            throws Exception {
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final CountDownLatch done = new CountDownLatch(1);
+        PriorityThreadPoolExecutor executor = new PriorityThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, 16) {
+            @Override
+            protected void afterExecute(Runnable r, Throwable t) {
+                failure.set(t);
+                done.countDown();
+            }
+        };
+        executor.setThreadFactory(r -> {
+            Thread t = new Thread(r);
+            t.setUncaughtExceptionHandler((thread, e) -> { });
+            return t;
+        });
+        executor.execute(() -> {
+            throw new IllegalStateException("boom");
+        });
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertTrue(failure.get() instanceof IllegalStateException);
+        executor.shutdown();
+    }
+
+    private static PriorityRunnable withDeadline(final long deadline, final List<Integer> order) {
+        return new PriorityRunnable() {
+            @Override
+            public int getPriority() {
+                return 0;
+            }
+
+            @Override
+            public long getDeadline() {
+                return deadline;
+            }
+
+            @Override
+            public void run() {
+                order.add(0);
+            }
+        };
+    }
+
+    @Test
+    public void testTimedGetAndDeadline()
+            throws Exception {
+        PriorityThreadPoolExecutor executor = new PriorityThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, 16);
+        CountDownLatch blocker = new CountDownLatch(1);
+        block(executor, blocker);
+
+        final List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        long submitted = System.nanoTime();
+        Future<?> expiring = executor.submit(withDeadline(submitted + TimeUnit.MILLISECONDS.toNanos(200), order));
+        Future<?> f = executor.submit(runnable(1, order));
+        try {
+            f.get(20, TimeUnit.MILLISECONDS);
+            fail("Expected a timeout");
+        } catch (TimeoutException e) {
+            // Expected, the executor is blocked.
+        }
+        // Cancelled and removed from the queue when its deadline passed, while the worker is blocked.
+        try {
+            expiring.get(10, TimeUnit.SECONDS);
+            fail("Expected a cancellation");
+        } catch (CancellationException e) {
+            // Expected.
+        }
+        assertTrue(System.nanoTime() - submitted >= TimeUnit.MILLISECONDS.toNanos(200));
+        assertEquals(1, executor.getQueue().size());
+
+        // Already late when submitted: cancelled at once, never queued.
+        Future<?> late = executor.submit(withDeadline(System.nanoTime() - 1, order));
+        assertTrue(late.isCancelled());
+        assertEquals(1, executor.getQueue().size());
+
+        blocker.countDown();
+        f.get(10, TimeUnit.SECONDS);
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(List.of(1), order);
+    }
+
+    @Test
+    public void testDeadlineReleasedOnCompletion()
+            throws Exception {
+        PriorityThreadPoolExecutor executor = new PriorityThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, 16);
+        assertEquals(0, executor.getDeadlineCount());
+        CountDownLatch blocker = new CountDownLatch(1);
+        block(executor, blocker);
+        final List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        long deadline = System.nanoTime() + TimeUnit.HOURS.toNanos(1);
+        Future<?> cancelled = executor.submit(withDeadline(deadline, order));
+        Future<?> run = executor.submit(withDeadline(deadline, order));
+        assertEquals(2, executor.getDeadlineCount());
+        cancelled.cancel(false);
+        blocker.countDown();
+        run.get(10, TimeUnit.SECONDS);
+        // The wheel drops the entries of done tasks at its next tick.
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (executor.getDeadlineCount() > 0 && System.nanoTime() < end) {
+            Thread.sleep(5);
+        }
+        assertEquals(0, executor.getDeadlineCount());
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    private static PriorityCallable<Integer> keyed(final String key, final int value, final AtomicInteger calls) {
+        return new PriorityCallable<Integer>() {
+            @Override
+            public int getPriority() {
+                return value;
+            }
+
+            @Override
+            public Object getCoalescingKey() {
+                return key;
+            }
+
+            @Override
+            public Integer call() {
+                calls.incrementAndGet();
+                return value;
+            }
+        };
+    }
+
+    @Test
+    public void testSubmitAll()
+            throws Exception {
+        PriorityThreadPoolExecutor executor =
+                new PriorityThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new IndexedPriorityBlockingQueue());
+        PriorityExecutorMetrics metrics = new PriorityExecutorMetrics();
+        executor.setMetrics(metrics);
+        CountDownLatch blocker = new CountDownLatch(1);
+        block(executor, blocker);
+
+        final List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        List<PriorityCallable<Integer>> tasks = new ArrayList<>();
+        for (final int p : new int[] { 4, 2, 8, 1, 2 }) {
+            tasks.add(new PriorityCallable<Integer>() {
+                @Override
+                public int getPriority() {
+                    return p;
+                }
+
+                @Override
+                public Integer call() {
+                    order.add(p);
+                    return p * 10;
+                }
+            });
+        }
+        List<Future<Integer>> futures = executor.submitAll(tasks);
+        assertEquals(5, executor.getQueue().size());
+
+        blocker.countDown();
+        for (int i = 0; i < tasks.size(); i++) {
+            assertEquals(Integer.valueOf(tasks.get(i).getPriority() * 10), futures.get(i).get(10, TimeUnit.SECONDS));
+        }
+        assertEquals(List.of(1, 2, 2, 4, 8), order);
+
+        List<Future<Integer>> invoked = executor.invokeAll(tasks);
+        for (Future<Integer> f : invoked) {
+            assertTrue(f.isDone());
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(10, order.size());
+        assertEquals(0, metrics.getQueuedCount());
+    }
+
+    @Test
+    public void testCoalescing()
+            throws Exception {
+        PriorityThreadPoolExecutor executor = new PriorityThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, 16);
+        CountDownLatch blocker = new CountDownLatch(1);
+        block(executor, blocker);
+
+        AtomicInteger calls = new AtomicInteger();
+        Future<Integer> first = executor.submit(keyed("x", 5, calls));
+        Future<Integer> second = executor.submit(keyed("x", 3, calls));
+        Future<Integer> other = executor.submit(keyed("y", 4, calls));
+        Future<Integer> third = executor.submit(keyed("x", 7, calls));
+        assertSame(first, second);
+        assertSame(first, third);
+        assertEquals(2, executor.getQueue().size());
+        // Moved up to the priority of the second task.
+        assertEquals(3, ((PriorityFuture<?>) first).getPriority());
+
+        blocker.countDown();
+        assertEquals(Integer.valueOf(7), first.get(10, TimeUnit.SECONDS));
+        assertEquals(Integer.valueOf(4), other.get(10, TimeUnit.SECONDS));
+        assertEquals(2, calls.get());
+
+        // Once the task has run, the key starts a new task.
+        Future<Integer> fourth = executor.submit(keyed("x", 1, calls));
+        assertTrue(fourth != first);
+        assertEquals(Integer.valueOf(1), fourth.get(10, TimeUnit.SECONDS));
+        assertEquals(0, executor.getCoalescingCount());
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testCoalescingKeysReleasedWithoutRunning()
+            throws Exception {
+        PriorityThreadPoolExecutor executor = new PriorityThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, 16);
+        CountDownLatch blocker = new CountDownLatch(1);
+        block(executor, blocker);
+
+        AtomicInteger calls = new AtomicInteger();
+        Future<Integer> cancelled = executor.submit(keyed("x", 5, calls));
+        Future<Integer> removed = executor.submit(keyed("y", 5, calls));
+        assertEquals(2, executor.getCoalescingCount());
+        assertTrue(cancelled.cancel(false));
+        assertTrue(executor.remove((Runnable) removed));
+        removed.cancel(false);
+        assertEquals(0, executor.getCoalescingCount());
+
+        Future<Integer> pending = executor.submit(keyed("x", 6, calls));
+        assertTrue(pending != cancelled);
+        assertEquals(1, executor.getCoalescingCount());
+        List<Runnable> notRun = executor.shutdownNow();
+        assertTrue(notRun.contains(pending));
+        assertEquals(1, executor.getCoalescingCount());
+        pending.cancel(false);
+        assertEquals(0, executor.getCoalescingCount());
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(0, calls.get());
+    }
+}
@@ -0,0 +1,96 @@
+package org.cujau.utils.priorityexecutor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+public class PriorityVirtualThreadExecutorTest {
+
+    @Test
+    public void testIsSupported() {
+        // Without --enable-preview, Java 19 and 20 have Thread.ofVirtual() but cannot use it.
+        assertEquals(Runtime.version().feature() >= 21, PriorityVirtualThreadExecutor.isSupported());
+    }
+
+    @Test
+    public void testUnsupported() {
+        Assume.assumeFalse(PriorityVirtualThreadExecutor.isSupported());
+        try {
+            new PriorityVirtualThreadExecutor(4);
+            fail("Virtual threads are not available on " + System.getProperty("java.version"));
+        } catch (UnsupportedOperationException e) {
+            // Expected.
+        }
+    }
+
+    @Test
+    public void testPermitsAndOrdering()
+            throws Exception {
+        Assume.assumeTrue(PriorityVirtualThreadExecutor.isSupported());
+        final int permits = 3;
+        PriorityVirtualThreadExecutor executor = new PriorityVirtualThreadExecutor(permits, "test-");
+        final CountDownLatch blocker = new CountDownLatch(1);
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        for (int i = 0; i < permits; i++) {
+            executor.execute(() -> {
+                try {
+                    blocker.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        final Method isVirtual = Thread.class.getMethod("isVirtual");
+        final List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        final List<Boolean> virtual = Collections.synchronizedList(new ArrayList<>());
+        final int[] priorities = { 4, 2, 8, 1, 16, 32, 64, 128, 256 };
+        for (final int p : priorities) {
+            executor.execute(new PriorityRunnable() {
+                @Override
+                public int getPriority() {
+                    return p;
+                }
+
+                @Override
+                public void run() {
+                    int n = running.incrementAndGet();
+                    maxRunning.accumulateAndGet(n, Math::max);
+                    order.add(p);
+                    try {
+                        virtual.add((Boolean) isVirtual.invoke(Thread.currentThread()));
+                        // Hold the permit, so that the next tasks have to wait for it.
+                        Thread.sleep(50);
+                    } catch (Exception e) {
+                        virtual.add(false);
+                    } finally {
+                        running.decrementAndGet();
+                    }
+                }
+            });
+        }
+        assertEquals(priorities.length, executor.getQueue().size());
+        blocker.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(permits, maxRunning.get());
+        assertEquals(priorities.length, order.size());
+        // The first tasks to get a permit are the ones with the lowest priority values.
+        assertEquals(new HashSet<>(Arrays.asList(1, 2, 4)), new HashSet<>(order.subList(0, permits)));
+        assertEquals(new HashSet<>(Arrays.asList(8, 16, 32)), new HashSet<>(order.subList(permits, 2 * permits)));
+        assertTrue(virtual.stream().allMatch(v -> v));
+    }
+}
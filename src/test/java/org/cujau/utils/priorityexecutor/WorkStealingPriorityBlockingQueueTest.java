@@ -0,0 +1,131 @@
+package org.cujau.utils.priorityexecutor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class WorkStealingPriorityBlockingQueueTest {
+
+    private static PriorityFuture<Object> task(int priority) {
+        return new PriorityFuture<>(new FutureTask<>(() -> null), priority);
+    }
+
+    @Test
+    public void testStealInPriorityOrder()
+            throws InterruptedException {
+        WorkStealingPriorityBlockingQueue queue = new WorkStealingPriorityBlockingQueue(4);
+        List<PriorityFuture<Object>> tasks = new ArrayList<>();
+        // Offered from a thread without home heap, so spread over the four heaps.
+        for (int p : new int[] { 5, 1, 9, 3, 7, 0, 2 }) {
+            PriorityFuture<Object> t = task(p);
+            tasks.add(t);
+            queue.offer(t);
+        }
+        assertEquals(7, queue.size());
+        assertSame(tasks.get(5), queue.peek());
+        // A thread without home heap always steals the best task.
+        int[] expected = { 0, 1, 2, 3, 5, 7, 9 };
+        for (int p : expected) {
+            assertEquals(p, ((PriorityFuture<?>) queue.poll()).getPriority());
+        }
+        assertNull(queue.poll());
+        assertNull(queue.poll(10, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testRemove() {
+        WorkStealingPriorityBlockingQueue queue = new WorkStealingPriorityBlockingQueue(2);
+        PriorityFuture<Object> a = task(1);
+        PriorityFuture<Object> b = task(2);
+        queue.add(a);
+        queue.add(b);
+        assertTrue(queue.contains(b));
+        assertTrue(queue.remove(b));
+        assertEquals(1, queue.size());
+        List<Runnable> drained = new ArrayList<>();
+        assertEquals(1, queue.drainTo(drained));
+        assertEquals(List.of(a), drained);
+    }
+
+    @Test
+    public void testConcurrentProducersAndConsumers()
+            throws InterruptedException {
+        final WorkStealingPriorityBlockingQueue queue = new WorkStealingPriorityBlockingQueue(4);
+        final int producers = 4;
+        final int perProducer = 20000;
+        final AtomicInteger taken = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(producers * 2);
+        CountDownLatch done = new CountDownLatch(producers);
+        for (int i = 0; i < producers; i++) {
+            pool.execute(() -> {
+                for (int j = 0; j < perProducer; j++) {
+                    queue.offer(task(j % 8));
+                }
+            });
+            pool.execute(() -> {
+                try {
+                    for (int j = 0; j < perProducer; j++) {
+                        queue.take();
+                        taken.incrementAndGet();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                done.countDown();
+            });
+        }
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        pool.shutdown();
+        assertEquals(producers * perProducer, taken.get());
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void testExecutorWithSubtasks()
+            throws Exception {
+        final PriorityWorkStealingExecutor executor = new PriorityWorkStealingExecutor(4);
+        final AtomicInteger count = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            final int priority = i % 5;
+            futures.add(executor.submit(new PriorityCallable<Object>() {
+                @Override
+                public int getPriority() {
+                    return priority;
+                }
+
+                @Override
+                public Object call()
+                        throws Exception {
+                    // Subtasks go to the heap of this worker.
+                    List<Future<?>> subtasks = new ArrayList<>();
+                    for (int j = 0; j < 10; j++) {
+                        subtasks.add(executor.submit(count::incrementAndGet));
+                    }
+                    return subtasks;
+                }
+            }));
+        }
+        for (Future<?> f : futures) {
+            for (Object subtask : (List<?>) f.get(10, TimeUnit.SECONDS)) {
+                ((Future<?>) subtask).get(10, TimeUnit.SECONDS);
+            }
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(1000, count.get());
+    }
+}